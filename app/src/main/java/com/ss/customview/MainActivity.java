@@ -10,6 +10,10 @@ import com.lpphan.rangeseekbar.RangeSeekBar;
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity";
 
+    // TextView keeps a reference to the array it displays, so each view gets its own buffer
+    private final char[] mLeftText = new char[11];
+    private final char[] mRightText = new char[11];
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -22,14 +26,33 @@ public class MainActivity extends AppCompatActivity {
         seekBar.setOnRangeBarChangeListener(new RangeSeekBar.OnRangeSeekBarChangerListener() {
             @Override
             public void onIndexChange(RangeSeekBar rangeBar, int leftIndex, int rightIndex) {
-                Log.d(TAG, "leftIndex: " + leftIndex);
-                Log.d(TAG, "rightIndex: " + rightIndex);
-                right.setText(rightIndex+ "");
-                left.setText(leftIndex + "");
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "leftIndex: " + leftIndex);
+                    Log.d(TAG, "rightIndex: " + rightIndex);
+                }
+                // called on every move of a drag, set the text without building strings
+                int start = formatIndex(rightIndex, mRightText);
+                right.setText(mRightText, start, mRightText.length - start);
+                start = formatIndex(leftIndex, mLeftText);
+                left.setText(mLeftText, start, mLeftText.length - start);
             }
         });
 
 
     }
 
+    /**
+     * Write the digits of a non-negative index at the end of the buffer
+     *
+     * @return offset of the first digit
+     */
+    private static int formatIndex(int index, char[] buffer) {
+        int position = buffer.length;
+        do {
+            buffer[--position] = (char) ('0' + index % 10);
+            index /= 10;
+        } while (index > 0);
+        return position;
+    }
+
 }
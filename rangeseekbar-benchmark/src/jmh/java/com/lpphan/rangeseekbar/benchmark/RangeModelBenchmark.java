@@ -0,0 +1,172 @@
+package com.lpphan.rangeseekbar.benchmark;
+
+import com.lpphan.rangeseekbar.core.FrameClock;
+import com.lpphan.rangeseekbar.core.RangeDispatcher;
+import com.lpphan.rangeseekbar.core.RangeModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.lpphan.rangeseekbar.benchmark.TrackGeometryBenchmark.SAMPLE_COUNT;
+import static com.lpphan.rangeseekbar.benchmark.TrackGeometryBenchmark.TRACK_LEFT;
+import static com.lpphan.rangeseekbar.benchmark.TrackGeometryBenchmark.TRACK_RIGHT;
+
+/**
+ * The touch path of RangeSeekBar: hit-testing on ACTION_DOWN, dragging on ACTION_MOVE with the
+ * reorder when crossing other thumbs and the listener dispatch it triggers.
+ * <p>
+ * Index changes go through a {@link RangeDispatcher} in each of the modes the view offers. Samples
+ * arrive every 4 ms like on a 240 Hz touch panel, and a frame runs after every fourth one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RangeModelBenchmark {
+
+    private static final float TOUCH_RADIUS = 24;
+    private static final long SAMPLE_NANOS = 4000000L;
+    private static final int SAMPLES_PER_FRAME = 4;
+    private static final long THROTTLE_MILLIS = 50;
+
+    @Param({"20", "1000", "100000", "10000000"})
+    public int tickCount;
+
+    @Param({"2", "16"})
+    public int thumbCount;
+
+    @Param({"immediate", "per_frame", "throttled"})
+    public String dispatchMode;
+
+    private RangeModel model;
+    private final ManualFrameClock clock = new ManualFrameClock();
+    private float[] touches;
+    private float[] crossings;
+    private float[] tickSteps;
+    private int cursor;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        model = new RangeModel(tickCount, thumbCount);
+        model.getGeometry().setBounds(TRACK_LEFT, TRACK_RIGHT);
+        if (thumbCount == 2) {
+            model.setRightIndex(tickCount / 2);
+        } else {
+            model.layout();
+        }
+        RangeDispatcher dispatcher = new RangeDispatcher(clock, new RangeDispatcher.Target() {
+            @Override
+            public void dispatchRangeChange(int[] indices) {
+                blackhole.consume(indices);
+            }
+
+            @Override
+            public void dispatchStartTracking() {
+            }
+
+            @Override
+            public void dispatchStopTracking() {
+            }
+        });
+        if ("per_frame".equals(dispatchMode)) {
+            dispatcher.setMode(RangeDispatcher.MODE_PER_FRAME);
+        } else if ("throttled".equals(dispatchMode)) {
+            dispatcher.setMode(RangeDispatcher.MODE_THROTTLED);
+            dispatcher.setThrottleInterval(THROTTLE_MILLIS);
+        }
+        model.setOnRangeChangeListener(dispatcher);
+        model.press(RangeModel.LEFT);
+        dispatcher.startTracking();
+
+        Random random = new Random(42);
+        float middle = model.getThumbX(1);
+        touches = new float[SAMPLE_COUNT];
+        crossings = new float[SAMPLE_COUNT];
+        tickSteps = new float[SAMPLE_COUNT];
+        float step = Math.max(model.getGeometry().getTickDistance(), 1f);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            touches[i] = TRACK_LEFT + random.nextFloat() * (TRACK_RIGHT - TRACK_LEFT);
+            // alternate sides of the second thumb so every other move reorders the thumbs
+            crossings[i] = (i & 1) == 0 ? middle - 1 - random.nextFloat() * 100 : middle + 1 + random.nextFloat() * 100;
+            // walk back and forth one tick (or one pixel on dense bars) at a time
+            int offset = i < SAMPLE_COUNT / 2 ? i : SAMPLE_COUNT - i;
+            tickSteps[i] = Math.min(TRACK_LEFT + offset * step, TRACK_RIGHT);
+        }
+    }
+
+    @Benchmark
+    public int checkThumbPressed() {
+        return model.hitTest(touches[cursor++ & (SAMPLE_COUNT - 1)], TOUCH_RADIUS);
+    }
+
+    @Benchmark
+    public int dragRandom() {
+        return drag(touches);
+    }
+
+    @Benchmark
+    public int dragAcrossOtherThumb() {
+        return drag(crossings);
+    }
+
+    @Benchmark
+    public int dragWithListenerDispatch() {
+        return drag(tickSteps);
+    }
+
+    private int drag(float[] samples) {
+        int sample = cursor++;
+        int changes = model.drag(samples[sample & (SAMPLE_COUNT - 1)]);
+        clock.advance(SAMPLE_NANOS);
+        if (sample % SAMPLES_PER_FRAME == SAMPLES_PER_FRAME - 1) {
+            clock.doFrame();
+        }
+        return changes;
+    }
+
+    /**
+     * Runs the posted callback when the benchmark says a frame is due
+     */
+    private static final class ManualFrameClock implements FrameClock {
+        private Callback mCallback;
+        private long mNanos;
+
+        void advance(long nanos) {
+            mNanos += nanos;
+        }
+
+        void doFrame() {
+            Callback callback = mCallback;
+            if (callback != null) {
+                mCallback = null;
+                callback.doFrame(mNanos);
+            }
+        }
+
+        @Override
+        public void postFrameCallback(Callback callback) {
+            mCallback = callback;
+        }
+
+        @Override
+        public void removeFrameCallback(Callback callback) {
+            if (mCallback == callback) {
+                mCallback = null;
+            }
+        }
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+}
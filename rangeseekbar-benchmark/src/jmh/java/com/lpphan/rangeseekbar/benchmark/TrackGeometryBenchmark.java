@@ -0,0 +1,77 @@
+package com.lpphan.rangeseekbar.benchmark;
+
+import com.lpphan.rangeseekbar.core.TickScale;
+import com.lpphan.rangeseekbar.core.TrackGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pixel to index conversion done on every move event, and index to pixel placement done on
+ * every layout and release.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrackGeometryBenchmark {
+
+    static final float TRACK_LEFT = 40;
+    static final float TRACK_RIGHT = 1040;
+    static final int SAMPLE_COUNT = 1024;
+
+    @Param({"20", "1000", "100000", "10000000"})
+    public int tickCount;
+
+    @Param({"linear", "log"})
+    public String scale;
+
+    private TrackGeometry geometry;
+    private TrackGeometry zoomedGeometry;
+    private float[] pixels;
+    private int[] indices;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        TickScale tickScale = "log".equals(scale) ? TickScale.log(1, tickCount) : TickScale.LINEAR;
+        geometry = new TrackGeometry(tickCount);
+        geometry.setBounds(TRACK_LEFT, TRACK_RIGHT);
+        geometry.setScale(tickScale);
+        zoomedGeometry = new TrackGeometry(tickCount);
+        zoomedGeometry.setBounds(TRACK_LEFT, TRACK_RIGHT);
+        zoomedGeometry.setScale(tickScale);
+        zoomedGeometry.zoom(tickCount / 20f, (TRACK_LEFT + TRACK_RIGHT) / 2);
+
+        Random random = new Random(42);
+        pixels = new float[SAMPLE_COUNT];
+        indices = new int[SAMPLE_COUNT];
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            pixels[i] = TRACK_LEFT + random.nextFloat() * (TRACK_RIGHT - TRACK_LEFT);
+            indices[i] = random.nextInt(tickCount);
+        }
+    }
+
+    @Benchmark
+    public int pixelToIndex() {
+        return geometry.pixelToIndex(pixels[cursor++ & (SAMPLE_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public int pixelToIndexZoomed() {
+        return zoomedGeometry.pixelToIndex(pixels[cursor++ & (SAMPLE_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public float indexToPixel() {
+        return geometry.indexToPixel(indices[cursor++ & (SAMPLE_COUNT - 1)]);
+    }
+}
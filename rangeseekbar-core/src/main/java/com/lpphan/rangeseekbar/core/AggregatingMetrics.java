@@ -0,0 +1,176 @@
+package com.lpphan.rangeseekbar.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reference {@link RangeSeekBarMetrics}: durations go into {@link LatencyHistogram}s and events
+ * into counters, so recording never allocates and the numbers can be read from any thread.
+ * <p>
+ * The frame gap is the time between two draws while tracking, the largest one is the worst
+ * hitch the user saw during a drag. A {@link SummaryListener} gets a {@link Summary} of all the
+ * numbers so far whenever a drag ends.
+ */
+public class AggregatingMetrics implements RangeSeekBarMetrics {
+
+    private final LatencyHistogram mDraw = new LatencyHistogram();
+    private final LatencyHistogram mTouch = new LatencyHistogram();
+    private final LatencyHistogram mListener = new LatencyHistogram();
+    private final LatencyHistogram mFrameGap = new LatencyHistogram();
+    private final AtomicLong mInvalidations = new AtomicLong();
+    private final AtomicLong mAnimationFrames = new AtomicLong();
+    private final AtomicLong mDrags = new AtomicLong();
+
+    private boolean mTracking;
+    private long mLastDrawNanos;
+    private SummaryListener mSummaryListener;
+
+    public void setSummaryListener(SummaryListener summaryListener) {
+        mSummaryListener = summaryListener;
+    }
+
+    @Override
+    public void onDraw(long startNanos, long durationNanos) {
+        mDraw.record(durationNanos);
+        if (mTracking) {
+            if (mLastDrawNanos != 0) {
+                mFrameGap.record(startNanos - mLastDrawNanos);
+            }
+            mLastDrawNanos = startNanos;
+        }
+    }
+
+    @Override
+    public void onTouchEvent(long durationNanos) {
+        mTouch.record(durationNanos);
+    }
+
+    @Override
+    public void onListenerCall(long durationNanos) {
+        mListener.record(durationNanos);
+    }
+
+    @Override
+    public void onInvalidate() {
+        mInvalidations.incrementAndGet();
+    }
+
+    @Override
+    public void onAnimationFrame(long frameTimeNanos) {
+        mAnimationFrames.incrementAndGet();
+    }
+
+    @Override
+    public void onTrackingStart(long timeNanos) {
+        mTracking = true;
+        // the first gap runs from the touch down to the first draw
+        mLastDrawNanos = timeNanos;
+        mDrags.incrementAndGet();
+    }
+
+    @Override
+    public void onTrackingStop(long timeNanos) {
+        mTracking = false;
+        mLastDrawNanos = 0;
+        if (mSummaryListener != null) {
+            mSummaryListener.onSummary(getSummary());
+        }
+    }
+
+    public LatencyHistogram getDrawHistogram() {
+        return mDraw;
+    }
+
+    public LatencyHistogram getTouchHistogram() {
+        return mTouch;
+    }
+
+    public LatencyHistogram getListenerHistogram() {
+        return mListener;
+    }
+
+    public LatencyHistogram getFrameGapHistogram() {
+        return mFrameGap;
+    }
+
+    public long getInvalidationCount() {
+        return mInvalidations.get();
+    }
+
+    public long getAnimationFrameCount() {
+        return mAnimationFrames.get();
+    }
+
+    public long getDragCount() {
+        return mDrags.get();
+    }
+
+    public Summary getSummary() {
+        return new Summary(this);
+    }
+
+    public void reset() {
+        mDraw.reset();
+        mTouch.reset();
+        mListener.reset();
+        mFrameGap.reset();
+        mInvalidations.set(0);
+        mAnimationFrames.set(0);
+        mDrags.set(0);
+    }
+
+    public interface SummaryListener {
+        void onSummary(Summary summary);
+    }
+
+    /**
+     * Numbers of an {@link AggregatingMetrics} at one point in time, durations in nanoseconds
+     */
+    public static class Summary {
+        public final long draws, drawP50, drawP99, drawMax;
+        public final long touchEvents, touchP50, touchP99, touchMax;
+        public final long listenerCalls, listenerP50, listenerP99, listenerMax;
+        public final long invalidations;
+        public final long animationFrames;
+        public final long drags;
+        public final long frameGapP99, maxFrameGap;
+
+        Summary(AggregatingMetrics metrics) {
+            draws = metrics.mDraw.getCount();
+            drawP50 = metrics.mDraw.getPercentile(50);
+            drawP99 = metrics.mDraw.getPercentile(99);
+            drawMax = metrics.mDraw.getMax();
+            touchEvents = metrics.mTouch.getCount();
+            touchP50 = metrics.mTouch.getPercentile(50);
+            touchP99 = metrics.mTouch.getPercentile(99);
+            touchMax = metrics.mTouch.getMax();
+            listenerCalls = metrics.mListener.getCount();
+            listenerP50 = metrics.mListener.getPercentile(50);
+            listenerP99 = metrics.mListener.getPercentile(99);
+            listenerMax = metrics.mListener.getMax();
+            invalidations = metrics.mInvalidations.get();
+            animationFrames = metrics.mAnimationFrames.get();
+            drags = metrics.mDrags.get();
+            frameGapP99 = metrics.mFrameGap.getPercentile(99);
+            maxFrameGap = metrics.mFrameGap.getMax();
+        }
+
+        @Override
+        public String toString() {
+            return "draw " + draws + " p50 " + micros(drawP50) + " p99 " + micros(drawP99) + " max " + micros(drawMax)
+                    + ", touch " + touchEvents + " p50 " + micros(touchP50) + " p99 " + micros(touchP99)
+                    + " max " + micros(touchMax)
+                    + ", listener " + listenerCalls + " p50 " + micros(listenerP50) + " p99 " + micros(listenerP99)
+                    + " max " + micros(listenerMax)
+                    + ", invalidations " + invalidations + ", animation frames " + animationFrames
+                    + ", drags " + drags + ", frame gap p99 " + millis(frameGapP99) + " max " + millis(maxFrameGap);
+        }
+
+        private static String micros(long nanos) {
+            return nanos / 1000 + "us";
+        }
+
+        private static String millis(long nanos) {
+            return nanos / 100000 / 10.0 + "ms";
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Steps every running animation once per frame of a {@link FrameClock}.
+ * <p>
+ * A frame is only requested while at least one animation is running, the scheduler goes idle
+ * on the frame the last animation finishes.
+ */
+public class AnimationScheduler implements FrameClock.Callback {
+
+    private final FrameClock mClock;
+    private final Host mHost;
+
+    private Animation[] mAnimations = new Animation[4];
+    private int mCount;
+    private boolean mFramePosted;
+
+    public AnimationScheduler(FrameClock clock, Host host) {
+        mClock = clock;
+        mHost = host;
+    }
+
+    /**
+     * Run an animation from the next frame on, starting a running animation again is a no-op
+     */
+    public void start(Animation animation) {
+        if (indexOf(animation) < 0) {
+            if (mCount == mAnimations.length) {
+                Animation[] animations = new Animation[mCount * 2];
+                System.arraycopy(mAnimations, 0, animations, 0, mCount);
+                mAnimations = animations;
+            }
+            mAnimations[mCount++] = animation;
+        }
+        postFrame();
+    }
+
+    public void cancel(Animation animation) {
+        int index = indexOf(animation);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(mAnimations, index + 1, mAnimations, index, mCount - index - 1);
+        mAnimations[--mCount] = null;
+        if (mCount == 0) {
+            removeFrame();
+        }
+    }
+
+    public void cancelAll() {
+        for (int i = 0; i < mCount; i++) {
+            mAnimations[i] = null;
+        }
+        mCount = 0;
+        removeFrame();
+    }
+
+    public boolean isRunning() {
+        return mCount > 0;
+    }
+
+    public boolean isRunning(Animation animation) {
+        return indexOf(animation) >= 0;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFramePosted = false;
+
+        int running = 0;
+        // mCount is read on every iteration: animations started from a callback run in this frame
+        for (int i = 0; i < mCount; i++) {
+            Animation animation = mAnimations[i];
+            if (animation.onFrame(frameTimeNanos)) {
+                mAnimations[running++] = animation;
+            }
+        }
+        for (int i = running; i < mCount; i++) {
+            mAnimations[i] = null;
+        }
+        mCount = running;
+
+        mHost.onAnimationFrame(frameTimeNanos);
+        if (mCount > 0) {
+            postFrame();
+        }
+    }
+
+    private int indexOf(Animation animation) {
+        for (int i = 0; i < mCount; i++) {
+            if (mAnimations[i] == animation) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void postFrame() {
+        if (!mFramePosted) {
+            mFramePosted = true;
+            mClock.postFrameCallback(this);
+        }
+    }
+
+    private void removeFrame() {
+        if (mFramePosted) {
+            mFramePosted = false;
+            mClock.removeFrameCallback(this);
+        }
+    }
+
+    public interface Animation {
+        /**
+         * Advance the animation to the frame time
+         *
+         * @return true while the animation needs more frames
+         */
+        boolean onFrame(long frameTimeNanos);
+    }
+
+    public interface Host {
+        /**
+         * Called after the animations were stepped, typically to redraw
+         */
+        void onAnimationFrame(long frameTimeNanos);
+    }
+}
@@ -0,0 +1,112 @@
+package com.lpphan.rangeseekbar.core;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The tick count and the thumb indices of a {@link RangeModel}, published by the thread owning the
+ * model and readable from any thread without locks.
+ * <p>
+ * Fields live in one atomic int array next to a sequence number, which is odd while a publish is in
+ * progress. Readers of several fields retry until they saw the same even sequence before and after,
+ * so they never mix two states. Publishing allocates nothing.
+ */
+public class AtomicRangeState {
+
+    private static final int SEQUENCE = 0;
+    private static final int TICK_COUNT = 1;
+    private static final int THUMB_COUNT = 2;
+    private static final int INDICES = 3;
+
+    private final AtomicIntegerArray mState = new AtomicIntegerArray(INDICES + RangeModel.MAX_THUMB_COUNT);
+
+    public AtomicRangeState(RangeModel model) {
+        publish(model);
+    }
+
+    /**
+     * Copy the state of the model. Only one thread may publish.
+     */
+    public void publish(RangeModel model) {
+        int sequence = mState.get(SEQUENCE);
+        mState.set(SEQUENCE, sequence + 1);
+        int thumbCount = model.getThumbCount();
+        mState.set(TICK_COUNT, model.getTickCount());
+        mState.set(THUMB_COUNT, thumbCount);
+        for (int i = 0; i < thumbCount; i++) {
+            mState.set(INDICES + i, model.getIndex(i));
+        }
+        mState.set(SEQUENCE, sequence + 2);
+    }
+
+    public int getTickCount() {
+        return mState.get(TICK_COUNT);
+    }
+
+    public int getThumbCount() {
+        return mState.get(THUMB_COUNT);
+    }
+
+    public int getLeftIndex() {
+        return mState.get(INDICES);
+    }
+
+    public int getRightIndex() {
+        while (true) {
+            int sequence = mState.get(SEQUENCE);
+            if ((sequence & 1) == 0) {
+                int index = mState.get(INDICES + mState.get(THUMB_COUNT) - 1);
+                if (mState.get(SEQUENCE) == sequence) {
+                    return index;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param thumb Slot from the left
+     * @return the index, or -1 when there is no such thumb
+     */
+    public int getIndex(int thumb) {
+        while (true) {
+            int sequence = mState.get(SEQUENCE);
+            if ((sequence & 1) == 0) {
+                int index = thumb < mState.get(THUMB_COUNT) ? mState.get(INDICES + thumb) : -1;
+                if (mState.get(SEQUENCE) == sequence) {
+                    return index;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a consistent copy of the whole state
+     *
+     * @param indices Receives the indices, at least {@link RangeModel#MAX_THUMB_COUNT} long
+     * @return the tick count and the thumb count packed, see {@link #tickCountOf(long)} and
+     * {@link #thumbCountOf(long)}
+     */
+    public long read(int[] indices) {
+        while (true) {
+            int sequence = mState.get(SEQUENCE);
+            if ((sequence & 1) != 0) {
+                continue;
+            }
+            int tickCount = mState.get(TICK_COUNT);
+            int thumbCount = mState.get(THUMB_COUNT);
+            for (int i = 0; i < thumbCount; i++) {
+                indices[i] = mState.get(INDICES + i);
+            }
+            if (mState.get(SEQUENCE) == sequence) {
+                return (long) thumbCount << 32 | tickCount;
+            }
+        }
+    }
+
+    public static int tickCountOf(long counts) {
+        return (int) counts;
+    }
+
+    public static int thumbCountOf(long counts) {
+        return (int) (counts >>> 32);
+    }
+}
@@ -0,0 +1,217 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Filters one set of records by several ranges at once, one {@link Dimension} per range, keeping
+ * for every dimension the per-tick counts of the records selected by all the other dimensions.
+ * <p>
+ * Every dimension keeps its records sorted by key in a {@link SortedWindowFilter}, and every record
+ * keeps a mask with one bit per dimension excluding it. Moving a range only visits the records
+ * crossing its bounds: their bit flips, and the counts of other dimensions change only when the
+ * record was excluded by no other dimension, or by exactly one which then gains or loses it. A drag
+ * costs O(crossing records * dimensions) at most, whatever the number of records.
+ * <p>
+ * Ticks whose count changed are collected per dimension until {@link Dimension#collectChanges}.
+ * Not thread-safe, use from one thread.
+ */
+public class Crossfilter {
+
+    public static final int MAX_DIMENSIONS = 32;
+
+    private final int mRecordCount;
+    private final int[] mMasks;
+    private Dimension[] mDimensions = new Dimension[0];
+    private int mSelectedCount;
+
+    public Crossfilter(int recordCount) {
+        if (recordCount < 0) {
+            throw new IllegalArgumentException("Record count must be >= 0");
+        }
+        mRecordCount = recordCount;
+        mMasks = new int[recordCount];
+        mSelectedCount = recordCount;
+    }
+
+    /**
+     * Add a column of the dataset, nothing is filtered out by it until
+     * {@link Dimension#filterRange(int, int)}
+     *
+     * @param keys Tick of every record in [0, tickCount), not modified
+     */
+    public Dimension addDimension(int[] keys, int tickCount) {
+        if (mDimensions.length == MAX_DIMENSIONS) {
+            throw new IllegalStateException("At most " + MAX_DIMENSIONS + " dimensions");
+        }
+        if (keys.length != mRecordCount) {
+            throw new IllegalArgumentException("Expected one key per record");
+        }
+        if (tickCount < 1) {
+            throw new IllegalArgumentException("Tick count must be >= 1");
+        }
+        for (int key : keys) {
+            if (key < 0 || key >= tickCount) {
+                throw new IllegalArgumentException("Keys must be in [0, tickCount)");
+            }
+        }
+        Dimension dimension = new Dimension(mDimensions.length, keys.clone(), tickCount);
+        Dimension[] dimensions = new Dimension[mDimensions.length + 1];
+        System.arraycopy(mDimensions, 0, dimensions, 0, mDimensions.length);
+        dimensions[mDimensions.length] = dimension;
+        mDimensions = dimensions;
+        return dimension;
+    }
+
+    public int getDimensionCount() {
+        return mDimensions.length;
+    }
+
+    public Dimension getDimension(int index) {
+        return mDimensions[index];
+    }
+
+    public int getRecordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Number of records inside the ranges of all dimensions
+     */
+    public int getSelectedCount() {
+        return mSelectedCount;
+    }
+
+    public boolean isSelected(int record) {
+        return mMasks[record] == 0;
+    }
+
+    /**
+     * A record left or entered the range of the dimension with the given bit
+     */
+    private void flip(int record, int bit, int delta) {
+        int mask = mMasks[record];
+        int others = mask & ~bit;
+        mMasks[record] = delta > 0 ? others : mask | bit;
+        if (others == 0) {
+            // selected by every other dimension, all of them see the change
+            mSelectedCount += delta;
+            for (Dimension dimension : mDimensions) {
+                if (dimension.mBit != bit) {
+                    dimension.add(record, delta);
+                }
+            }
+        } else if ((others & (others - 1)) == 0) {
+            // excluded by one other dimension only, whose counts ignore its own range
+            mDimensions[Integer.numberOfTrailingZeros(others)].add(record, delta);
+        }
+    }
+
+    public class Dimension implements SortedWindowFilter.OnSelectionChangeListener {
+
+        private final int mBit;
+        private final int[] mKeys;
+        private final long[] mCounts;
+        private final SortedWindowFilter mFilter;
+        private final long[] mChanged;
+        private final int[] mChangedTicks;
+        private int mChangedCount;
+
+        private Dimension(int index, int[] keys, int tickCount) {
+            mBit = 1 << index;
+            mKeys = keys;
+            mCounts = new long[tickCount];
+            mChanged = new long[(tickCount + 63) >>> 6];
+            mChangedTicks = new int[tickCount];
+            long[] sortKeys = new long[keys.length];
+            int[] ids = new int[keys.length];
+            for (int record = 0; record < keys.length; record++) {
+                sortKeys[record] = keys[record];
+                ids[record] = record;
+                if ((mMasks[record] & ~mBit) == 0) {
+                    mCounts[keys[record]]++;
+                }
+            }
+            mFilter = new SortedWindowFilter(sortKeys, ids);
+            // everything is selected to begin with, later moves report the records crossing
+            mFilter.setRange(Long.MIN_VALUE, Long.MAX_VALUE);
+            mFilter.setOnSelectionChangeListener(this);
+        }
+
+        /**
+         * Keep the records with leftIndex <= key <= rightIndex
+         */
+        public void filterRange(int leftIndex, int rightIndex) {
+            mFilter.setRange(leftIndex, rightIndex);
+        }
+
+        /**
+         * Stop filtering by this dimension
+         */
+        public void filterAll() {
+            mFilter.setRange(Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        public int getTickCount() {
+            return mCounts.length;
+        }
+
+        /**
+         * Records at a tick selected by the other dimensions, this dimension's range is ignored
+         */
+        public long getCount(int tick) {
+            return mCounts[tick];
+        }
+
+        /**
+         * @param out At least {@link #getTickCount()} long
+         */
+        public void getCounts(long[] out) {
+            System.arraycopy(mCounts, 0, out, 0, mCounts.length);
+        }
+
+        public int getChangedCount() {
+            return mChangedCount;
+        }
+
+        /**
+         * Copy the ticks whose count changed since the last call with their counts, and forget them
+         *
+         * @param ticks  At least {@link #getChangedCount()} ints
+         * @param counts At least {@link #getChangedCount()} longs
+         * @return number of changed ticks
+         */
+        public int collectChanges(int[] ticks, long[] counts) {
+            int count = mChangedCount;
+            for (int i = 0; i < count; i++) {
+                int tick = mChangedTicks[i];
+                ticks[i] = tick;
+                counts[i] = mCounts[tick];
+                mChanged[tick >>> 6] &= ~(1L << tick);
+            }
+            mChangedCount = 0;
+            return count;
+        }
+
+        private void add(int record, int delta) {
+            int tick = mKeys[record];
+            mCounts[tick] += delta;
+            long bit = 1L << tick;
+            if ((mChanged[tick >>> 6] & bit) == 0) {
+                mChanged[tick >>> 6] |= bit;
+                mChangedTicks[mChangedCount++] = tick;
+            }
+        }
+
+        @Override
+        public void onEnter(int[] ids, int from, int to) {
+            for (int i = from; i < to; i++) {
+                flip(ids[i], mBit, 1);
+            }
+        }
+
+        @Override
+        public void onExit(int[] ids, int from, int to) {
+            for (int i = from; i < to; i++) {
+                flip(ids[i], mBit, -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Bounding box of everything that needs to be redrawn, grown one change at a time.
+ */
+public class DirtyRegion {
+
+    private float mLeft, mTop, mRight, mBottom;
+    private boolean mEmpty = true;
+
+    public void setEmpty() {
+        mEmpty = true;
+        mLeft = mTop = mRight = mBottom = 0;
+    }
+
+    public boolean isEmpty() {
+        return mEmpty;
+    }
+
+    public void set(DirtyRegion region) {
+        mEmpty = region.mEmpty;
+        mLeft = region.mLeft;
+        mTop = region.mTop;
+        mRight = region.mRight;
+        mBottom = region.mBottom;
+    }
+
+    public void union(float left, float top, float right, float bottom) {
+        if (mEmpty) {
+            mLeft = left;
+            mTop = top;
+            mRight = right;
+            mBottom = bottom;
+            mEmpty = false;
+            return;
+        }
+        mLeft = Math.min(mLeft, left);
+        mTop = Math.min(mTop, top);
+        mRight = Math.max(mRight, right);
+        mBottom = Math.max(mBottom, bottom);
+    }
+
+    /**
+     * Add the area touched by a thumb moving between two positions on the track: the thumb at both
+     * ends and the part of the connecting bar in between.
+     *
+     * @param extent Half size of the largest thing drawn around a thumb center, ripple included
+     */
+    public void unionThumbMove(float fromX, float toX, float y, float extent) {
+        union(Math.min(fromX, toX) - extent, y - extent, Math.max(fromX, toX) + extent, y + extent);
+    }
+
+    /**
+     * @return left edge, rounded out to a whole pixel
+     */
+    public int getLeft() {
+        return (int) Math.floor(mLeft);
+    }
+
+    public int getTop() {
+        return (int) Math.floor(mTop);
+    }
+
+    public int getRight() {
+        return (int) Math.ceil(mRight);
+    }
+
+    public int getBottom() {
+        return (int) Math.ceil(mBottom);
+    }
+}
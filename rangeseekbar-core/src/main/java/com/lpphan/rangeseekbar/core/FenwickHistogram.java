@@ -0,0 +1,124 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Per-tick counts in a Fenwick tree, with O(log n) range sums and single-bin updates.
+ * <p>
+ * Entry i of the tree holds the counts of the bins from i - lowbit(i) to i - 1, so a prefix sum
+ * adds at most log2(binCount) entries and an update changes as many. The tree is built in O(n)
+ * from the counts, updating a bin never rebuilds it. A plain prefix-sum array would answer in O(1)
+ * but rebuild in O(n) on every update, the crossfilter updates bins on every drag step.
+ */
+public class FenwickHistogram {
+
+    private final long[] mCounts;
+    // 1-based Fenwick tree
+    private final long[] mTree;
+    private long mMaxCount;
+    private boolean mMaxStale;
+
+    public FenwickHistogram(int[] counts) {
+        this(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            mCounts[i] = counts[i];
+        }
+        build();
+    }
+
+    public FenwickHistogram(long[] counts) {
+        this(counts.length);
+        System.arraycopy(counts, 0, mCounts, 0, counts.length);
+        build();
+    }
+
+    private FenwickHistogram(int binCount) {
+        if (binCount == 0) {
+            throw new IllegalArgumentException("Histogram needs at least one bin");
+        }
+        mCounts = new long[binCount];
+        mTree = new long[binCount + 1];
+    }
+
+    public int getBinCount() {
+        return mCounts.length;
+    }
+
+    public long getCount(int bin) {
+        return mCounts[bin];
+    }
+
+    public void setCount(int bin, long count) {
+        add(bin, count - mCounts[bin]);
+    }
+
+    /**
+     * Add to the count of one bin, in O(log n)
+     */
+    public void add(int bin, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        long previous = mCounts[bin];
+        mCounts[bin] += delta;
+        if (mCounts[bin] > mMaxCount) {
+            mMaxCount = mCounts[bin];
+        } else if (previous == mMaxCount && delta < 0) {
+            mMaxStale = true;
+        }
+        for (int i = bin + 1; i < mTree.length; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * Sum of the counts from fromBin to toBin, both included, in O(log n)
+     */
+    public long sum(int fromBin, int toBin) {
+        if (fromBin > toBin) {
+            return 0;
+        }
+        return prefixSum(toBin + 1) - prefixSum(fromBin);
+    }
+
+    /**
+     * Sum of the first binCount counts
+     */
+    private long prefixSum(int binCount) {
+        long sum = 0;
+        for (int i = binCount; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    public long getTotal() {
+        return prefixSum(mCounts.length);
+    }
+
+    /**
+     * @return largest bin count, scanned again in O(n) after the largest count decreased
+     */
+    public long getMaxCount() {
+        if (mMaxStale) {
+            long max = 0;
+            for (long count : mCounts) {
+                max = Math.max(max, count);
+            }
+            mMaxCount = max;
+            mMaxStale = false;
+        }
+        return mMaxCount;
+    }
+
+    private void build() {
+        long max = 0;
+        for (int i = 1; i < mTree.length; i++) {
+            mTree[i] += mCounts[i - 1];
+            max = Math.max(max, mCounts[i - 1]);
+            int parent = i + (i & -i);
+            if (parent < mTree.length) {
+                mTree[parent] += mTree[i];
+            }
+        }
+        mMaxCount = max;
+    }
+}
@@ -0,0 +1,121 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Keeps the pressed thumb of a {@link RangeModel} moving after the finger lifted.
+ * <p>
+ * The whole curve is computed in {@link #start(float)}: the thumb travels the braking distance of
+ * the release velocity, stops against its neighbors or the track ends, and comes to rest on a tick.
+ * The distance is eased with the decelerate curve over a duration matching the release velocity,
+ * so a frame only evaluates a polynomial. Each frame drags the model once, so index changes reach
+ * the listener at most once per frame. The thumb is released on the last frame.
+ */
+public class FlingAnimator implements AnimationScheduler.Animation {
+
+    public static final long MAX_DURATION = 1000 * 1000000L;
+
+    private final RangeModel mModel;
+    private float mDeceleration = 10000;
+
+    private boolean mRunning;
+    private boolean mStarted;
+    private long mStartTime;
+    private long mDuration;
+    private float mFromX;
+    private float mToX;
+
+    public FlingAnimator(RangeModel model) {
+        mModel = model;
+    }
+
+    /**
+     * @param deceleration Pixels per second squared
+     */
+    public void setDeceleration(float deceleration) {
+        if (deceleration <= 0) {
+            throw new IllegalArgumentException("Deceleration must be > 0");
+        }
+        mDeceleration = deceleration;
+    }
+
+    /**
+     * Fling the pressed thumb of the model
+     *
+     * @param velocity Pixels per second, negative toward the left
+     * @return false when no thumb is pressed
+     */
+    public boolean start(float velocity) {
+        int thumb = mModel.getPressedThumb();
+        if (thumb == RangeModel.NO_THUMB) {
+            return false;
+        }
+        TrackGeometry geometry = mModel.getGeometry();
+        float minX = geometry.getLeftX();
+        float maxX = geometry.getRightX();
+        if (thumb > 0) {
+            minX = Math.max(minX, mModel.getThumbX(thumb - 1));
+        }
+        if (thumb < mModel.getThumbCount() - 1) {
+            maxX = Math.min(maxX, mModel.getThumbX(thumb + 1));
+        }
+
+        mFromX = mModel.getThumbX(thumb);
+        float toX = mFromX + velocity * Math.abs(velocity) / (2 * mDeceleration);
+        toX = Math.max(minX, Math.min(toX, maxX));
+        float tickX = geometry.indexToPixel(geometry.pixelToIndex(toX));
+        mToX = tickX >= minX && tickX <= maxX ? tickX : toX;
+
+        // x(t) = from + distance * decelerate(t / duration) starts at the release velocity
+        float distance = mToX - mFromX;
+        if (distance * velocity > 0) {
+            mDuration = Math.min((long) (2e9 * distance / velocity), MAX_DURATION);
+        } else {
+            // flung toward a stop it already touches, or rounded back to the previous tick
+            mDuration = ThumbAnimator.SNAP_DURATION;
+        }
+        mRunning = true;
+        mStarted = false;
+        return true;
+    }
+
+    /**
+     * Stop where the thumb is, it snaps to its tick
+     */
+    public void cancel() {
+        if (mRunning) {
+            mRunning = false;
+            mModel.release();
+        }
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * @return position the thumb comes to rest at
+     */
+    public float getTargetX() {
+        return mToX;
+    }
+
+    @Override
+    public boolean onFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return false;
+        }
+        if (!mStarted) {
+            mStarted = true;
+            mStartTime = frameTimeNanos;
+        }
+        long elapsed = frameTimeNanos - mStartTime;
+        if (elapsed >= mDuration) {
+            mModel.drag(mToX);
+            mRunning = false;
+            mModel.release();
+            return false;
+        }
+        float fraction = elapsed / (float) mDuration;
+        mModel.drag(mFromX + (mToX - mFromX) * ThumbAnimator.decelerate(fraction));
+        return true;
+    }
+}
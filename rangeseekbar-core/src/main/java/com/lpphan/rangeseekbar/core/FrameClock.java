@@ -0,0 +1,28 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Source of display frames. On Android frames are driven by the vsync signal, in tests by hand.
+ * <p>
+ * A clock serves a single callback at a time, posting again replaces the pending callback.
+ */
+public interface FrameClock {
+
+    /**
+     * Run the callback once, on the next frame
+     */
+    void postFrameCallback(Callback callback);
+
+    void removeFrameCallback(Callback callback);
+
+    /**
+     * @return current time in the time base of the frame timestamps
+     */
+    long nanoTime();
+
+    interface Callback {
+        /**
+         * @param frameTimeNanos Time the frame started rendering, in the {@link System#nanoTime()} time base
+         */
+        void doFrame(long frameTimeNanos);
+    }
+}
@@ -0,0 +1,119 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Turns a tick index into the text of a value label, written into a reusable buffer so labels can
+ * follow a drag without building strings.
+ * <p>
+ * Formats are called on every frame the label text may have changed, they must not allocate.
+ * {@link #appendLong(long, char, char[], int)} and {@link #appendChars(char[], char[], int)} cover
+ * the usual prefix, number and suffix.
+ */
+public abstract class LabelFormat {
+
+    /**
+     * Size of the buffer given to {@link #format(int, char[])}
+     */
+    public static final int MAX_LENGTH = 32;
+
+    /**
+     * The index itself
+     */
+    public static final LabelFormat INDEX = number("", 0, 1, "", (char) 0);
+
+    /**
+     * Write the label of a tick at the start of the buffer
+     *
+     * @param buffer At least {@link #MAX_LENGTH} chars
+     * @return number of chars written, at most {@link #MAX_LENGTH}
+     */
+    public abstract int format(int index, char[] buffer);
+
+    /**
+     * Ticks stand for evenly spaced values, like prices from $0 by steps of $5. Prefix and suffix
+     * share the {@link #MAX_LENGTH} chars the longest number leaves, the number of the first tick
+     * or of tick {@link Integer#MAX_VALUE}: 22 chars from 0 by steps of 1 without separators, 11
+     * for steps of 1,000,000 with separators.
+     *
+     * @param groupSeparator Put between groups of three digits, 0 for none
+     */
+    public static LabelFormat number(String prefix, final long start, final long step, String suffix,
+                                     final char groupSeparator) {
+        final char[] prefixChars = prefix.toCharArray();
+        final char[] suffixChars = suffix.toCharArray();
+        int numberLength = Math.max(numberLength(start, groupSeparator),
+                numberLength(lastValue(start, step), groupSeparator));
+        if (prefixChars.length + suffixChars.length > MAX_LENGTH - numberLength) {
+            throw new IllegalArgumentException("Prefix and suffix must fit in " + (MAX_LENGTH - numberLength)
+                    + " chars, numbers take up to " + numberLength);
+        }
+        return new LabelFormat() {
+            @Override
+            public int format(int index, char[] buffer) {
+                int length = appendChars(prefixChars, buffer, 0);
+                length = appendLong(start + index * step, groupSeparator, buffer, length);
+                return appendChars(suffixChars, buffer, length);
+            }
+        };
+    }
+
+    /**
+     * Value of tick {@link Integer#MAX_VALUE}, {@link Long#MIN_VALUE} when it overflows
+     */
+    private static long lastValue(long start, long step) {
+        if (step > Long.MAX_VALUE / Integer.MAX_VALUE || step < Long.MIN_VALUE / Integer.MAX_VALUE) {
+            return Long.MIN_VALUE;
+        }
+        long offset = Integer.MAX_VALUE * step;
+        long last = start + offset;
+        // the sum overflowed when it has another sign than both terms
+        return ((start ^ last) & (offset ^ last)) < 0 ? Long.MIN_VALUE : last;
+    }
+
+    /**
+     * Chars written by {@link #appendLong(long, char, char[], int)}
+     */
+    private static int numberLength(long value, char groupSeparator) {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        return (value < 0 ? 1 : 0) + digits + (groupSeparator != 0 ? (digits - 1) / 3 : 0);
+    }
+
+    /**
+     * @return offset after the chars
+     */
+    public static int appendChars(char[] chars, char[] buffer, int offset) {
+        System.arraycopy(chars, 0, buffer, offset, chars.length);
+        return offset + chars.length;
+    }
+
+    /**
+     * Write the decimal digits of a value
+     *
+     * @param groupSeparator Put between groups of three digits, 0 for none
+     * @return offset after the last digit
+     */
+    public static int appendLong(long value, char groupSeparator, char[] buffer, int offset) {
+        // digits are taken from the negative value, Long.MIN_VALUE has no positive counterpart
+        if (value < 0) {
+            buffer[offset++] = '-';
+        } else {
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = offset + digits + (groupSeparator != 0 ? (digits - 1) / 3 : 0);
+        int position = end;
+        for (int digit = 0; digit < digits; digit++) {
+            if (groupSeparator != 0 && digit > 0 && digit % 3 == 0) {
+                buffer[--position] = groupSeparator;
+            }
+            buffer[--position] = (char) ('0' - value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
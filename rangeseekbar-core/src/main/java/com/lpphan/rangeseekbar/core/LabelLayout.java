@@ -0,0 +1,70 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Places value labels over their thumbs without overlaps.
+ * <p>
+ * Labels are taken from left to right. A label overlapping the previous one is merged with it into
+ * a cluster, a row of labels with a gap in between, centered on the mean of the positions its
+ * labels want; merging goes on leftwards as long as clusters still overlap. Every cluster is kept
+ * inside the bounds. One pass, O(n), nothing allocated once the scratch arrays fit the label count.
+ */
+public class LabelLayout {
+
+    private int[] mClusterSize = new int[0];
+    private float[] mClusterWidth = new float[0];
+    // sum over the labels of the cluster of their wanted left minus their offset in the cluster
+    private float[] mClusterSum = new float[0];
+
+    /**
+     * @param centers Wanted center of every label, from left to right
+     * @param widths  Width of every label
+     * @param gap     Space kept between two labels
+     * @param lefts   Receives the left of every label
+     * @return true if some label was moved away from its wanted position to avoid an overlap
+     */
+    public boolean layout(float[] centers, float[] widths, int count, float minX, float maxX, float gap,
+                          float[] lefts) {
+        if (mClusterSize.length < count) {
+            mClusterSize = new int[count];
+            mClusterWidth = new float[count];
+            mClusterSum = new float[count];
+        }
+        int clusters = 0;
+        boolean merged = false;
+        for (int i = 0; i < count; i++) {
+            mClusterSize[clusters] = 1;
+            mClusterWidth[clusters] = widths[i];
+            mClusterSum[clusters] = centers[i] - widths[i] / 2;
+            clusters++;
+            while (clusters > 1) {
+                int top = clusters - 1;
+                int previous = top - 1;
+                if (clusterLeft(previous, minX, maxX) + mClusterWidth[previous] + gap
+                        <= clusterLeft(top, minX, maxX)) {
+                    break;
+                }
+                // the labels of the top cluster move right of the previous one
+                float shift = mClusterWidth[previous] + gap;
+                mClusterSum[previous] += mClusterSum[top] - mClusterSize[top] * shift;
+                mClusterWidth[previous] = shift + mClusterWidth[top];
+                mClusterSize[previous] += mClusterSize[top];
+                clusters--;
+                merged = true;
+            }
+        }
+        int label = 0;
+        for (int c = 0; c < clusters; c++) {
+            float x = clusterLeft(c, minX, maxX);
+            for (int i = 0; i < mClusterSize[c]; i++, label++) {
+                lefts[label] = x;
+                x += widths[label] + gap;
+            }
+        }
+        return merged;
+    }
+
+    private float clusterLeft(int cluster, float minX, float maxX) {
+        float left = mClusterSum[cluster] / mClusterSize[cluster];
+        return Math.max(minX, Math.min(left, maxX - mClusterWidth[cluster]));
+    }
+}
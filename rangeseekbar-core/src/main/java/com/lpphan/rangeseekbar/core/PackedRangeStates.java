@@ -0,0 +1,169 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * The tick count and thumb indices of many range bars, packed in one int array by position.
+ * <p>
+ * Every position takes a fixed stride of 2 + maxThumbCount ints: tick count (0 when nothing is
+ * stored), thumb count, then the indices. Storing and reading a position is O(1) and creates no
+ * object; the array doubles when a position beyond its end is stored.
+ */
+public class PackedRangeStates {
+
+    private static final int TICK_COUNT = 0;
+    private static final int THUMB_COUNT = 1;
+    private static final int INDICES = 2;
+
+    private final int mMaxThumbCount;
+    private final int mStride;
+    private int[] mData;
+    private int mSize;
+
+    /**
+     * @param maxThumbCount Largest thumb count to store, 2 for plain range bars
+     */
+    public PackedRangeStates(int maxThumbCount) {
+        this(maxThumbCount, new int[0], 0);
+    }
+
+    /**
+     * Restore states written with {@link #getData()}
+     */
+    public PackedRangeStates(int maxThumbCount, int[] data, int size) {
+        if (maxThumbCount < RangeModel.MIN_THUMB_COUNT || maxThumbCount > RangeModel.MAX_THUMB_COUNT) {
+            throw new IllegalArgumentException("Max thumb count must be in [" + RangeModel.MIN_THUMB_COUNT
+                    + ", " + RangeModel.MAX_THUMB_COUNT + "]");
+        }
+        mMaxThumbCount = maxThumbCount;
+        mStride = INDICES + maxThumbCount;
+        if (data.length < size * mStride) {
+            throw new IllegalArgumentException("Data too short for " + size + " positions");
+        }
+        mData = data;
+        mSize = size;
+    }
+
+    public int getMaxThumbCount() {
+        return mMaxThumbCount;
+    }
+
+    /**
+     * @return one past the last position ever stored
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * The packed states, valid up to {@link #size()} * (2 + maxThumbCount)
+     */
+    public int[] getData() {
+        return mData;
+    }
+
+    /**
+     * @param indices    Sorted indices, only the first thumbCount are read
+     * @param thumbCount Up to the max thumb count
+     */
+    public void put(int position, int tickCount, int[] indices, int thumbCount) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Position must be >= 0");
+        }
+        if (thumbCount < RangeModel.MIN_THUMB_COUNT || thumbCount > mMaxThumbCount) {
+            throw new IllegalArgumentException("Thumb count must be in [" + RangeModel.MIN_THUMB_COUNT
+                    + ", " + mMaxThumbCount + "]");
+        }
+        if (tickCount < 2) {
+            throw new IllegalArgumentException("Tick count must be >= 2");
+        }
+        if (position >= mSize) {
+            ensureCapacity(position + 1);
+            mSize = position + 1;
+        }
+        int offset = position * mStride;
+        mData[offset + TICK_COUNT] = tickCount;
+        mData[offset + THUMB_COUNT] = thumbCount;
+        System.arraycopy(indices, 0, mData, offset + INDICES, thumbCount);
+    }
+
+    private void ensureCapacity(int size) {
+        int length = size * mStride;
+        if (length > mData.length) {
+            int[] data = new int[Math.max(length, mData.length * 2)];
+            System.arraycopy(mData, 0, data, 0, mSize * mStride);
+            mData = data;
+        }
+    }
+
+    public boolean contains(int position) {
+        return position >= 0 && position < mSize && mData[position * mStride + TICK_COUNT] != 0;
+    }
+
+    /**
+     * @return the stored tick count, 0 if the position holds no state
+     */
+    public int getTickCount(int position) {
+        return contains(position) ? mData[position * mStride + TICK_COUNT] : 0;
+    }
+
+    public int getThumbCount(int position) {
+        return contains(position) ? mData[position * mStride + THUMB_COUNT] : 0;
+    }
+
+    /**
+     * @param out Receives the indices, at least the max thumb count long
+     * @return thumb count, 0 if the position holds no state
+     */
+    public int getIndices(int position, int[] out) {
+        if (!contains(position)) {
+            return 0;
+        }
+        int offset = position * mStride;
+        int thumbCount = mData[offset + THUMB_COUNT];
+        System.arraycopy(mData, offset + INDICES, out, 0, thumbCount);
+        return thumbCount;
+    }
+
+    public void remove(int position) {
+        if (contains(position)) {
+            mData[position * mStride + TICK_COUNT] = 0;
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mData[i * mStride + TICK_COUNT] = 0;
+        }
+        mSize = 0;
+    }
+
+    /**
+     * Shift the states at and after a position to make room for inserted items
+     */
+    public void insertRange(int position, int count) {
+        if (position >= mSize || count <= 0) {
+            return;
+        }
+        ensureCapacity(mSize + count);
+        System.arraycopy(mData, position * mStride, mData, (position + count) * mStride, (mSize - position) * mStride);
+        for (int i = position; i < position + count; i++) {
+            mData[i * mStride + TICK_COUNT] = 0;
+        }
+        mSize += count;
+    }
+
+    /**
+     * Drop the states of removed items, the following ones move down
+     */
+    public void removeRange(int position, int count) {
+        if (position >= mSize || count <= 0) {
+            return;
+        }
+        count = Math.min(count, mSize - position);
+        int end = position + count;
+        System.arraycopy(mData, end * mStride, mData, position * mStride, (mSize - end) * mStride);
+        mSize -= count;
+        for (int i = mSize; i < mSize + count; i++) {
+            mData[i * mStride + TICK_COUNT] = 0;
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Android-free behaviour of a RangeSeekBar: the touch gesture with its fling and prediction, the
+ * updates queued from other threads, and the dispatch of range changes to the listener and the
+ * {@link RangePublisher}. The view only turns MotionEvents into the calls below and draws the
+ * thumbs from {@link #getModel()}, the trace replays drive the same code without a view.
+ * <p>
+ * The queued setters and the getters can be called from any thread, the rest on the thread owning
+ * the bar.
+ */
+public class RangeController implements RangeDispatcher.Target, AnimationScheduler.Host {
+
+    /**
+     * Every touch sample of a move event is applied, the listener gets each index the finger passed
+     */
+    public static final int SAMPLES_REPORT_ALL = 0;
+    /**
+     * Every touch sample of a move event is applied, the listener only gets the final indices
+     */
+    public static final int SAMPLES_COLLAPSE = 1;
+
+    public static final float DEFAULT_TOUCH_RADIUS = 12;
+    public static final float DEFAULT_MIN_FLING_VELOCITY = 50;
+    public static final float DEFAULT_MAX_FLING_VELOCITY = 8000;
+
+    private final RangeModel mModel;
+    private final AtomicRangeState mRangeState;
+    private final RangeUpdateQueue mUpdates;
+    private final RangeDispatcher mDispatcher;
+    private final AnimationScheduler mAnimationScheduler;
+    private final FlingAnimator mFlingAnimator;
+    private final VelocityEstimator mVelocityEstimator = new VelocityEstimator();
+    private final Host mHost;
+    private TouchPredictor mTouchPredictor;
+    private RangePublisher mPublisher;
+    private long mPublishedRange = -1;
+
+    private boolean mFlingEnabled;
+    private int mSamplePolicy = SAMPLES_REPORT_ALL;
+    private float mTouchRadius = DEFAULT_TOUCH_RADIUS;
+    private float mMinFlingVelocity = DEFAULT_MIN_FLING_VELOCITY;
+    private float mMaxFlingVelocity = DEFAULT_MAX_FLING_VELOCITY;
+
+    private boolean mFlinging;
+    private boolean mBatching;
+    private int mMoveChanges;
+    private float mLastMoveX;
+    private float mDrawOffset;
+
+    /**
+     * @param dispatchClock  Paces the listener calls of the coalescing dispatch modes
+     * @param animationClock Runs the fling, and the host's animations started on
+     *                       {@link #getAnimationScheduler()}
+     */
+    public RangeController(int tickCount, int thumbCount, FrameClock dispatchClock,
+                           FrameClock animationClock, Host host) {
+        mHost = host;
+        mModel = new RangeModel(tickCount, thumbCount);
+        mRangeState = new AtomicRangeState(mModel);
+        mUpdates = new RangeUpdateQueue(mRangeState);
+        mDispatcher = new RangeDispatcher(dispatchClock, this);
+        mModel.setOnRangeChangeListener(new RangeModel.OnRangeChangeListener() {
+            @Override
+            public void onRangeChange(RangeModel model, int[] indices) {
+                mRangeState.publish(model);
+                mDispatcher.onRangeChange(model, indices);
+            }
+        });
+        mAnimationScheduler = new AnimationScheduler(animationClock, this);
+        mFlingAnimator = new FlingAnimator(mModel);
+    }
+
+    public RangeModel getModel() {
+        return mModel;
+    }
+
+    public RangeDispatcher getDispatcher() {
+        return mDispatcher;
+    }
+
+    public AnimationScheduler getAnimationScheduler() {
+        return mAnimationScheduler;
+    }
+
+    /**
+     * State last applied, readable from any thread
+     */
+    public AtomicRangeState getRangeState() {
+        return mRangeState;
+    }
+
+    /**
+     * Place the ticks along the track, the queued tick counts are checked against this scale
+     */
+    public void setScale(TickScale scale) {
+        mModel.getGeometry().setScale(scale);
+        mUpdates.setScale(scale);
+    }
+
+    /**
+     * Horizontal distance from a thumb center that still hits it
+     */
+    public void setTouchRadius(float touchRadius) {
+        mTouchRadius = touchRadius;
+    }
+
+    /**
+     * @param samplePolicy {@link #SAMPLES_REPORT_ALL} (default) or {@link #SAMPLES_COLLAPSE}
+     */
+    public void setTouchSamplePolicy(int samplePolicy) {
+        if (samplePolicy != SAMPLES_REPORT_ALL && samplePolicy != SAMPLES_COLLAPSE) {
+            throw new IllegalArgumentException("Unknown sample policy " + samplePolicy);
+        }
+        mSamplePolicy = samplePolicy;
+    }
+
+    public int getTouchSamplePolicy() {
+        return mSamplePolicy;
+    }
+
+    public void setFlingEnabled(boolean flingEnabled) {
+        mFlingEnabled = flingEnabled;
+        if (!flingEnabled) {
+            stopFling();
+        }
+    }
+
+    public boolean isFlingEnabled() {
+        return mFlingEnabled;
+    }
+
+    /**
+     * @param minVelocity Slower releases do not fling, pixels per second
+     * @param maxVelocity Faster releases fling at this velocity
+     */
+    public void setFlingVelocityRange(float minVelocity, float maxVelocity) {
+        if (minVelocity < 0 || maxVelocity < minVelocity) {
+            throw new IllegalArgumentException("Expected 0 <= min velocity <= max velocity");
+        }
+        mMinFlingVelocity = minVelocity;
+        mMaxFlingVelocity = maxVelocity;
+    }
+
+    /**
+     * @param deceleration Pixels per second squared
+     */
+    public void setFlingDeceleration(float deceleration) {
+        mFlingAnimator.setDeceleration(deceleration);
+    }
+
+    /**
+     * @param predictor null to draw the dragged thumb under the latest sample
+     */
+    public void setTouchPredictor(TouchPredictor predictor) {
+        mTouchPredictor = predictor;
+        mDrawOffset = 0;
+        if (predictor != null) {
+            predictor.clear();
+        }
+    }
+
+    public TouchPredictor getTouchPredictor() {
+        return mTouchPredictor;
+    }
+
+    /**
+     * Stream of the range changes, seeded with the current range. Call on the owner thread.
+     */
+    public RangePublisher getRangePublisher() {
+        if (mPublisher == null) {
+            mPublisher = new RangePublisher();
+            publish(mModel.getLeftIndex(), mModel.getRightIndex());
+        }
+        return mPublisher;
+    }
+
+    private void publish(int leftIndex, int rightIndex) {
+        long range = RangePublisher.pack(leftIndex, rightIndex);
+        if (mPublisher != null && range != mPublishedRange) {
+            mPublishedRange = range;
+            mPublisher.emit(range);
+        }
+    }
+
+    // -- touch
+
+    /**
+     * A thumb is dragged, and not flinging
+     */
+    public boolean isPressed() {
+        return mModel.getPressedThumb() != RangeModel.NO_THUMB && !mFlinging;
+    }
+
+    public boolean isFlinging() {
+        return mFlinging;
+    }
+
+    /**
+     * Start a gesture, a running fling stops. A thumb still pressed because the up or cancel of
+     * the last gesture was lost is released first, like a canceled gesture.
+     *
+     * @return slot of the pressed thumb or {@link RangeModel#NO_THUMB}
+     */
+    public int onDown(long timeNanos, float x) {
+        stopFling();
+        if (isPressed()) {
+            releaseWithoutFling();
+        }
+        mVelocityEstimator.clear();
+        mVelocityEstimator.addSample(timeNanos, x);
+        if (mTouchPredictor != null) {
+            mTouchPredictor.clear();
+            mTouchPredictor.addSample(timeNanos, x);
+        }
+        mDrawOffset = 0;
+        int thumb = mModel.hitTest(x, mTouchRadius);
+        if (thumb != RangeModel.NO_THUMB) {
+            mModel.press(thumb);
+            mDispatcher.startTracking();
+        }
+        return thumb;
+    }
+
+    /**
+     * Apply a move event with a single sample
+     *
+     * @return the CHANGED_* flags of {@link RangeModel}
+     */
+    public int onMove(long timeNanos, float x) {
+        beginMove();
+        addMoveSample(timeNanos, x);
+        return endMove();
+    }
+
+    /**
+     * Start a move event, followed by {@link #addMoveSample(long, float)} for every sample
+     * batched in it, oldest first, and {@link #endMove()}
+     */
+    public void beginMove() {
+        mMoveChanges = 0;
+        mBatching = mSamplePolicy == SAMPLES_COLLAPSE && isPressed();
+        if (mBatching) {
+            mModel.beginBatch();
+        }
+    }
+
+    public void addMoveSample(long timeNanos, float x) {
+        mVelocityEstimator.addSample(timeNanos, x);
+        if (mTouchPredictor != null) {
+            mTouchPredictor.addSample(timeNanos, x);
+        }
+        mLastMoveX = x;
+        if (isPressed()) {
+            mMoveChanges |= mModel.drag(x);
+        }
+    }
+
+    /**
+     * @return the CHANGED_* flags of {@link RangeModel} for the whole event
+     */
+    public int endMove() {
+        if (mBatching) {
+            mBatching = false;
+            mModel.endBatch();
+        }
+        mDrawOffset = 0;
+        if (mTouchPredictor != null && isPressed()) {
+            // the model keeps the real position, the prediction only shifts the drawing
+            float thumbX = mModel.getThumbX(mModel.getPressedThumb());
+            mDrawOffset = mModel.getGeometry().clampPixel(thumbX + mTouchPredictor.predict() - mLastMoveX) - thumbX;
+        }
+        return mMoveChanges;
+    }
+
+    /**
+     * Where to draw the pressed thumb relative to its model position, non-zero only with a
+     * {@link TouchPredictor}
+     */
+    public float getDrawOffset() {
+        return mDrawOffset;
+    }
+
+    /**
+     * End the gesture
+     *
+     * @return true if the released thumb flings
+     */
+    public boolean onUp(long timeNanos, boolean canceled) {
+        if (!isPressed()) {
+            return false;
+        }
+        return release(canceled ? 0 : mVelocityEstimator.getVelocity(timeNanos));
+    }
+
+    /**
+     * Release the pressed thumb
+     *
+     * @param velocity Pixels per second, flings the thumb when fast enough
+     * @return true if the thumb flings, the model keeps it pressed and tracking goes on until the
+     * fling ends
+     */
+    public boolean release(float velocity) {
+        mDrawOffset = 0;
+        if (mFlingEnabled && Math.abs(velocity) >= mMinFlingVelocity) {
+            velocity = Math.max(-mMaxFlingVelocity, Math.min(velocity, mMaxFlingVelocity));
+            if (mFlingAnimator.start(velocity)) {
+                mFlinging = true;
+                mAnimationScheduler.start(mFlingAnimator);
+                return true;
+            }
+        }
+        releaseWithoutFling();
+        return false;
+    }
+
+    private void releaseWithoutFling() {
+        mDrawOffset = 0;
+        mModel.release();
+        mDispatcher.stopTracking();
+    }
+
+    /**
+     * Stop a running fling, the thumb snaps to its current tick
+     *
+     * @return false if there was no fling
+     */
+    public boolean stopFling() {
+        if (!mFlinging) {
+            return false;
+        }
+        mFlinging = false;
+        mAnimationScheduler.cancel(mFlingAnimator);
+        mFlingAnimator.cancel();
+        mDispatcher.stopTracking();
+        return true;
+    }
+
+    // -- queued updates, any thread
+
+    /**
+     * @return true if the update is the first one pending, the owner has to schedule
+     * {@link #applyUpdates()}
+     */
+    public boolean setTickCount(int tickCount) {
+        return mUpdates.setTickCount(tickCount);
+    }
+
+    public boolean setThumbCount(int thumbCount) {
+        return mUpdates.setThumbCount(thumbCount);
+    }
+
+    public boolean setLeftIndex(int leftIndex) {
+        return mUpdates.setLeftIndex(leftIndex);
+    }
+
+    public boolean setRightIndex(int rightIndex) {
+        return mUpdates.setRightIndex(rightIndex);
+    }
+
+    public boolean setRange(int leftIndex, int rightIndex) {
+        return mUpdates.setRange(leftIndex, rightIndex);
+    }
+
+    /**
+     * @param count Number of indices to read from the array
+     */
+    public boolean setIndices(int[] indices, int count) {
+        return mUpdates.setIndices(indices, count);
+    }
+
+    public boolean hasPendingUpdates() {
+        return mUpdates.hasPending();
+    }
+
+    public boolean hasPendingThumbCount() {
+        return mUpdates.hasPendingThumbCount();
+    }
+
+    /**
+     * Apply the queued updates on the owner thread. A fling stops, a pressed thumb is released
+     * when the thumb count changes.
+     *
+     * @return the APPLIED_* and DROPPED_* flags of {@link RangeUpdateQueue}
+     */
+    public int applyUpdates() {
+        if (!mUpdates.hasPending()) {
+            return 0;
+        }
+        stopFling();
+        if (isPressed() && mUpdates.hasPendingThumbCount()) {
+            release(0);
+        }
+        int applied = mUpdates.apply(mModel);
+        if (applied != 0) {
+            mRangeState.publish(mModel);
+            publish(mModel.getLeftIndex(), mModel.getRightIndex());
+        }
+        return applied;
+    }
+
+    /**
+     * Set tick count, thumb count and indices at once on the owner thread, like a restored state.
+     * Updates queued before are applied first and overridden. Nothing is allocated unless the
+     * thumb count changes, or the tick count of a non-linear scale.
+     *
+     * @param indices Only the first thumbCount are read, in any order
+     * @return the APPLIED_* flags of {@link RangeUpdateQueue}
+     */
+    public int applyRangeState(int tickCount, int[] indices, int thumbCount) {
+        if (tickCount < 2) {
+            throw new IllegalArgumentException("Tick count must be >= 2");
+        }
+        if (!mModel.getGeometry().getScale().acceptsTickCount(tickCount)) {
+            throw new IllegalArgumentException("Scale does not accept " + tickCount + " ticks");
+        }
+        if (thumbCount < RangeModel.MIN_THUMB_COUNT || thumbCount > RangeModel.MAX_THUMB_COUNT) {
+            throw new IllegalArgumentException("Thumb count must be in [" + RangeModel.MIN_THUMB_COUNT
+                    + ", " + RangeModel.MAX_THUMB_COUNT + "]");
+        }
+        for (int i = 0; i < thumbCount; i++) {
+            if (indices[i] < 0 || indices[i] >= tickCount) {
+                throw new IllegalArgumentException("Indices must be in [0, tickCount)");
+            }
+        }
+        int applied = applyUpdates();
+        stopFling();
+        if (thumbCount != mModel.getThumbCount()) {
+            if (isPressed()) {
+                release(0);
+            }
+            mModel.setThumbCount(thumbCount);
+            applied |= RangeUpdateQueue.APPLIED_THUMB_COUNT;
+        }
+        if (tickCount != mModel.getTickCount()) {
+            mModel.setTickCount(tickCount);
+            applied |= RangeUpdateQueue.APPLIED_TICK_COUNT;
+        }
+        mModel.setIndices(indices, thumbCount);
+        applied |= RangeUpdateQueue.APPLIED_INDICES;
+        mRangeState.publish(mModel);
+        publish(mModel.getLeftIndex(), mModel.getRightIndex());
+        return applied;
+    }
+
+    public int getTickCount() {
+        return mRangeState.getTickCount();
+    }
+
+    public int getThumbCount() {
+        return mRangeState.getThumbCount();
+    }
+
+    public int getLeftIndex() {
+        return mRangeState.getLeftIndex();
+    }
+
+    public int getRightIndex() {
+        return mRangeState.getRightIndex();
+    }
+
+    // -- callbacks
+
+    @Override
+    public void dispatchRangeChange(int[] indices) {
+        publish(indices[0], indices[indices.length - 1]);
+        mHost.dispatchRangeChange(indices);
+    }
+
+    @Override
+    public void dispatchStartTracking() {
+        mHost.dispatchStartTracking();
+    }
+
+    @Override
+    public void dispatchStopTracking() {
+        mHost.dispatchStopTracking();
+    }
+
+    @Override
+    public void onAnimationFrame(long frameTimeNanos) {
+        boolean flingEnded = mFlinging && !mFlingAnimator.isRunning();
+        if (flingEnded) {
+            mFlinging = false;
+        }
+        mHost.onAnimationFrame(frameTimeNanos);
+        if (flingEnded) {
+            mDispatcher.stopTracking();
+        }
+    }
+
+    /**
+     * Listener calls and frames of the bar, the host redraws on them
+     */
+    public interface Host extends RangeDispatcher.Target, AnimationScheduler.Host {
+    }
+}
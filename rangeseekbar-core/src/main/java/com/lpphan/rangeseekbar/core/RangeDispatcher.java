@@ -0,0 +1,193 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Decides when index changes reach the listener.
+ * <ul>
+ * <li>{@link #MODE_IMMEDIATE}: on every change, from inside the touch event</li>
+ * <li>{@link #MODE_PER_FRAME}: at most once per frame, the latest range wins</li>
+ * <li>{@link #MODE_THROTTLED}: at most once per throttle interval, the latest range wins</li>
+ * <li>{@link #MODE_ON_RELEASE}: once, when tracking stops</li>
+ * </ul>
+ * Whatever the mode, a pending change is delivered before {@link Target#dispatchStopTracking()}.
+ * Pending indices are copied to a buffer that is only reallocated when the thumb count changes.
+ */
+public class RangeDispatcher implements RangeModel.OnRangeChangeListener, FrameClock.Callback {
+
+    public static final int MODE_IMMEDIATE = 0;
+    public static final int MODE_PER_FRAME = 1;
+    public static final int MODE_THROTTLED = 2;
+    public static final int MODE_ON_RELEASE = 3;
+
+    private final FrameClock mClock;
+    private final Target mTarget;
+
+    private int mMode = MODE_IMMEDIATE;
+    private long mThrottleNanos;
+    private boolean mTracking;
+
+    private boolean mPending;
+    private int[] mPendingIndices = new int[RangeModel.MIN_THUMB_COUNT];
+    private boolean mFramePosted;
+    private long mLastDispatchNanos;
+    private boolean mHasDispatched;
+
+    public RangeDispatcher(FrameClock clock, Target target) {
+        mClock = clock;
+        mTarget = target;
+    }
+
+    /**
+     * Change the dispatch mode, a change pending under the previous mode is delivered first
+     */
+    public void setMode(int mode) {
+        if (mode < MODE_IMMEDIATE || mode > MODE_ON_RELEASE) {
+            throw new IllegalArgumentException("Unknown dispatch mode " + mode);
+        }
+        flush();
+        mMode = mode;
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    /**
+     * Minimum time between two dispatches in {@link #MODE_THROTTLED}
+     */
+    public void setThrottleInterval(long throttleMillis) {
+        if (throttleMillis < 0) {
+            throw new IllegalArgumentException("Throttle interval must be >= 0");
+        }
+        mThrottleNanos = throttleMillis * 1000000L;
+    }
+
+    public long getThrottleInterval() {
+        return mThrottleNanos / 1000000L;
+    }
+
+    public boolean isTracking() {
+        return mTracking;
+    }
+
+    public void startTracking() {
+        if (!mTracking) {
+            mTracking = true;
+            mTarget.dispatchStartTracking();
+        }
+    }
+
+    public void stopTracking() {
+        if (mTracking) {
+            flush();
+            mTracking = false;
+            mTarget.dispatchStopTracking();
+        }
+    }
+
+    @Override
+    public void onRangeChange(RangeModel model, int[] indices) {
+        onRangeChange(indices);
+    }
+
+    /**
+     * @param indices Index of every thumb from left to right, not kept after the call
+     */
+    public void onRangeChange(int[] indices) {
+        switch (mMode) {
+            case MODE_IMMEDIATE:
+                dispatch(indices);
+                break;
+            case MODE_PER_FRAME:
+                setPending(indices);
+                postFrame();
+                break;
+            case MODE_THROTTLED:
+                if (!mHasDispatched || mClock.nanoTime() - mLastDispatchNanos >= mThrottleNanos) {
+                    mPending = false;
+                    dispatch(indices);
+                } else {
+                    setPending(indices);
+                    postFrame();
+                }
+                break;
+            case MODE_ON_RELEASE:
+                setPending(indices);
+                break;
+        }
+    }
+
+    /**
+     * Deliver the pending change now, if any
+     */
+    public void flush() {
+        removeFrame();
+        if (mPending) {
+            mPending = false;
+            dispatch(mPendingIndices);
+        }
+    }
+
+    /**
+     * Forget the pending change and stop waiting for frames
+     */
+    public void cancel() {
+        mPending = false;
+        removeFrame();
+    }
+
+    public boolean hasPendingChange() {
+        return mPending;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFramePosted = false;
+        if (!mPending) {
+            return;
+        }
+        if (mMode == MODE_THROTTLED && frameTimeNanos - mLastDispatchNanos < mThrottleNanos) {
+            postFrame();
+            return;
+        }
+        flush();
+    }
+
+    private void setPending(int[] indices) {
+        if (mPendingIndices.length != indices.length) {
+            mPendingIndices = new int[indices.length];
+        }
+        System.arraycopy(indices, 0, mPendingIndices, 0, indices.length);
+        mPending = true;
+    }
+
+    private void dispatch(int[] indices) {
+        mHasDispatched = true;
+        mLastDispatchNanos = mClock.nanoTime();
+        mTarget.dispatchRangeChange(indices);
+    }
+
+    private void postFrame() {
+        if (!mFramePosted) {
+            mFramePosted = true;
+            mClock.postFrameCallback(this);
+        }
+    }
+
+    private void removeFrame() {
+        if (mFramePosted) {
+            mFramePosted = false;
+            mClock.removeFrameCallback(this);
+        }
+    }
+
+    public interface Target {
+        /**
+         * @param indices Index of every thumb from left to right, only valid during the call
+         */
+        void dispatchRangeChange(int[] indices);
+
+        void dispatchStartTracking();
+
+        void dispatchStopTracking();
+    }
+}
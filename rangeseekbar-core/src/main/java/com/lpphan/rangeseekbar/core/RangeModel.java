@@ -0,0 +1,408 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Android-free state of a range seek bar: the position and the index of every thumb.
+ * <p>
+ * Thumbs are kept in slots ordered by position, slot 0 always holds the smallest index. Positions,
+ * indices and thumb ids are parallel primitive arrays, so hit-testing is a binary search over the
+ * positions. When the dragged thumb crosses others it is moved to its new slot by shifting the
+ * slots in between, {@link #drag(float)} then reports {@link #CHANGED_ORDER}. The id of a thumb
+ * never changes, see {@link #getThumbId(int)}, so the caller can keep whatever it attached to it.
+ * <p>
+ * A range seek bar has two thumbs, {@link #LEFT} and {@link #RIGHT}. Up to {@link #MAX_THUMB_COUNT}
+ * thumbs split the track into several ranges.
+ */
+public class RangeModel {
+
+    public static final int NO_THUMB = -1;
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+
+    public static final int MIN_THUMB_COUNT = 2;
+    public static final int MAX_THUMB_COUNT = 16;
+
+    public static final int CHANGED_POSITION = 1;
+    public static final int CHANGED_INDEX = 1 << 1;
+    public static final int CHANGED_ORDER = 1 << 2;
+
+    private final TrackGeometry mGeometry;
+    private int mThumbCount;
+    private float[] mThumbX;
+    private int[] mIndex;
+    private int[] mThumbId;
+    private int[] mBatchStartIndex;
+    private boolean mBatching;
+    private int mPressedThumb = NO_THUMB;
+
+    private OnRangeChangeListener mListener;
+
+    public RangeModel(int tickCount) {
+        this(tickCount, MIN_THUMB_COUNT);
+    }
+
+    public RangeModel(int tickCount, int thumbCount) {
+        mGeometry = new TrackGeometry(tickCount);
+        setThumbCount(thumbCount);
+    }
+
+    public TrackGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    public void setOnRangeChangeListener(OnRangeChangeListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Set number of thumbs, they are spread evenly over the ticks and a pressed thumb is released
+     *
+     * @param thumbCount From {@link #MIN_THUMB_COUNT} to {@link #MAX_THUMB_COUNT}
+     */
+    public void setThumbCount(int thumbCount) {
+        if (thumbCount < MIN_THUMB_COUNT || thumbCount > MAX_THUMB_COUNT) {
+            throw new IllegalArgumentException("Thumb count must be in [" + MIN_THUMB_COUNT + ", "
+                    + MAX_THUMB_COUNT + "]");
+        }
+        mThumbCount = thumbCount;
+        mThumbX = new float[thumbCount];
+        mIndex = new int[thumbCount];
+        mThumbId = new int[thumbCount];
+        mBatchStartIndex = new int[thumbCount];
+        mBatching = false;
+        mPressedThumb = NO_THUMB;
+        long lastIndex = mGeometry.getTickCount() - 1;
+        for (int i = 0; i < thumbCount; i++) {
+            mIndex[i] = (int) ((lastIndex * i + (thumbCount - 1) / 2) / (thumbCount - 1));
+            mThumbId[i] = i;
+        }
+        layout();
+    }
+
+    public int getThumbCount() {
+        return mThumbCount;
+    }
+
+    /**
+     * Set number of ticks, indices outside of the new range are clamped
+     */
+    public void setTickCount(int tickCount) {
+        mGeometry.setTickCount(tickCount);
+        for (int i = 0; i < mThumbCount; i++) {
+            mIndex[i] = mGeometry.clampIndex(mIndex[i]);
+        }
+        layout();
+    }
+
+    public int getTickCount() {
+        return mGeometry.getTickCount();
+    }
+
+    /**
+     * Move the thumbs to the pixel positions of their indices, call it after the geometry changed
+     */
+    public void layout() {
+        for (int i = 0; i < mThumbCount; i++) {
+            mThumbX[i] = mGeometry.indexToPixel(mIndex[i]);
+        }
+    }
+
+    /**
+     * Set the index of the first thumb, the thumbs it passes are pushed along with it
+     */
+    public void setLeftIndex(int leftIndex) {
+        setIndex(0, leftIndex);
+    }
+
+    /**
+     * Set the index of the last thumb, the thumbs it passes are pushed along with it
+     */
+    public void setRightIndex(int rightIndex) {
+        setIndex(mThumbCount - 1, rightIndex);
+    }
+
+    /**
+     * Set the indices of the first and the last thumb at once, the thumbs in between are clamped
+     * into the new range
+     */
+    public void setRange(int leftIndex, int rightIndex) {
+        checkIndex(leftIndex);
+        checkIndex(rightIndex);
+        if (leftIndex > rightIndex) {
+            throw new IllegalArgumentException("Left index must be <= right index");
+        }
+        pushIndex(mIndex, mThumbCount, 0, leftIndex);
+        pushIndex(mIndex, mThumbCount, mThumbCount - 1, rightIndex);
+        layout();
+    }
+
+    /**
+     * Set the index of the thumb in a slot. Thumbs never change slots here: the ones it passes
+     * are pushed to the same index, so setting the left then the right index of a range gives
+     * exactly that range whatever the indices were before.
+     */
+    public void setIndex(int thumb, int index) {
+        checkIndex(index);
+        pushIndex(mIndex, mThumbCount, thumb, index);
+        layout();
+    }
+
+    /**
+     * Set one index of sorted indices, pushing the ones it passes so they stay sorted
+     */
+    static void pushIndex(int[] indices, int count, int slot, int index) {
+        indices[slot] = index;
+        for (int i = slot - 1; i >= 0 && indices[i] > index; i--) {
+            indices[i] = index;
+        }
+        for (int i = slot + 1; i < count && indices[i] < index; i++) {
+            indices[i] = index;
+        }
+    }
+
+    /**
+     * Set the index of every thumb at once
+     *
+     * @param indices One index per thumb, in any order
+     */
+    public void setIndices(int[] indices) {
+        setIndices(indices, indices.length);
+    }
+
+    /**
+     * @param count Number of indices to read from the array, must be the thumb count
+     */
+    public void setIndices(int[] indices, int count) {
+        if (count != mThumbCount) {
+            throw new IllegalArgumentException("Expected " + mThumbCount + " indices");
+        }
+        for (int i = 0; i < mThumbCount; i++) {
+            checkIndex(indices[i]);
+        }
+        // insertion sort, the thumb ids keep their slots
+        for (int i = 0; i < mThumbCount; i++) {
+            int index = indices[i];
+            int j = i;
+            while (j > 0 && mIndex[j - 1] > index) {
+                mIndex[j] = mIndex[j - 1];
+                j--;
+            }
+            mIndex[j] = index;
+        }
+        layout();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Index must be >= 0");
+        }
+        if (index >= mGeometry.getTickCount()) {
+            throw new IllegalArgumentException("Index must be < tick count");
+        }
+    }
+
+    private void swap(int a, int b) {
+        float tempX = mThumbX[a];
+        mThumbX[a] = mThumbX[b];
+        mThumbX[b] = tempX;
+        int tempIndex = mIndex[a];
+        mIndex[a] = mIndex[b];
+        mIndex[b] = tempIndex;
+        int tempId = mThumbId[a];
+        mThumbId[a] = mThumbId[b];
+        mThumbId[b] = tempId;
+    }
+
+    public int getLeftIndex() {
+        return mIndex[0];
+    }
+
+    public int getRightIndex() {
+        return mIndex[mThumbCount - 1];
+    }
+
+    public int getIndex(int thumb) {
+        return mIndex[thumb];
+    }
+
+    /**
+     * Copy the indices of all thumbs, from left to right
+     */
+    public void getIndices(int[] out) {
+        System.arraycopy(mIndex, 0, out, 0, mThumbCount);
+    }
+
+    public float getThumbX(int thumb) {
+        return mThumbX[thumb];
+    }
+
+    /**
+     * Get the id of the thumb in a slot. Ids go from 0 to thumb count - 1 and stay with a thumb
+     * when it crosses others.
+     */
+    public int getThumbId(int thumb) {
+        return mThumbId[thumb];
+    }
+
+    /**
+     * Find the thumb under a touch.
+     * When stacked thumbs are hit, the one that can move toward the middle of the track wins.
+     *
+     * @param touchRadius Horizontal distance from a thumb center that still counts as a hit
+     * @return slot of the thumb or {@link #NO_THUMB}
+     */
+    public int hitTest(float x, float touchRadius) {
+        int after = lowerBound(x);
+        int before = after - 1;
+        float afterDistance = after < mThumbCount ? mThumbX[after] - x : Float.MAX_VALUE;
+        float beforeDistance = before >= 0 ? x - mThumbX[before] : Float.MAX_VALUE;
+
+        boolean inward = x >= mGeometry.getCenterX();
+        int thumb;
+        float distance;
+        if (afterDistance < beforeDistance || (afterDistance == beforeDistance && !inward)) {
+            thumb = after;
+            distance = afterDistance;
+        } else {
+            thumb = before;
+            distance = beforeDistance;
+        }
+        if (distance > touchRadius) {
+            return NO_THUMB;
+        }
+        // first or last thumb of a stack, whichever faces the middle
+        float stackX = mThumbX[thumb];
+        return inward ? lowerBound(stackX) : upperBound(stackX) - 1;
+    }
+
+    /**
+     * First slot with a position >= x
+     */
+    private int lowerBound(float x) {
+        int low = 0, high = mThumbCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mThumbX[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First slot with a position > x
+     */
+    private int upperBound(float x) {
+        int low = 0, high = mThumbCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mThumbX[mid] <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public void press(int thumb) {
+        mPressedThumb = thumb;
+    }
+
+    /**
+     * @return slot of the pressed thumb, it changes when the thumb crosses others
+     */
+    public int getPressedThumb() {
+        return mPressedThumb;
+    }
+
+    /**
+     * Move the pressed thumb. Positions outside of the track are ignored.
+     *
+     * @return a combination of the CHANGED_* flags, 0 if nothing changed
+     */
+    public int drag(float x) {
+        if (mPressedThumb == NO_THUMB || !mGeometry.contains(x)) {
+            return 0;
+        }
+        int changes = CHANGED_POSITION;
+        int thumb = mPressedThumb;
+        mThumbX[thumb] = x;
+
+        while (thumb > 0 && mThumbX[thumb - 1] > x) {
+            swap(thumb - 1, thumb);
+            thumb--;
+        }
+        while (thumb < mThumbCount - 1 && mThumbX[thumb + 1] < x) {
+            swap(thumb, thumb + 1);
+            thumb++;
+        }
+        if (thumb != mPressedThumb) {
+            mPressedThumb = thumb;
+            changes |= CHANGED_ORDER;
+        }
+
+        int index = mGeometry.pixelToIndex(x);
+        if (index != mIndex[thumb]) {
+            mIndex[thumb] = index;
+            changes |= CHANGED_INDEX;
+            if (mListener != null && !mBatching) {
+                mListener.onRangeChange(this, mIndex);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Hold back the listener calls of the following drags, typically the samples of one touch
+     * event, until {@link #endBatch()}
+     */
+    public void beginBatch() {
+        System.arraycopy(mIndex, 0, mBatchStartIndex, 0, mThumbCount);
+        mBatching = true;
+    }
+
+    /**
+     * Call the listener once if the indices differ from the ones at {@link #beginBatch()}
+     *
+     * @return true if the listener was called
+     */
+    public boolean endBatch() {
+        if (!mBatching) {
+            return false;
+        }
+        mBatching = false;
+        for (int i = 0; i < mThumbCount; i++) {
+            if (mIndex[i] != mBatchStartIndex[i]) {
+                if (mListener != null) {
+                    mListener.onRangeChange(this, mIndex);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Release the pressed thumb and snap it to its tick
+     *
+     * @return the released thumb or {@link #NO_THUMB}
+     */
+    public int release() {
+        int thumb = mPressedThumb;
+        if (thumb != NO_THUMB) {
+            mThumbX[thumb] = mGeometry.indexToPixel(mIndex[thumb]);
+            mPressedThumb = NO_THUMB;
+        }
+        return thumb;
+    }
+
+    public interface OnRangeChangeListener {
+        /**
+         * @param indices Index of every thumb from left to right. The array belongs to the model,
+         *                it must not be modified or kept after the call.
+         */
+        void onRangeChange(RangeModel model, int[] indices);
+    }
+}
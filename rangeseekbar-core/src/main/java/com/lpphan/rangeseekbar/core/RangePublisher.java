@@ -0,0 +1,259 @@
+package com.lpphan.rangeseekbar.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes range changes to subscribers running on executors of their choice, following the
+ * Reactive Streams Publisher/Subscriber contract with the range packed into a long.
+ * <p>
+ * Every subscription keeps only the latest range: while a subscriber is busy or has no demand,
+ * newer ranges replace the one waiting, so a slow consumer never piles up work. {@link #emit(long)}
+ * stores the range and hands a drain task to the executor at most once until the subscriber has
+ * caught up, emitting costs a few atomic operations and allocates nothing.
+ * <p>
+ * Signals to a subscriber are serialized on its executor. A subscriber running a long query can
+ * poll {@link Subscription#isStale()} to abandon work a newer range has superseded.
+ */
+public class RangePublisher {
+
+    private static final long NO_EVENT = -1;
+
+    private volatile SubscriptionImpl[] mSubscriptions = new SubscriptionImpl[0];
+    private volatile long mLatest = NO_EVENT;
+    private volatile boolean mCompleted;
+
+    /**
+     * @return left and right index packed into a non-negative long
+     */
+    public static long pack(int leftIndex, int rightIndex) {
+        return ((long) leftIndex << 32) | (rightIndex & 0xffffffffL);
+    }
+
+    public static int leftIndexOf(long event) {
+        return (int) (event >>> 32);
+    }
+
+    public static int rightIndexOf(long event) {
+        return (int) event;
+    }
+
+    /**
+     * Deliver the changes to a subscriber on an executor. The subscriber gets the latest range
+     * emitted before it subscribed first, once it requests it.
+     *
+     * @param executor Runs every signal to the subscriber, one at a time
+     */
+    public void subscribe(Subscriber subscriber, Executor executor) {
+        if (subscriber == null || executor == null) {
+            throw new NullPointerException("Subscriber and executor must not be null");
+        }
+        SubscriptionImpl subscription = new SubscriptionImpl(subscriber, executor);
+        synchronized (this) {
+            if (!mCompleted) {
+                SubscriptionImpl[] subscriptions = new SubscriptionImpl[mSubscriptions.length + 1];
+                System.arraycopy(mSubscriptions, 0, subscriptions, 0, mSubscriptions.length);
+                subscriptions[mSubscriptions.length] = subscription;
+                mSubscriptions = subscriptions;
+            }
+            // read after the subscription is visible: an emit that missed it stored its range
+            // before, a later one offered a newer range that must not be replaced
+            subscription.mPending.compareAndSet(NO_EVENT, mLatest);
+            subscription.mCompleting = mCompleted;
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * Publish a range, from any thread but one at a time
+     *
+     * @param event See {@link #pack(int, int)}
+     */
+    public void emit(long event) {
+        if (event < 0) {
+            throw new IllegalArgumentException("Indices must be >= 0");
+        }
+        if (mCompleted) {
+            return;
+        }
+        mLatest = event;
+        for (SubscriptionImpl subscription : mSubscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Complete every subscriber once it got the latest range, later emits are ignored
+     */
+    public void complete() {
+        SubscriptionImpl[] subscriptions;
+        synchronized (this) {
+            mCompleted = true;
+            subscriptions = mSubscriptions;
+            mSubscriptions = new SubscriptionImpl[0];
+        }
+        for (SubscriptionImpl subscription : subscriptions) {
+            subscription.mCompleting = true;
+            subscription.schedule();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return mSubscriptions.length;
+    }
+
+    private synchronized void remove(SubscriptionImpl subscription) {
+        SubscriptionImpl[] subscriptions = mSubscriptions;
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i] == subscription) {
+                SubscriptionImpl[] remaining = new SubscriptionImpl[subscriptions.length - 1];
+                System.arraycopy(subscriptions, 0, remaining, 0, i);
+                System.arraycopy(subscriptions, i + 1, remaining, i, remaining.length - i);
+                mSubscriptions = remaining;
+                return;
+            }
+        }
+    }
+
+    public interface Subscriber {
+        /**
+         * First signal, nothing is delivered before {@link Subscription#request(long)}
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * @param event Latest range, decode with {@link #leftIndexOf(long)} and {@link #rightIndexOf(long)}
+         */
+        void onNext(long event);
+
+        /**
+         * Called for a request of less than one range, the subscription is cancelled
+         */
+        void onError(Throwable error);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+        /**
+         * Allow n more ranges to be delivered, Long.MAX_VALUE for no limit
+         */
+        void request(long n);
+
+        /**
+         * Stop the deliveries, a range being delivered may still arrive
+         */
+        void cancel();
+
+        /**
+         * @return true when a newer range is waiting or the subscription was cancelled, work for
+         * the range being handled can be abandoned
+         */
+        boolean isStale();
+    }
+
+    private class SubscriptionImpl implements Subscription, Runnable {
+
+        private final Subscriber mSubscriber;
+        private final Executor mExecutor;
+        private final AtomicLong mPending = new AtomicLong(NO_EVENT);
+        private final AtomicLong mRequested = new AtomicLong();
+        private final AtomicInteger mWorkInProgress = new AtomicInteger();
+        private volatile boolean mCancelled;
+        private volatile boolean mCompleting;
+        private volatile Throwable mError;
+        // drain only
+        private boolean mSubscribed;
+        private boolean mDone;
+
+        SubscriptionImpl(Subscriber subscriber, Executor executor) {
+            mSubscriber = subscriber;
+            mExecutor = executor;
+        }
+
+        void offer(long event) {
+            mPending.set(event);
+            if (mRequested.get() > 0) {
+                schedule();
+            }
+        }
+
+        void schedule() {
+            if (mWorkInProgress.getAndIncrement() == 0) {
+                mExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                mError = new IllegalArgumentException("Request must be > 0, was " + n);
+                schedule();
+                return;
+            }
+            long requested, next;
+            do {
+                requested = mRequested.get();
+                next = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+            } while (!mRequested.compareAndSet(requested, next));
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (!mCancelled) {
+                mCancelled = true;
+                mPending.set(NO_EVENT);
+                remove(this);
+            }
+        }
+
+        @Override
+        public boolean isStale() {
+            return mCancelled || mPending.get() != NO_EVENT;
+        }
+
+        /**
+         * Drain on the executor, until no signal came in meanwhile
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = mWorkInProgress.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (!mSubscribed) {
+                mSubscribed = true;
+                mSubscriber.onSubscribe(this);
+            }
+            if (mDone) {
+                return;
+            }
+            if (mError != null && !mCancelled) {
+                mDone = true;
+                cancel();
+                mSubscriber.onError(mError);
+                return;
+            }
+            while (!mCancelled && mRequested.get() > 0) {
+                long event = mPending.getAndSet(NO_EVENT);
+                if (event == NO_EVENT) {
+                    break;
+                }
+                if (mRequested.get() != Long.MAX_VALUE) {
+                    mRequested.decrementAndGet();
+                }
+                mSubscriber.onNext(event);
+            }
+            if (mCompleting && !mCancelled && mPending.get() == NO_EVENT) {
+                mDone = true;
+                mSubscriber.onComplete();
+            }
+        }
+    }
+}
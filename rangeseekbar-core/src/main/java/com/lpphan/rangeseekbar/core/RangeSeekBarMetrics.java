@@ -0,0 +1,34 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Receives the cost of a RangeSeekBar as it runs, all calls are made on the UI thread.
+ * Without a metrics hook the bar does not even read the clock.
+ *
+ * @see AggregatingMetrics
+ */
+public interface RangeSeekBarMetrics {
+
+    /**
+     * @param startNanos     System.nanoTime() when onDraw started
+     * @param durationNanos Time spent in onDraw
+     */
+    void onDraw(long startNanos, long durationNanos);
+
+    void onTouchEvent(long durationNanos);
+
+    /**
+     * @param durationNanos Time spent in the range change listeners and the filter
+     */
+    void onListenerCall(long durationNanos);
+
+    void onInvalidate();
+
+    void onAnimationFrame(long frameTimeNanos);
+
+    /**
+     * A drag or fling started, at System.nanoTime()
+     */
+    void onTrackingStart(long timeNanos);
+
+    void onTrackingStop(long timeNanos);
+}
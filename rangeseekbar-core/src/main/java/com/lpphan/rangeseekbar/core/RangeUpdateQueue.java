@@ -0,0 +1,276 @@
+package com.lpphan.rangeseekbar.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Range changes requested from any thread, applied to a {@link RangeModel} by the thread owning it.
+ * <p>
+ * Requests are merged into one immutable pending update, swapped in with a compare-and-set, so any
+ * number of requests between two frames are applied at once. Each request returns whether it made
+ * the update pending: only then the owner has to schedule {@link #apply(RangeModel)}.
+ * Requests are checked against the latest tick count and thumb count, pending or published, and
+ * tick counts against the scale set with {@link #setScale(TickScale)}.
+ * <p>
+ * Single left and right indices are applied in the order they were requested, on top of the
+ * indices of the model, with {@link RangeModel#setIndex(int, int)} semantics: setting the left then
+ * the right index gives exactly that range. All indices go to the model in one
+ * {@link RangeModel#setIndices(int[])}.
+ */
+public class RangeUpdateQueue {
+
+    public static final int APPLIED_THUMB_COUNT = 1;
+    public static final int APPLIED_TICK_COUNT = 1 << 1;
+    public static final int APPLIED_INDICES = 1 << 2;
+    /**
+     * The tick count was dropped, the scale set on the owner thread after the request rejects it
+     */
+    public static final int DROPPED_TICK_COUNT = 1 << 3;
+    /**
+     * The indices set for all thumbs were dropped, the thumb count changed on the owner thread
+     * after the request
+     */
+    public static final int DROPPED_INDICES = 1 << 4;
+
+    private static final int UNSET = -1;
+
+    private final AtomicRangeState mState;
+    private final AtomicReference<Update> mPending = new AtomicReference<Update>();
+    private volatile TickScale mScale = TickScale.LINEAR;
+
+    /**
+     * @param state Published state of the model the updates are applied to
+     */
+    public RangeUpdateQueue(AtomicRangeState state) {
+        mState = state;
+    }
+
+    /**
+     * Scale of the model, set on the owner thread together with the one of its geometry
+     */
+    public void setScale(TickScale scale) {
+        mScale = scale;
+    }
+
+    public boolean setThumbCount(int thumbCount) {
+        if (thumbCount < RangeModel.MIN_THUMB_COUNT || thumbCount > RangeModel.MAX_THUMB_COUNT) {
+            throw new IllegalArgumentException("Thumb count must be in [" + RangeModel.MIN_THUMB_COUNT
+                    + ", " + RangeModel.MAX_THUMB_COUNT + "]");
+        }
+        while (true) {
+            Update pending = mPending.get();
+            // the model spreads the thumbs again, earlier indices are dropped
+            Update update = new Update(thumbCount, pending == null ? UNSET : pending.tickCount,
+                    null, UNSET, UNSET, false);
+            if (mPending.compareAndSet(pending, update)) {
+                return pending == null;
+            }
+        }
+    }
+
+    public boolean setTickCount(int tickCount) {
+        if (tickCount < 2) {
+            throw new IllegalArgumentException("Tick count must be >= 2");
+        }
+        if (!mScale.acceptsTickCount(tickCount)) {
+            throw new IllegalArgumentException("Scale does not accept " + tickCount + " ticks");
+        }
+        while (true) {
+            Update pending = mPending.get();
+            Update update = pending == null
+                    ? new Update(UNSET, tickCount, null, UNSET, UNSET, false)
+                    : new Update(pending.thumbCount, tickCount, pending.indices, pending.leftIndex,
+                    pending.rightIndex, pending.leftLast);
+            if (mPending.compareAndSet(pending, update)) {
+                return pending == null;
+            }
+        }
+    }
+
+    public boolean setLeftIndex(int leftIndex) {
+        while (true) {
+            Update pending = mPending.get();
+            checkIndex(pending, leftIndex);
+            Update update = pending == null
+                    ? new Update(UNSET, UNSET, null, leftIndex, UNSET, true)
+                    : new Update(pending.thumbCount, pending.tickCount, pending.indices, leftIndex,
+                    pending.rightIndex, true);
+            if (mPending.compareAndSet(pending, update)) {
+                return pending == null;
+            }
+        }
+    }
+
+    public boolean setRightIndex(int rightIndex) {
+        while (true) {
+            Update pending = mPending.get();
+            checkIndex(pending, rightIndex);
+            Update update = pending == null
+                    ? new Update(UNSET, UNSET, null, UNSET, rightIndex, false)
+                    : new Update(pending.thumbCount, pending.tickCount, pending.indices, pending.leftIndex,
+                    rightIndex, false);
+            if (mPending.compareAndSet(pending, update)) {
+                return pending == null;
+            }
+        }
+    }
+
+    /**
+     * Set the left and the right index in one request
+     */
+    public boolean setRange(int leftIndex, int rightIndex) {
+        if (leftIndex > rightIndex) {
+            throw new IllegalArgumentException("Left index must be <= right index");
+        }
+        while (true) {
+            Update pending = mPending.get();
+            checkIndex(pending, leftIndex);
+            checkIndex(pending, rightIndex);
+            Update update = pending == null
+                    ? new Update(UNSET, UNSET, null, leftIndex, rightIndex, false)
+                    : new Update(pending.thumbCount, pending.tickCount, pending.indices, leftIndex,
+                    rightIndex, false);
+            if (mPending.compareAndSet(pending, update)) {
+                return pending == null;
+            }
+        }
+    }
+
+    /**
+     * @param indices One index per thumb, copied
+     */
+    public boolean setIndices(int[] indices) {
+        return setIndices(indices, indices.length);
+    }
+
+    /**
+     * @param count Number of indices to read from the array, copied so {@link #apply(RangeModel)}
+     *              can clamp and sort them in place
+     */
+    public boolean setIndices(int[] indices, int count) {
+        int[] copy = new int[count];
+        System.arraycopy(indices, 0, copy, 0, count);
+        while (true) {
+            Update pending = mPending.get();
+            int thumbCount = pending != null && pending.thumbCount != UNSET
+                    ? pending.thumbCount : mState.getThumbCount();
+            if (copy.length != thumbCount) {
+                throw new IllegalArgumentException("Expected " + thumbCount + " indices");
+            }
+            for (int index : copy) {
+                checkIndex(pending, index);
+            }
+            // set indices replace the single ones requested before
+            Update update = new Update(pending == null ? UNSET : pending.thumbCount,
+                    pending == null ? UNSET : pending.tickCount, copy, UNSET, UNSET, false);
+            if (mPending.compareAndSet(pending, update)) {
+                return pending == null;
+            }
+        }
+    }
+
+    private void checkIndex(Update pending, int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Index must be >= 0");
+        }
+        int tickCount = pending != null && pending.tickCount != UNSET ? pending.tickCount : mState.getTickCount();
+        if (index >= tickCount) {
+            throw new IllegalArgumentException("Index must be < tick count");
+        }
+    }
+
+    public boolean hasPending() {
+        return mPending.get() != null;
+    }
+
+    public boolean hasPendingThumbCount() {
+        Update pending = mPending.get();
+        return pending != null && pending.thumbCount != UNSET;
+    }
+
+    /**
+     * Apply the pending update, on the thread owning the model. Indices that became invalid since
+     * they were requested, because the model changed on its own thread, are clamped to the tick
+     * count. Indices set for all thumbs no longer matching the thumb count are dropped with
+     * {@link #DROPPED_INDICES}, and a tick count the scale no longer accepts with
+     * {@link #DROPPED_TICK_COUNT}; the rest of the update still applies. Requests checked against
+     * a pending thumb count never mismatch it, only changes made to the model directly can.
+     *
+     * @return the APPLIED_* and DROPPED_* flags, 0 if nothing was pending
+     */
+    public int apply(RangeModel model) {
+        Update update = mPending.getAndSet(null);
+        if (update == null) {
+            return 0;
+        }
+        int applied = 0;
+        if (update.thumbCount != UNSET) {
+            model.setThumbCount(update.thumbCount);
+            applied |= APPLIED_THUMB_COUNT;
+        }
+        if (update.tickCount != UNSET && update.tickCount != model.getTickCount()) {
+            if (model.getGeometry().getScale().acceptsTickCount(update.tickCount)) {
+                model.setTickCount(update.tickCount);
+                applied |= APPLIED_TICK_COUNT;
+            } else {
+                applied |= DROPPED_TICK_COUNT;
+            }
+        }
+        int[] indices = null;
+        int thumbCount = model.getThumbCount();
+        TrackGeometry geometry = model.getGeometry();
+        if (update.indices != null) {
+            if (update.indices.length == thumbCount) {
+                indices = update.indices;
+                for (int i = 0; i < thumbCount; i++) {
+                    indices[i] = geometry.clampIndex(indices[i]);
+                }
+                Arrays.sort(indices);
+            } else {
+                applied |= DROPPED_INDICES;
+            }
+        }
+        if (indices == null && (update.leftIndex != UNSET || update.rightIndex != UNSET)) {
+            indices = new int[thumbCount];
+            model.getIndices(indices);
+        }
+        if (indices == null) {
+            return applied;
+        }
+        if (update.leftLast) {
+            pushIndex(indices, thumbCount - 1, update.rightIndex, geometry);
+            pushIndex(indices, 0, update.leftIndex, geometry);
+        } else {
+            pushIndex(indices, 0, update.leftIndex, geometry);
+            pushIndex(indices, thumbCount - 1, update.rightIndex, geometry);
+        }
+        model.setIndices(indices);
+        applied |= APPLIED_INDICES;
+        return applied;
+    }
+
+    private static void pushIndex(int[] indices, int slot, int index, TrackGeometry geometry) {
+        if (index != UNSET) {
+            RangeModel.pushIndex(indices, indices.length, slot, geometry.clampIndex(index));
+        }
+    }
+
+    private static final class Update {
+        final int thumbCount;
+        final int tickCount;
+        final int[] indices;
+        final int leftIndex;
+        final int rightIndex;
+        // the left index was requested after the right one
+        final boolean leftLast;
+
+        Update(int thumbCount, int tickCount, int[] indices, int leftIndex, int rightIndex, boolean leftLast) {
+            this.thumbCount = thumbCount;
+            this.tickCount = tickCount;
+            this.indices = indices;
+            this.leftIndex = leftIndex;
+            this.rightIndex = rightIndex;
+            this.leftLast = leftLast;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * One vsync shared by many {@link FrameClock} users, such as the animation schedulers and the
+ * dispatchers of several bars rendered on one surface.
+ * <p>
+ * Every {@link #newClient()} behaves like a FrameClock of its own. The first client posting a
+ * callback asks the host for a frame, the host calls {@link #doFrame(long)} which runs the
+ * callbacks posted before it. Clients must be used on the thread running the frames; nothing is
+ * allocated per frame once the pending list has grown to the number of clients.
+ */
+public class SharedFrameClock {
+
+    private final Host mHost;
+    private Client[] mPending = new Client[4];
+    private Client[] mRunning = new Client[4];
+    private int mPendingCount;
+
+    public SharedFrameClock(Host host) {
+        mHost = host;
+    }
+
+    public FrameClock newClient() {
+        return new Client();
+    }
+
+    public boolean hasPendingCallbacks() {
+        return mPendingCount > 0;
+    }
+
+    /**
+     * Run the callbacks posted before this frame, callbacks they post run on the next one
+     */
+    public void doFrame(long frameTimeNanos) {
+        Client[] running = mPending;
+        int count = mPendingCount;
+        mPending = mRunning;
+        mRunning = running;
+        mPendingCount = 0;
+        for (int i = 0; i < count; i++) {
+            Client client = running[i];
+            running[i] = null;
+            client.mQueued = false;
+            FrameClock.Callback callback = client.mCallback;
+            client.mCallback = null;
+            if (callback != null) {
+                callback.doFrame(frameTimeNanos);
+            }
+        }
+    }
+
+    private void enqueue(Client client) {
+        if (mPendingCount == mPending.length) {
+            Client[] pending = new Client[mPendingCount * 2];
+            System.arraycopy(mPending, 0, pending, 0, mPendingCount);
+            mPending = pending;
+            mRunning = new Client[pending.length];
+        }
+        mPending[mPendingCount++] = client;
+        client.mQueued = true;
+        if (mPendingCount == 1) {
+            mHost.requestFrame();
+        }
+    }
+
+    public interface Host {
+        /**
+         * Call {@link #doFrame(long)} on the next frame
+         */
+        void requestFrame();
+
+        long nanoTime();
+    }
+
+    private class Client implements FrameClock {
+        FrameClock.Callback mCallback;
+        boolean mQueued;
+
+        @Override
+        public void postFrameCallback(Callback callback) {
+            mCallback = callback;
+            if (!mQueued) {
+                enqueue(this);
+            }
+        }
+
+        @Override
+        public void removeFrameCallback(Callback callback) {
+            // the slot stays queued and runs empty
+            if (mCallback == callback) {
+                mCallback = null;
+            }
+        }
+
+        @Override
+        public long nanoTime() {
+            return mHost.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Keeps the items whose key is inside a range, reporting only the items entering and leaving the
+ * selection when the range moves.
+ * <p>
+ * Items are sorted by key once, the selection is then the window between two cursors in the sorted
+ * arrays. Moving a bound gallops the matching cursor from its current position, so an update costs
+ * O(log delta + delta) instead of O(n): a drag can filter a large catalog live.
+ * Entering and leaving items are reported as slices of the sorted id array, nothing is copied.
+ */
+public class SortedWindowFilter {
+
+    private final long[] mKeys;
+    private final int[] mIds;
+
+    private int mStart, mEnd;
+    private boolean mHasRange;
+    private OnSelectionChangeListener mListener;
+
+    /**
+     * @param keys Key of every item, in the tick domain of the bound RangeSeekBar. Not modified.
+     * @param ids  Id of every item, reported to the listener. Not modified.
+     */
+    public SortedWindowFilter(long[] keys, int[] ids) {
+        if (keys.length != ids.length) {
+            throw new IllegalArgumentException("Keys and ids must have the same length");
+        }
+        mKeys = keys.clone();
+        mIds = ids.clone();
+        sort(mKeys, mIds);
+    }
+
+    public void setOnSelectionChangeListener(OnSelectionChangeListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Select the items with minKey <= key <= maxKey. The first call reports the whole selection
+     * as entering.
+     */
+    public void setRange(long minKey, long maxKey) {
+        int start, end;
+        if (minKey > maxKey) {
+            start = end = 0;
+        } else {
+            start = gallopLowerBound(minKey, mHasRange ? mStart : 0);
+            end = maxKey == Long.MAX_VALUE ? mKeys.length : gallopLowerBound(maxKey + 1, mHasRange ? mEnd : 0);
+        }
+
+        int oldStart = mHasRange ? mStart : 0;
+        int oldEnd = mHasRange ? mEnd : 0;
+        mStart = start;
+        mEnd = end;
+        mHasRange = true;
+
+        if (mListener != null) {
+            // [oldStart, oldEnd) minus [start, end), then [start, end) minus [oldStart, oldEnd)
+            report(false, oldStart, Math.min(oldEnd, mStart));
+            report(false, Math.max(oldStart, mEnd), oldEnd);
+            report(true, mStart, Math.min(mEnd, oldStart));
+            report(true, Math.max(mStart, oldEnd), mEnd);
+        }
+    }
+
+    private void report(boolean entered, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        if (entered) {
+            mListener.onEnter(mIds, from, to);
+        } else {
+            mListener.onExit(mIds, from, to);
+        }
+    }
+
+    public int getItemCount() {
+        return mIds.length;
+    }
+
+    public int getSelectedCount() {
+        return mEnd - mStart;
+    }
+
+    /**
+     * The selection is ids[getSelectionStart(), getSelectionEnd()) of the sorted ids
+     */
+    public int getSelectionStart() {
+        return mStart;
+    }
+
+    public int getSelectionEnd() {
+        return mEnd;
+    }
+
+    /**
+     * @param position Position in key order
+     */
+    public int getId(int position) {
+        return mIds[position];
+    }
+
+    public long getKey(int position) {
+        return mKeys[position];
+    }
+
+    /**
+     * First position with a key >= key, searched from a hint by doubling steps
+     */
+    private int gallopLowerBound(long key, int hint) {
+        int n = mKeys.length;
+        if (hint < n && mKeys[hint] < key) {
+            // search right of the hint
+            int low = hint + 1;
+            int step = 1;
+            int high = low;
+            while (high < n && mKeys[high] < key) {
+                low = high + 1;
+                high = hint + (step <<= 1);
+            }
+            return lowerBound(key, low, Math.min(high, n));
+        }
+        // search left of the hint
+        int high = hint;
+        int step = 1;
+        int low = hint - step;
+        while (low > 0 && mKeys[low] >= key) {
+            high = low;
+            low = hint - (step <<= 1);
+        }
+        return lowerBound(key, Math.max(low, 0), high);
+    }
+
+    private int lowerBound(long key, int from, int to) {
+        int low = from, high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mKeys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Stable merge sort of the keys, moving the ids along
+     */
+    private static void sort(long[] keys, int[] ids) {
+        int n = keys.length;
+        long[] keyBuffer = new long[n];
+        int[] idBuffer = new int[n];
+        for (int width = 1; width < n; width <<= 1) {
+            for (int left = 0; left < n; left += width << 1) {
+                int middle = Math.min(left + width, n);
+                int right = Math.min(left + (width << 1), n);
+                int i = left, j = middle, k = left;
+                while (i < middle && j < right) {
+                    if (keys[j] < keys[i]) {
+                        keyBuffer[k] = keys[j];
+                        idBuffer[k++] = ids[j++];
+                    } else {
+                        keyBuffer[k] = keys[i];
+                        idBuffer[k++] = ids[i++];
+                    }
+                }
+                while (i < middle) {
+                    keyBuffer[k] = keys[i];
+                    idBuffer[k++] = ids[i++];
+                }
+                while (j < right) {
+                    keyBuffer[k] = keys[j];
+                    idBuffer[k++] = ids[j++];
+                }
+            }
+            System.arraycopy(keyBuffer, 0, keys, 0, n);
+            System.arraycopy(idBuffer, 0, ids, 0, n);
+        }
+    }
+
+    public interface OnSelectionChangeListener {
+        /**
+         * Items ids[from, to) entered the selection. The array must not be modified.
+         */
+        void onEnter(int[] ids, int from, int to);
+
+        /**
+         * Items ids[from, to) left the selection. The array must not be modified.
+         */
+        void onExit(int[] ids, int from, int to);
+    }
+}
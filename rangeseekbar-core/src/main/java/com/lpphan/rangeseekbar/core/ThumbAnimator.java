@@ -0,0 +1,181 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * The animations of one thumb: the ripple and the radius change on press, the radius change
+ * and the snap to the nearest tick on release.
+ * <p>
+ * Every animation starts on the first frame it sees, so all timing comes from the frame clock.
+ */
+public class ThumbAnimator implements AnimationScheduler.Animation {
+
+    public static final long RIPPLE_DURATION = 500 * 1000000L;
+    public static final long RADIUS_DURATION = 150 * 1000000L;
+    public static final long SNAP_DURATION = 150 * 1000000L;
+
+    public static final float RIPPLE_SCALE = 2.5f;
+    public static final int RIPPLE_MAX_ALPHA = 127;
+
+    private final Track mRipple = new Track(RIPPLE_DURATION);
+    private final Track mRadius = new Track(RADIUS_DURATION);
+    private final Track mSnap = new Track(SNAP_DURATION);
+
+    private float mNormalRadius;
+    private float mPressedRadius;
+    private boolean mPressed;
+    private float mRadiusFrom;
+    private float mSnapFromX;
+
+    public ThumbAnimator(float normalRadius, float pressedRadius) {
+        mNormalRadius = normalRadius;
+        mPressedRadius = pressedRadius;
+    }
+
+    public void setRadii(float normalRadius, float pressedRadius) {
+        mNormalRadius = normalRadius;
+        mPressedRadius = pressedRadius;
+    }
+
+    /**
+     * Start the ripple and grow to the pressed radius
+     */
+    public void press() {
+        mRadiusFrom = getRadius();
+        mPressed = true;
+        mRadius.start();
+        mRipple.start();
+        mSnap.stop();
+    }
+
+    /**
+     * Shrink back to the normal radius and glide from the release position to the resting one
+     *
+     * @param fromX Position the thumb was drawn at when released
+     */
+    public void release(float fromX) {
+        mRadiusFrom = getRadius();
+        mPressed = false;
+        mRadius.start();
+        mSnapFromX = fromX;
+        mSnap.start();
+    }
+
+    /**
+     * Shrink back to the normal radius, the thumb keeps following its resting position.
+     * Used when the thumb is flung instead of snapped.
+     */
+    public void release() {
+        mRadiusFrom = getRadius();
+        mPressed = false;
+        mRadius.start();
+        mSnap.stop();
+    }
+
+    @Override
+    public boolean onFrame(long frameTimeNanos) {
+        boolean running = mRipple.step(frameTimeNanos);
+        running |= mRadius.step(frameTimeNanos);
+        running |= mSnap.step(frameTimeNanos);
+        return running;
+    }
+
+    public boolean isAnimating() {
+        return mRipple.isRunning() || mRadius.isRunning() || mSnap.isRunning();
+    }
+
+    public boolean isPressed() {
+        return mPressed;
+    }
+
+    public float getRadius() {
+        float target = mPressed ? mPressedRadius : mNormalRadius;
+        if (!mRadius.isRunning()) {
+            return target;
+        }
+        return mRadiusFrom + (target - mRadiusFrom) * decelerate(mRadius.getFraction());
+    }
+
+    /**
+     * @param restingX Position of the thumb once the snap animation is over
+     */
+    public float getX(float restingX) {
+        if (!mSnap.isRunning()) {
+            return restingX;
+        }
+        return mSnapFromX + (restingX - mSnapFromX) * decelerate(mSnap.getFraction());
+    }
+
+    public boolean isRippleVisible() {
+        return mRipple.isRunning();
+    }
+
+    /**
+     * @return eased progress of the ripple, from 0 when pressed to 1 when faded out
+     */
+    public float getRippleInterpolation() {
+        return decelerate(mRipple.getFraction());
+    }
+
+    public float getRippleRadius() {
+        float interpolation = getRippleInterpolation();
+        return mPressedRadius * (1 - interpolation) + mPressedRadius * RIPPLE_SCALE * interpolation;
+    }
+
+    public int getRippleAlpha() {
+        return (int) (RIPPLE_MAX_ALPHA * (1 - getRippleInterpolation()));
+    }
+
+    /**
+     * Same curve as android.view.animation.DecelerateInterpolator with its default factor
+     */
+    static float decelerate(float input) {
+        return 1f - (1f - input) * (1f - input);
+    }
+
+    static final class Track {
+        private final long mDuration;
+        private boolean mRunning;
+        private boolean mStarted;
+        private long mStartTime;
+        private float mFraction;
+
+        Track(long duration) {
+            mDuration = duration;
+        }
+
+        void start() {
+            mRunning = true;
+            mStarted = false;
+            mFraction = 0;
+        }
+
+        void stop() {
+            mRunning = false;
+        }
+
+        boolean isRunning() {
+            return mRunning;
+        }
+
+        float getFraction() {
+            return mFraction;
+        }
+
+        boolean step(long frameTimeNanos) {
+            if (!mRunning) {
+                return false;
+            }
+            if (!mStarted) {
+                mStarted = true;
+                mStartTime = frameTimeNanos;
+            }
+            long elapsed = frameTimeNanos - mStartTime;
+            if (elapsed >= mDuration) {
+                mFraction = 1;
+                mRunning = false;
+            } else {
+                mFraction = elapsed / (float) mDuration;
+            }
+            return mRunning;
+        }
+    }
+}
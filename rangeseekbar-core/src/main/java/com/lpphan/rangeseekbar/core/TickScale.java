@@ -0,0 +1,133 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Where the ticks sit along the track: every tick gets a fraction of the track length, from 0 for
+ * the first tick to 1 for the last one, strictly increasing in between.
+ * <p>
+ * {@link TrackGeometry} asks a non-linear scale for the fractions of all ticks once, when the scale
+ * or the tick count changes, and converts with that table afterwards.
+ */
+public abstract class TickScale {
+
+    /**
+     * Evenly spaced ticks, computed without a table
+     */
+    public static final TickScale LINEAR = new TickScale() {
+        @Override
+        public void computeFractions(double[] fractions) {
+            int last = fractions.length - 1;
+            for (int i = 0; i <= last; i++) {
+                fractions[i] = (double) i / last;
+            }
+        }
+    };
+
+    /**
+     * Ticks stand for evenly spaced values from minValue to maxValue, placed on a logarithmic axis:
+     * small values get as much room as large ones, like prices from $1 to $100,000.
+     */
+    public static TickScale log(final double minValue, final double maxValue) {
+        if (!(minValue > 0) || !(maxValue > minValue)) {
+            throw new IllegalArgumentException("Log scale needs 0 < minValue < maxValue");
+        }
+        return new TickScale() {
+            @Override
+            public void computeFractions(double[] fractions) {
+                int last = fractions.length - 1;
+                double logRange = Math.log(maxValue / minValue);
+                double step = (maxValue - minValue) / last;
+                for (int i = 0; i < last; i++) {
+                    fractions[i] = Math.log((minValue + i * step) / minValue) / logRange;
+                }
+                fractions[last] = 1;
+            }
+        };
+    }
+
+    /**
+     * Piecewise linear scale through breakpoints, both arrays going from 0 to 1
+     *
+     * @param tickFractions  Position of each breakpoint in the tick domain, 0 is the first tick
+     * @param trackFractions Position of each breakpoint along the track, strictly increasing
+     */
+    public static TickScale piecewise(double[] tickFractions, double[] trackFractions) {
+        final double[] ticks = tickFractions.clone();
+        final double[] track = trackFractions.clone();
+        if (ticks.length != track.length || ticks.length < 2) {
+            throw new IllegalArgumentException("Expected two arrays of at least 2 breakpoints");
+        }
+        if (ticks[0] != 0 || ticks[ticks.length - 1] != 1 || track[0] != 0 || track[track.length - 1] != 1) {
+            throw new IllegalArgumentException("Breakpoints must go from 0 to 1");
+        }
+        for (int i = 1; i < ticks.length; i++) {
+            if (!(ticks[i] > ticks[i - 1]) || !(track[i] > track[i - 1])) {
+                throw new IllegalArgumentException("Breakpoints must be strictly increasing");
+            }
+        }
+        return new TickScale() {
+            @Override
+            public void computeFractions(double[] fractions) {
+                int last = fractions.length - 1;
+                int segment = 0;
+                for (int i = 0; i <= last; i++) {
+                    double tick = (double) i / last;
+                    while (segment < ticks.length - 2 && tick > ticks[segment + 1]) {
+                        segment++;
+                    }
+                    double t = (tick - ticks[segment]) / (ticks[segment + 1] - ticks[segment]);
+                    fractions[i] = track[segment] + t * (track[segment + 1] - track[segment]);
+                }
+            }
+        };
+    }
+
+    /**
+     * One tick per value, placed proportionally to the values. The tick count must be the number of
+     * values.
+     *
+     * @param values Strictly increasing
+     */
+    public static TickScale values(double[] values) {
+        final double[] copy = values.clone();
+        if (copy.length < 2) {
+            throw new IllegalArgumentException("Expected at least 2 values");
+        }
+        for (int i = 1; i < copy.length; i++) {
+            if (!(copy[i] > copy[i - 1])) {
+                throw new IllegalArgumentException("Values must be strictly increasing");
+            }
+        }
+        return new TickScale() {
+            @Override
+            public boolean acceptsTickCount(int tickCount) {
+                return tickCount == copy.length;
+            }
+
+            @Override
+            public void computeFractions(double[] fractions) {
+                if (fractions.length != copy.length) {
+                    throw new IllegalArgumentException("Scale has " + copy.length + " values, not "
+                            + fractions.length + " ticks");
+                }
+                double first = copy[0];
+                double range = copy[copy.length - 1] - first;
+                for (int i = 0; i < copy.length; i++) {
+                    fractions[i] = (copy[i] - first) / range;
+                }
+            }
+        };
+    }
+
+    /**
+     * Whether {@link #computeFractions(double[])} can place this many ticks, checked before a tick
+     * count is queued
+     */
+    public boolean acceptsTickCount(int tickCount) {
+        return tickCount >= 2;
+    }
+
+    /**
+     * @param fractions Receives the fraction of every tick, one slot per tick
+     */
+    public abstract void computeFractions(double[] fractions);
+}
@@ -0,0 +1,118 @@
+package com.lpphan.rangeseekbar.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Touch samples handed from the thread receiving input to a render thread, without locks.
+ * <p>
+ * A single-producer single-consumer ring of primitive arrays: the producer writes a slot then
+ * publishes the new tail, the consumer reads up to the published tail then publishes the new head,
+ * so neither ever waits and nothing is allocated after construction. When the ring is full, because
+ * the consumer stalled, {@link #offer} refuses the sample and counts it as dropped.
+ */
+public class TouchEventQueue {
+
+    private final int mMask;
+    private final int[] mActions;
+    private final long[] mTimes;
+    private final float[] mX;
+    private final float[] mY;
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+
+    // consumer side, the sample last read by poll()
+    private int mAction;
+    private long mTime;
+    private float mCurrentX;
+    private float mCurrentY;
+
+    /**
+     * @param capacity Rounded up to a power of two
+     */
+    public TouchEventQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be in [1, 2^30]");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mMask = size - 1;
+        mActions = new int[size];
+        mTimes = new long[size];
+        mX = new float[size];
+        mY = new float[size];
+    }
+
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Producer side
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(int action, long timeNanos, float x, float y) {
+        long tail = mTail.get();
+        if (tail - mHead.get() > mMask) {
+            mDropped.incrementAndGet();
+            return false;
+        }
+        int slot = (int) tail & mMask;
+        mActions[slot] = action;
+        mTimes[slot] = timeNanos;
+        mX[slot] = x;
+        mY[slot] = y;
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side: read the oldest sample, then get it with {@link #getAction()}, {@link #getTime()},
+     * {@link #getX()} and {@link #getY()}
+     *
+     * @return false if the queue is empty
+     */
+    public boolean poll() {
+        long head = mHead.get();
+        if (head == mTail.get()) {
+            return false;
+        }
+        int slot = (int) head & mMask;
+        mAction = mActions[slot];
+        mTime = mTimes[slot];
+        mCurrentX = mX[slot];
+        mCurrentY = mY[slot];
+        mHead.lazySet(head + 1);
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return mHead.get() == mTail.get();
+    }
+
+    public int getAction() {
+        return mAction;
+    }
+
+    public long getTime() {
+        return mTime;
+    }
+
+    public float getX() {
+        return mCurrentX;
+    }
+
+    public float getY() {
+        return mCurrentY;
+    }
+
+    /**
+     * Samples refused because the queue was full
+     */
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+}
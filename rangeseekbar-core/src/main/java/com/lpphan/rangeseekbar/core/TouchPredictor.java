@@ -0,0 +1,148 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Extrapolates the horizontal position of a drag a few milliseconds ahead, to draw the thumb where
+ * the finger will be when the frame reaches the screen instead of where it was.
+ * <p>
+ * A constant velocity Kalman filter: every sample corrects the estimated position and velocity
+ * according to how much the model and the digitizer are trusted, the prediction moves the estimate
+ * along its velocity. Fewer than {@link #MIN_SAMPLES} samples, or a pause longer than
+ * {@link #setMaxSampleGap(long)}, give no prediction. The prediction is capped to
+ * {@link #setMaxDistance(float)} from the last sample, so overshoot on sudden stops stays small.
+ * <p>
+ * The defaults suit a 60 Hz display and a 120 Hz digitizer, tune them per device. Only primitive
+ * fields are used, nothing is allocated.
+ */
+public class TouchPredictor {
+
+    public static final int MIN_SAMPLES = 3;
+
+    public static final long DEFAULT_HORIZON_NANOS = 16 * 1000000L;
+    public static final float DEFAULT_ACCELERATION_NOISE = 20000;
+    public static final float DEFAULT_MEASUREMENT_NOISE = 1;
+    public static final float DEFAULT_MAX_DISTANCE = 48;
+    public static final long DEFAULT_MAX_SAMPLE_GAP_NANOS = 50 * 1000000L;
+
+    private long mHorizonNanos = DEFAULT_HORIZON_NANOS;
+    private double mAccelerationNoise = DEFAULT_ACCELERATION_NOISE;
+    private double mMeasurementNoise = DEFAULT_MEASUREMENT_NOISE;
+    private float mMaxDistance = DEFAULT_MAX_DISTANCE;
+    private long mMaxSampleGapNanos = DEFAULT_MAX_SAMPLE_GAP_NANOS;
+
+    private int mSampleCount;
+    private long mLastTime;
+    private float mLastX;
+    // state in pixels and pixels per second, covariance of position and velocity
+    private double mPosition;
+    private double mVelocity;
+    private double mP00, mP01, mP11;
+
+    /**
+     * @param horizonNanos How far ahead of the latest sample to predict, about the time from
+     *                     a touch sample to its frame on screen
+     */
+    public void setHorizon(long horizonNanos) {
+        if (horizonNanos < 0) {
+            throw new IllegalArgumentException("Horizon must be >= 0");
+        }
+        mHorizonNanos = horizonNanos;
+    }
+
+    public long getHorizon() {
+        return mHorizonNanos;
+    }
+
+    /**
+     * @param accelerationNoise How much the finger speed is expected to change, in pixels per
+     *                          second squared. Higher follows turns faster and smooths less.
+     * @param measurementNoise  Digitizer jitter as a standard deviation in pixels
+     */
+    public void setNoise(float accelerationNoise, float measurementNoise) {
+        if (!(accelerationNoise > 0) || !(measurementNoise > 0)) {
+            throw new IllegalArgumentException("Noise must be > 0");
+        }
+        mAccelerationNoise = accelerationNoise;
+        mMeasurementNoise = measurementNoise;
+    }
+
+    /**
+     * @param maxDistance Largest distance in pixels between the prediction and the latest sample
+     */
+    public void setMaxDistance(float maxDistance) {
+        if (!(maxDistance >= 0)) {
+            throw new IllegalArgumentException("Max distance must be >= 0");
+        }
+        mMaxDistance = maxDistance;
+    }
+
+    /**
+     * @param maxSampleGapNanos Samples further apart start a new estimate
+     */
+    public void setMaxSampleGap(long maxSampleGapNanos) {
+        mMaxSampleGapNanos = maxSampleGapNanos;
+    }
+
+    public void clear() {
+        mSampleCount = 0;
+    }
+
+    public void addSample(long timeNanos, float x) {
+        if (mSampleCount == 0 || timeNanos - mLastTime > mMaxSampleGapNanos) {
+            mSampleCount = 1;
+            mPosition = x;
+            mVelocity = 0;
+            mP00 = mMeasurementNoise * mMeasurementNoise;
+            mP01 = 0;
+            // the speed is unknown, start with a large variance
+            mP11 = 1e8;
+        } else {
+            double dt = Math.max(0, timeNanos - mLastTime) / 1e9;
+            // predict with a white noise acceleration model
+            mPosition += mVelocity * dt;
+            double q = mAccelerationNoise * mAccelerationNoise;
+            double p00 = mP00 + dt * (2 * mP01 + dt * mP11) + q * dt * dt * dt * dt / 4;
+            double p01 = mP01 + dt * mP11 + q * dt * dt * dt / 2;
+            double p11 = mP11 + q * dt * dt;
+            // correct with the measured position
+            double innovation = x - mPosition;
+            double s = p00 + mMeasurementNoise * mMeasurementNoise;
+            double k0 = p00 / s;
+            double k1 = p01 / s;
+            mPosition += k0 * innovation;
+            mVelocity += k1 * innovation;
+            mP00 = (1 - k0) * p00;
+            mP01 = (1 - k0) * p01;
+            mP11 = p11 - k1 * p01;
+            mSampleCount++;
+        }
+        mLastTime = timeNanos;
+        mLastX = x;
+    }
+
+    /**
+     * @return predicted position {@link #getHorizon()} after the latest sample, the latest sample
+     * while there are too few samples
+     */
+    public float predict() {
+        return predict(mLastTime + mHorizonNanos);
+    }
+
+    /**
+     * @param timeNanos In the time base of the samples
+     */
+    public float predict(long timeNanos) {
+        if (mSampleCount < MIN_SAMPLES) {
+            return mLastX;
+        }
+        double dt = Math.max(0, timeNanos - mLastTime) / 1e9;
+        double predicted = mPosition + mVelocity * dt;
+        return (float) Math.max(mLastX - mMaxDistance, Math.min(predicted, mLastX + mMaxDistance));
+    }
+
+    /**
+     * Estimated speed in pixels per second
+     */
+    public float getVelocity() {
+        return mSampleCount < MIN_SAMPLES ? 0 : (float) mVelocity;
+    }
+}
@@ -0,0 +1,356 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Maps between pixel positions on the track and tick indices.
+ * <p>
+ * The track shows a window of the tick domain, the whole domain unless zoomed in with
+ * {@link #zoom(float, float)} or {@link #setWindow(double, double)}. Index math is done in double
+ * precision relative to the window start, so thumbs land on exact ticks however large the domain.
+ * <p>
+ * The distance between two ticks is computed once whenever the bounds, the window or the tick
+ * count change, so the per-event conversions are a multiply/add away.
+ * <p>
+ * Ticks are evenly spaced unless a non-linear {@link TickScale} is set. The fraction of the track
+ * of every tick is then kept in a table, pixels are a multiply/add away from it and the nearest
+ * tick of a pixel is found through a direct-mapped bucket index over the fractions, O(1) when the
+ * ticks are spread out and a binary search inside one bucket when they crowd.
+ */
+public class TrackGeometry {
+
+    /**
+     * Smallest number of ticks the window can be zoomed in to
+     */
+    public static final int MIN_WINDOW_SPAN = 2;
+
+    private static final int MAX_BUCKET_COUNT = 1 << 16;
+
+    private float mLeftX, mRightX, mCenterY;
+    private int mTickCount;
+    private double mWindowStart;
+    private double mWindowSpan;
+    private double mTickDistance;
+    private TickScale mScale = TickScale.LINEAR;
+    // non-linear scales only
+    private double[] mFractions;
+    private int[] mBucketStart;
+    private double mWindowStartFraction;
+    private double mPixelsPerFraction;
+
+    public TrackGeometry(int tickCount) {
+        setTickCount(tickCount);
+    }
+
+    /**
+     * Lay the track out inside a view of the given size.
+     *
+     * @param inset Horizontal space kept free at both ends of the track, on top of the padding
+     */
+    public void setFrame(int width, int height,
+                         int paddingLeft, int paddingTop, int paddingRight, int paddingBottom,
+                         float inset) {
+        mCenterY = (height + paddingTop + paddingBottom) / 2;
+        setBounds(paddingLeft + inset, width - paddingRight - inset);
+    }
+
+    public void setBounds(float leftX, float rightX) {
+        mLeftX = leftX;
+        mRightX = rightX;
+        updateTickDistance();
+    }
+
+    /**
+     * Set number of ticks, the window is reset to the whole domain
+     */
+    public void setTickCount(int tickCount) {
+        if (tickCount < 2) {
+            throw new IllegalArgumentException("Tick count must be >= 2");
+        }
+        computeFractions(mScale, tickCount);
+        mTickCount = tickCount;
+        mWindowStart = 0;
+        mWindowSpan = tickCount;
+        updateTickDistance();
+    }
+
+    /**
+     * Place the ticks along the track, evenly spaced by default
+     */
+    public void setScale(TickScale scale) {
+        computeFractions(scale, mTickCount);
+        mScale = scale;
+        updateTickDistance();
+    }
+
+    public TickScale getScale() {
+        return mScale;
+    }
+
+    /**
+     * Build the tables of a scale, the geometry is left unchanged when the scale rejects the count
+     */
+    private void computeFractions(TickScale scale, int tickCount) {
+        if (scale == TickScale.LINEAR) {
+            mFractions = null;
+            mBucketStart = null;
+            return;
+        }
+        double[] fractions = new double[tickCount];
+        scale.computeFractions(fractions);
+        if (fractions[0] != 0 || fractions[tickCount - 1] != 1) {
+            throw new IllegalArgumentException("Scale must go from 0 to 1");
+        }
+        for (int i = 1; i < tickCount; i++) {
+            if (!(fractions[i] > fractions[i - 1])) {
+                throw new IllegalArgumentException("Scale must be strictly increasing");
+            }
+        }
+        // bucket b holds the ticks with a fraction in [b / count, (b + 1) / count)
+        int bucketCount = Math.min(tickCount, MAX_BUCKET_COUNT);
+        int[] bucketStart = new int[bucketCount + 1];
+        int tick = 0;
+        for (int b = 0; b <= bucketCount; b++) {
+            double from = (double) b / bucketCount;
+            while (tick < tickCount && fractions[tick] < from) {
+                tick++;
+            }
+            bucketStart[b] = tick;
+        }
+        mFractions = fractions;
+        mBucketStart = bucketStart;
+    }
+
+    /**
+     * Show a part of the tick domain on the track. The window is kept inside the domain.
+     *
+     * @param start First visible tick, may be fractional while panning
+     * @param span  Number of visible ticks, at least {@link #MIN_WINDOW_SPAN}
+     */
+    public void setWindow(double start, double span) {
+        mWindowSpan = Math.max(MIN_WINDOW_SPAN, Math.min(span, mTickCount));
+        mWindowStart = Math.max(0, Math.min(start, mTickCount - mWindowSpan));
+        updateTickDistance();
+    }
+
+    public void resetWindow() {
+        setWindow(0, mTickCount);
+    }
+
+    /**
+     * Zoom the window, keeping the tick under focusX in place
+     *
+     * @param scale Greater than 1 to zoom in
+     */
+    public void zoom(float scale, float focusX) {
+        if (mFractions != null) {
+            double focusFraction = mWindowStartFraction + (focusX - mLeftX) / mPixelsPerFraction;
+            double spanFraction = (mRightX - mLeftX) / mPixelsPerFraction / scale;
+            setFractionWindow(focusFraction - (focusX - mLeftX) / (mRightX - mLeftX) * spanFraction, spanFraction);
+            return;
+        }
+        double focusOffset = focusX - mLeftX;
+        double focusIndex = mWindowStart + focusOffset / mTickDistance;
+        double span = mWindowSpan / scale;
+        span = Math.max(MIN_WINDOW_SPAN, Math.min(span, mTickCount));
+        double tickDistance = (mRightX - mLeftX) / (span - 1);
+        setWindow(focusIndex - focusOffset / tickDistance, span);
+    }
+
+    /**
+     * Scroll the window, content follows the finger
+     */
+    public void pan(float dx) {
+        if (mFractions != null) {
+            if (mPixelsPerFraction > 0) {
+                setFractionWindow(mWindowStartFraction - dx / mPixelsPerFraction,
+                        (mRightX - mLeftX) / mPixelsPerFraction);
+            }
+            return;
+        }
+        if (mTickDistance > 0) {
+            setWindow(mWindowStart - dx / mTickDistance, mWindowSpan);
+        }
+    }
+
+    public boolean isZoomed() {
+        return mWindowSpan < mTickCount;
+    }
+
+    public double getWindowStart() {
+        return mWindowStart;
+    }
+
+    public double getWindowSpan() {
+        return mWindowSpan;
+    }
+
+    public int getFirstVisibleIndex() {
+        return clampIndex((int) Math.ceil(mWindowStart));
+    }
+
+    public int getLastVisibleIndex() {
+        return clampIndex((int) Math.floor(mWindowStart + mWindowSpan - 1));
+    }
+
+    /**
+     * Window of a non-linear scale given as fractions of the whole track
+     */
+    private void setFractionWindow(double startFraction, double spanFraction) {
+        spanFraction = Math.min(spanFraction, 1);
+        startFraction = Math.max(0, Math.min(startFraction, 1 - spanFraction));
+        double start = fractionToPosition(startFraction);
+        double end = fractionToPosition(startFraction + spanFraction);
+        if (end - start + 1 < MIN_WINDOW_SPAN) {
+            // zoomed in to the limit, keep the window at the focus
+            double center = (start + end) / 2;
+            start = center - (MIN_WINDOW_SPAN - 1) / 2.0;
+        }
+        setWindow(start, end - start + 1);
+    }
+
+    private void updateTickDistance() {
+        mTickDistance = (mRightX - mLeftX) / (mWindowSpan - 1);
+        if (mFractions != null) {
+            mWindowStartFraction = positionToFraction(mWindowStart);
+            double spanFraction = positionToFraction(mWindowStart + mWindowSpan - 1) - mWindowStartFraction;
+            mPixelsPerFraction = (mRightX - mLeftX) / spanFraction;
+        }
+    }
+
+    /**
+     * Fraction of the track of a fractional tick position, interpolated between ticks
+     */
+    private double positionToFraction(double position) {
+        int last = mTickCount - 1;
+        int tick = (int) Math.max(0, Math.min(Math.floor(position), last - 1));
+        return mFractions[tick] + (position - tick) * (mFractions[tick + 1] - mFractions[tick]);
+    }
+
+    /**
+     * Fractional tick position at a fraction of the track, the inverse of positionToFraction
+     */
+    private double fractionToPosition(double fraction) {
+        int last = mTickCount - 1;
+        int after = Math.max(1, Math.min(lowerBoundFraction(fraction), last));
+        int before = after - 1;
+        return before + (fraction - mFractions[before]) / (mFractions[after] - mFractions[before]);
+    }
+
+    /**
+     * First tick with a fraction >= fraction, tick count if none
+     */
+    private int lowerBoundFraction(double fraction) {
+        if (!(fraction > 0)) {
+            return 0;
+        }
+        if (fraction > 1) {
+            return mTickCount;
+        }
+        int bucketCount = mBucketStart.length - 1;
+        int bucket = Math.min((int) (fraction * bucketCount), bucketCount - 1);
+        // the neighbouring buckets are included, rounding may put the fraction one bucket off
+        int low = mBucketStart[Math.max(bucket - 1, 0)];
+        int high = mBucketStart[Math.min(bucket + 2, bucketCount)];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mFractions[mid] < fraction) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the nearest tick of a pixel position, clamped to the track
+     *
+     * @return index in [0, tickCount)
+     */
+    public int pixelToIndex(float x) {
+        if (mTickDistance <= 0) {
+            return 0;
+        }
+        if (mFractions != null) {
+            double fraction = mWindowStartFraction + (x - mLeftX) / mPixelsPerFraction;
+            int after = lowerBoundFraction(fraction);
+            if (after == 0) {
+                return 0;
+            }
+            if (after == mTickCount) {
+                return mTickCount - 1;
+            }
+            return fraction - mFractions[after - 1] < mFractions[after] - fraction ? after - 1 : after;
+        }
+        double index = mWindowStart + (x - mLeftX) / mTickDistance;
+        if (index <= 0) {
+            return 0;
+        }
+        return clampIndex((int) Math.min(index + 0.5, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Get the fractional, unclamped tick position of a pixel
+     */
+    public double pixelToPosition(float x) {
+        if (mFractions != null) {
+            return fractionToPosition(mWindowStartFraction + (x - mLeftX) / mPixelsPerFraction);
+        }
+        return mWindowStart + (x - mLeftX) / mTickDistance;
+    }
+
+    /**
+     * Get the pixel position of a tick, outside of the track when the tick is outside of the window
+     */
+    public float indexToPixel(int index) {
+        if (mFractions != null) {
+            double fraction = index >= 0 && index < mTickCount ? mFractions[index] : positionToFraction(index);
+            return (float) (mLeftX + (fraction - mWindowStartFraction) * mPixelsPerFraction);
+        }
+        return (float) (mLeftX + mTickDistance * (index - mWindowStart));
+    }
+
+    public int clampIndex(int index) {
+        if (index < 0) {
+            return 0;
+        }
+        return index >= mTickCount ? mTickCount - 1 : index;
+    }
+
+    public float clampPixel(float x) {
+        if (x < mLeftX) {
+            return mLeftX;
+        }
+        return x > mRightX ? mRightX : x;
+    }
+
+    public boolean contains(float x) {
+        return x >= mLeftX && x <= mRightX;
+    }
+
+    public float getLeftX() {
+        return mLeftX;
+    }
+
+    public float getRightX() {
+        return mRightX;
+    }
+
+    public float getCenterX() {
+        return (mLeftX + mRightX) / 2;
+    }
+
+    public float getCenterY() {
+        return mCenterY;
+    }
+
+    public int getTickCount() {
+        return mTickCount;
+    }
+
+    /**
+     * Distance between two ticks, on average for a non-linear scale
+     */
+    public float getTickDistance() {
+        return (float) mTickDistance;
+    }
+}
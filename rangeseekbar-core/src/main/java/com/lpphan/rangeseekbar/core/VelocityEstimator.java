@@ -0,0 +1,66 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Horizontal velocity of a drag, the least squares slope of the latest move samples.
+ * <p>
+ * Samples are kept in a fixed ring buffer, only the ones from the last {@link #HORIZON_NANOS}
+ * count. A finger that rested for {@link #STOPPED_NANOS} before lifting has no velocity.
+ */
+public class VelocityEstimator {
+
+    public static final long HORIZON_NANOS = 100 * 1000000L;
+    public static final long STOPPED_NANOS = 40 * 1000000L;
+
+    private static final int CAPACITY = 20;
+
+    private final long[] mTimes = new long[CAPACITY];
+    private final float[] mPositions = new float[CAPACITY];
+    private int mNewest = -1;
+    private int mCount;
+
+    public void clear() {
+        mNewest = -1;
+        mCount = 0;
+    }
+
+    public void addSample(long timeNanos, float x) {
+        mNewest = (mNewest + 1) % CAPACITY;
+        mTimes[mNewest] = timeNanos;
+        mPositions[mNewest] = x;
+        mCount = Math.min(mCount + 1, CAPACITY);
+    }
+
+    /**
+     * @param nowNanos Time of the release, in the time base of the samples
+     * @return pixels per second, 0 without enough recent samples
+     */
+    public float getVelocity(long nowNanos) {
+        if (mCount < 2 || nowNanos - mTimes[mNewest] > STOPPED_NANOS) {
+            return 0;
+        }
+        long newestTime = mTimes[mNewest];
+        float newestX = mPositions[mNewest];
+        // sums relative to the newest sample, times in seconds
+        double sumT = 0, sumX = 0, sumTT = 0, sumTX = 0;
+        int n = 0;
+        for (int i = 0; i < mCount; i++) {
+            int sample = (mNewest - i + CAPACITY) % CAPACITY;
+            long age = newestTime - mTimes[sample];
+            if (age > HORIZON_NANOS) {
+                break;
+            }
+            double t = -age / 1e9;
+            double x = mPositions[sample] - newestX;
+            sumT += t;
+            sumX += x;
+            sumTT += t * t;
+            sumTX += t * x;
+            n++;
+        }
+        double denominator = n * sumTT - sumT * sumT;
+        if (n < 2 || denominator <= 0) {
+            return 0;
+        }
+        return (float) ((n * sumTX - sumT * sumX) / denominator);
+    }
+}
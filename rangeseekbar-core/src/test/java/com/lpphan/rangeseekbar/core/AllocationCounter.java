@@ -0,0 +1,44 @@
+package com.lpphan.rangeseekbar.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes allocated by the current thread, with the per-thread counters of HotSpot.
+ */
+public class AllocationCounter {
+
+    private static final int WARM_UP_ROUNDS = 50;
+
+    private final com.sun.management.ThreadMXBean mThreadBean;
+
+    public AllocationCounter() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            mThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            mThreadBean = null;
+        }
+    }
+
+    public boolean isSupported() {
+        return mThreadBean != null;
+    }
+
+    /**
+     * Run the events until they are compiled, then count what one more run allocates
+     *
+     * @return bytes allocated by the measured run
+     */
+    public long measure(Runnable events) {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            events.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = mThreadBean.getThreadAllocatedBytes(threadId);
+        events.run();
+        return mThreadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,158 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * The code run by every touch event and every frame must not allocate, a garbage collection
+ * during a drag is a visible hitch on low-end devices.
+ */
+public class AllocationFreeTest {
+
+    private static final int MOVES_PER_DRAG = 500;
+    private static final int DRAGS = 20;
+    private static final int TICK_COUNT = 100000;
+
+    private AllocationCounter counter;
+    private FakeFrameClock clock;
+    private long consumed;
+
+    @Before
+    public void setUp() {
+        counter = new AllocationCounter();
+        assumeTrue(counter.isSupported());
+        clock = new FakeFrameClock(0);
+    }
+
+    @Test
+    public void dragWithImmediateDispatchDoesNotAllocate() {
+        assertDragDoesNotAllocate(RangeDispatcher.MODE_IMMEDIATE, 2, false);
+    }
+
+    @Test
+    public void dragWithPerFrameDispatchDoesNotAllocate() {
+        assertDragDoesNotAllocate(RangeDispatcher.MODE_PER_FRAME, 2, false);
+    }
+
+    @Test
+    public void dragAcrossManyThumbsDoesNotAllocate() {
+        assertDragDoesNotAllocate(RangeDispatcher.MODE_THROTTLED, RangeModel.MAX_THUMB_COUNT, false);
+    }
+
+    @Test
+    public void batchedSamplesDoNotAllocate() {
+        assertDragDoesNotAllocate(RangeDispatcher.MODE_IMMEDIATE, 4, true);
+    }
+
+    @Test
+    public void animationFramesDoNotAllocate() {
+        final ThumbAnimator[] animators = {new ThumbAnimator(12, 16), new ThumbAnimator(12, 16)};
+        final DirtyRegion region = new DirtyRegion();
+        final AnimationScheduler scheduler = new AnimationScheduler(clock, new AnimationScheduler.Host() {
+            @Override
+            public void onAnimationFrame(long frameTimeNanos) {
+                for (ThumbAnimator animator : animators) {
+                    region.unionThumbMove(animator.getX(100), 100, 35, animator.getRippleRadius());
+                    consumed += animator.getRippleAlpha() + (long) animator.getRadius();
+                }
+                region.setEmpty();
+            }
+        });
+
+        long bytes = counter.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < DRAGS; i++) {
+                    ThumbAnimator animator = animators[i & 1];
+                    animator.press();
+                    scheduler.start(animator);
+                    clock.frame();
+                    clock.frame();
+                    animator.release(140);
+                    scheduler.start(animator);
+                    clock.runUntilIdle(100);
+                }
+            }
+        });
+        assertEquals(0, bytes);
+    }
+
+    private void assertDragDoesNotAllocate(int mode, int thumbCount, final boolean batched) {
+        long[] keys = new long[10000];
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (i * 7919L) % TICK_COUNT;
+            ids[i] = i;
+        }
+        final SortedWindowFilter filter = new SortedWindowFilter(keys, ids);
+        filter.setOnSelectionChangeListener(new SortedWindowFilter.OnSelectionChangeListener() {
+            @Override
+            public void onEnter(int[] ids, int from, int to) {
+                consumed += to - from;
+            }
+
+            @Override
+            public void onExit(int[] ids, int from, int to) {
+                consumed -= to - from;
+            }
+        });
+        final FenwickHistogram histogram = new FenwickHistogram(new int[TICK_COUNT]);
+
+        final RangeModel model = new RangeModel(TICK_COUNT, thumbCount);
+        model.getGeometry().setBounds(40, 1040);
+        model.layout();
+        final RangeDispatcher dispatcher = new RangeDispatcher(clock, new RangeDispatcher.Target() {
+            @Override
+            public void dispatchRangeChange(int[] indices) {
+                int left = indices[0];
+                int right = indices[indices.length - 1];
+                filter.setRange(left, right);
+                consumed += histogram.sum(left, right);
+            }
+
+            @Override
+            public void dispatchStartTracking() {
+            }
+
+            @Override
+            public void dispatchStopTracking() {
+            }
+        });
+        dispatcher.setMode(mode);
+        dispatcher.setThrottleInterval(50);
+        model.setOnRangeChangeListener(dispatcher);
+
+        long bytes = counter.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int drag = 0; drag < DRAGS; drag++) {
+                    float downX = model.getThumbX(drag % model.getThumbCount());
+                    int thumb = model.hitTest(downX, 24);
+                    model.press(thumb);
+                    dispatcher.startTracking();
+                    for (int move = 0; move < MOVES_PER_DRAG; move++) {
+                        // sweep the whole track and back, crossing the other thumbs
+                        int step = move < MOVES_PER_DRAG / 2 ? move : MOVES_PER_DRAG - move;
+                        if (batched && (move & 3) == 0) {
+                            model.beginBatch();
+                        }
+                        model.drag(40 + step * 1000f / (MOVES_PER_DRAG / 2));
+                        if (batched && (move & 3) == 3) {
+                            model.endBatch();
+                        }
+                        clock.advance(FakeFrameClock.FRAME_NANOS / 4);
+                        if ((move & 3) == 3) {
+                            clock.frame(0);
+                        }
+                    }
+                    model.release();
+                    dispatcher.stopTracking();
+                }
+            }
+        });
+        assertEquals(0, bytes);
+    }
+}
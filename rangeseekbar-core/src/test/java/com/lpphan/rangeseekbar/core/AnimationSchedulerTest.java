@@ -0,0 +1,115 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnimationSchedulerTest {
+
+    private FakeFrameClock clock;
+    private AnimationScheduler scheduler;
+    private int redrawCount;
+
+    @Before
+    public void setUp() {
+        clock = new FakeFrameClock(1000000000L);
+        scheduler = new AnimationScheduler(clock, new AnimationScheduler.Host() {
+            @Override
+            public void onAnimationFrame(long frameTimeNanos) {
+                redrawCount++;
+            }
+        });
+    }
+
+    @Test
+    public void idleSchedulerPostsNoFrames() {
+        assertFalse(clock.hasPendingFrame());
+        assertFalse(scheduler.isRunning());
+    }
+
+    @Test
+    public void stopsPostingOnTheFrameTheLastAnimationEnds() {
+        ThumbAnimator animator = new ThumbAnimator(12, 16);
+        animator.press();
+        scheduler.start(animator);
+
+        int frames = clock.runUntilIdle(1000);
+
+        // the first frame only records the start time
+        long expected = ThumbAnimator.RIPPLE_DURATION / FakeFrameClock.FRAME_NANOS + 2;
+        assertEquals(expected, frames);
+        assertEquals(frames, redrawCount);
+        assertFalse(scheduler.isRunning());
+        assertFalse(animator.isAnimating());
+    }
+
+    @Test
+    public void releasedThumbKeepsAnimating() {
+        ThumbAnimator left = new ThumbAnimator(12, 16);
+        ThumbAnimator right = new ThumbAnimator(12, 16);
+        left.press();
+        scheduler.start(left);
+        clock.frame();
+        clock.frame();
+        float rippleRadius = left.getRippleRadius();
+
+        left.release(10);
+        right.press();
+        scheduler.start(right);
+        scheduler.start(left);
+        clock.frame();
+
+        assertTrue(left.getRippleRadius() > rippleRadius);
+        assertTrue(scheduler.isRunning(left));
+        assertTrue(scheduler.isRunning(right));
+    }
+
+    @Test
+    public void rippleFollowsFrameTimestamps() {
+        ThumbAnimator animator = new ThumbAnimator(10, 20);
+        animator.press();
+        scheduler.start(animator);
+        clock.frame();
+        assertEquals(20f, animator.getRippleRadius(), 1e-4f);
+        assertEquals(ThumbAnimator.RIPPLE_MAX_ALPHA, animator.getRippleAlpha());
+
+        clock.frame(ThumbAnimator.RIPPLE_DURATION / 2);
+        // decelerate(0.5) = 0.75
+        assertEquals(20f + 30f * 0.75f, animator.getRippleRadius(), 1e-3f);
+        assertEquals((int) (ThumbAnimator.RIPPLE_MAX_ALPHA * 0.25f), animator.getRippleAlpha());
+    }
+
+    @Test
+    public void snapsFromReleasePositionToRestingPosition() {
+        ThumbAnimator animator = new ThumbAnimator(10, 20);
+        animator.press();
+        scheduler.start(animator);
+        clock.frame();
+        clock.frame(ThumbAnimator.RADIUS_DURATION);
+        assertEquals(20f, animator.getRadius(), 0f);
+
+        animator.release(47);
+        clock.frame();
+        assertEquals(47f, animator.getX(50), 0f);
+        assertEquals(20f, animator.getRadius(), 0f);
+
+        clock.frame(ThumbAnimator.SNAP_DURATION);
+        assertEquals(50f, animator.getX(50), 0f);
+        assertEquals(10f, animator.getRadius(), 0f);
+    }
+
+    @Test
+    public void cancelAllRemovesPendingFrame() {
+        ThumbAnimator animator = new ThumbAnimator(12, 16);
+        animator.press();
+        scheduler.start(animator);
+        assertTrue(clock.hasPendingFrame());
+
+        scheduler.cancelAll();
+        assertFalse(clock.hasPendingFrame());
+        assertFalse(scheduler.isRunning());
+    }
+}
@@ -0,0 +1,215 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CrossfilterTest {
+
+    private static final int RECORDS = 2000;
+    private static final int DIMENSIONS = 4;
+    private static final int TICKS = 50;
+
+    private final Random random = new Random(42);
+    private final int[][] keys = new int[DIMENSIONS][RECORDS];
+    private final int[] lefts = new int[DIMENSIONS];
+    private final int[] rights = new int[DIMENSIONS];
+    private final Crossfilter crossfilter = new Crossfilter(RECORDS);
+
+    private void createDimensions() {
+        for (int d = 0; d < DIMENSIONS; d++) {
+            for (int r = 0; r < RECORDS; r++) {
+                keys[d][r] = random.nextInt(TICKS);
+            }
+            crossfilter.addDimension(keys[d], TICKS);
+            rights[d] = TICKS - 1;
+        }
+    }
+
+    private boolean inRange(int record, int dimension) {
+        int key = keys[dimension][record];
+        return key >= lefts[dimension] && key <= rights[dimension];
+    }
+
+    private void assertMatchesBruteForce() {
+        int selected = 0;
+        long[][] expected = new long[DIMENSIONS][TICKS];
+        for (int r = 0; r < RECORDS; r++) {
+            int excluded = 0;
+            int excludedBy = -1;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                if (!inRange(r, d)) {
+                    excluded++;
+                    excludedBy = d;
+                }
+            }
+            for (int d = 0; d < DIMENSIONS; d++) {
+                if (excluded == 0 || (excluded == 1 && excludedBy == d)) {
+                    expected[d][keys[d][r]]++;
+                }
+            }
+            if (excluded == 0) {
+                selected++;
+            }
+        }
+        assertEquals(selected, crossfilter.getSelectedCount());
+        long[] counts = new long[TICKS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            crossfilter.getDimension(d).getCounts(counts);
+            assertArrayEquals(expected[d], counts);
+        }
+    }
+
+    @Test
+    public void followsRandomRangeMoves() {
+        createDimensions();
+        assertMatchesBruteForce();
+        for (int step = 0; step < 500; step++) {
+            int d = random.nextInt(DIMENSIONS);
+            int a = random.nextInt(TICKS);
+            int b = random.nextInt(TICKS);
+            lefts[d] = Math.min(a, b);
+            rights[d] = Math.max(a, b);
+            crossfilter.getDimension(d).filterRange(lefts[d], rights[d]);
+            assertMatchesBruteForce();
+        }
+        for (int d = 0; d < DIMENSIONS; d++) {
+            lefts[d] = 0;
+            rights[d] = TICKS - 1;
+            crossfilter.getDimension(d).filterAll();
+        }
+        assertMatchesBruteForce();
+        assertEquals(RECORDS, crossfilter.getSelectedCount());
+    }
+
+    @Test
+    public void collectsTheChangedTicksOnce() {
+        createDimensions();
+        Crossfilter.Dimension first = crossfilter.getDimension(0);
+        Crossfilter.Dimension second = crossfilter.getDimension(1);
+        int[] ticks = new int[TICKS];
+        long[] counts = new long[TICKS];
+        assertEquals(0, second.collectChanges(ticks, counts));
+
+        first.filterRange(0, TICKS / 2);
+        first.filterRange(0, TICKS / 2 - 1);
+        // the own range does not change the own counts
+        assertEquals(0, first.getChangedCount());
+        int changed = second.collectChanges(ticks, counts);
+        assertEquals(TICKS, changed);
+        long[] sorted = new long[TICKS];
+        for (int i = 0; i < changed; i++) {
+            assertEquals(second.getCount(ticks[i]), counts[i]);
+            sorted[ticks[i]]++;
+        }
+        for (long seen : sorted) {
+            assertEquals(1, seen);
+        }
+        assertEquals(0, second.getChangedCount());
+    }
+
+    @Test
+    public void movesRangesWithoutAllocating() {
+        createDimensions();
+        final Crossfilter.Dimension dimension = crossfilter.getDimension(0);
+        dimension.filterRange(10, 20);
+        AllocationCounter counter = new AllocationCounter();
+        if (!counter.isSupported()) {
+            return;
+        }
+        final int[] ticks = new int[TICKS];
+        final long[] counts = new long[TICKS];
+        long bytes = counter.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 10; i < 30; i++) {
+                    dimension.filterRange(i, i + 10);
+                    crossfilter.getDimension(1).collectChanges(ticks, counts);
+                }
+                dimension.filterRange(10, 20);
+            }
+        });
+        assertEquals(0, bytes);
+    }
+
+    @Test
+    public void followsProgrammaticBarChanges() {
+        createDimensions();
+        RangeController.Host host = new RangeController.Host() {
+            @Override
+            public void dispatchRangeChange(int[] indices) {
+            }
+
+            @Override
+            public void dispatchStartTracking() {
+            }
+
+            @Override
+            public void dispatchStopTracking() {
+            }
+
+            @Override
+            public void onAnimationFrame(long frameTimeNanos) {
+            }
+        };
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        };
+        // the bars link their publishers to the dimensions like RangeSeekBarCrossfilter
+        RangeController[] bars = new RangeController[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            bars[d] = new RangeController(TICKS, 2, new FakeFrameClock(0), new FakeFrameClock(0), host);
+            final Crossfilter.Dimension dimension = crossfilter.getDimension(d);
+            bars[d].getRangePublisher().subscribe(new RangePublisher.Subscriber() {
+                @Override
+                public void onSubscribe(RangePublisher.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(long range) {
+                    dimension.filterRange(RangePublisher.leftIndexOf(range), RangePublisher.rightIndexOf(range));
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            }, direct);
+        }
+
+        bars[0].setLeftIndex(30);
+        bars[0].setRightIndex(40);
+        bars[0].applyUpdates();
+        lefts[0] = 30;
+        rights[0] = 40;
+        assertMatchesBruteForce();
+
+        // a restored state goes through the same queue
+        bars[1].setTickCount(TICKS);
+        bars[1].setIndices(new int[]{5, 20}, 2);
+        bars[1].applyUpdates();
+        lefts[1] = 5;
+        rights[1] = 20;
+        assertMatchesBruteForce();
+
+        bars[2].setRange(0, 0);
+        bars[0].setRange(0, TICKS - 1);
+        bars[2].applyUpdates();
+        bars[0].applyUpdates();
+        lefts[0] = 0;
+        rights[0] = TICKS - 1;
+        rights[2] = 0;
+        assertMatchesBruteForce();
+    }
+}
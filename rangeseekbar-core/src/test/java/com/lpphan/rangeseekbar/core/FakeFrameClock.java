@@ -0,0 +1,80 @@
+package com.lpphan.rangeseekbar.core;
+
+/**
+ * Frame clock advanced by hand, one frame every {@link #FRAME_NANOS} by default.
+ */
+public class FakeFrameClock implements FrameClock {
+
+    public static final long FRAME_NANOS = 16666667L;
+
+    private Callback mCallback;
+    private long mFrameTimeNanos;
+    private int mFrameCount;
+
+    public FakeFrameClock(long startTimeNanos) {
+        mFrameTimeNanos = startTimeNanos;
+    }
+
+    @Override
+    public void postFrameCallback(Callback callback) {
+        mCallback = callback;
+    }
+
+    @Override
+    public void removeFrameCallback(Callback callback) {
+        if (mCallback == callback) {
+            mCallback = null;
+        }
+    }
+
+    public boolean hasPendingFrame() {
+        return mCallback != null;
+    }
+
+    @Override
+    public long nanoTime() {
+        return mFrameTimeNanos;
+    }
+
+    /**
+     * Let time pass without running a frame, like a touch event arriving between two vsyncs
+     */
+    public void advance(long elapsedNanos) {
+        mFrameTimeNanos += elapsedNanos;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Advance the time by a frame and run the pending callback
+     */
+    public void frame() {
+        frame(FRAME_NANOS);
+    }
+
+    public void frame(long elapsedNanos) {
+        mFrameTimeNanos += elapsedNanos;
+        Callback callback = mCallback;
+        mCallback = null;
+        if (callback != null) {
+            mFrameCount++;
+            callback.doFrame(mFrameTimeNanos);
+        }
+    }
+
+    /**
+     * Run frames until nobody asks for one
+     *
+     * @return number of frames run
+     */
+    public int runUntilIdle(int maxFrames) {
+        int frames = 0;
+        while (mCallback != null && frames < maxFrames) {
+            frame();
+            frames++;
+        }
+        return frames;
+    }
+}
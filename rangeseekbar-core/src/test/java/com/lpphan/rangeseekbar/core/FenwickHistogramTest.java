@@ -0,0 +1,78 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FenwickHistogramTest {
+
+    @Test
+    public void sumsInclusiveRanges() {
+        FenwickHistogram histogram = new FenwickHistogram(new int[]{1, 2, 3, 4, 5});
+        assertEquals(15, histogram.getTotal());
+        assertEquals(9, histogram.sum(1, 3));
+        assertEquals(5, histogram.sum(4, 4));
+        assertEquals(0, histogram.sum(3, 2));
+        assertEquals(5, histogram.getMaxCount());
+    }
+
+    @Test
+    public void singleBinUpdatesAreVisibleImmediately() {
+        FenwickHistogram histogram = new FenwickHistogram(new long[]{1, 2, 3, 4, 5});
+        histogram.setCount(2, 10);
+        histogram.add(2, 1);
+        histogram.add(0, -1);
+        assertEquals(11, histogram.getCount(2));
+        assertEquals(13, histogram.sum(1, 2));
+        assertEquals(22, histogram.getTotal());
+        assertEquals(11, histogram.getMaxCount());
+    }
+
+    @Test
+    public void matchesNaiveSumsUnderRandomUpdates() {
+        Random random = new Random(7);
+        long[] counts = new long[1000];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = random.nextInt(100);
+        }
+        FenwickHistogram histogram = new FenwickHistogram(counts);
+
+        // 1000 bins is not a power of two, the last tree entries cover partial ranges
+        for (int round = 0; round < 500; round++) {
+            int bin = random.nextInt(counts.length);
+            long count = random.nextInt(100);
+            counts[bin] = count;
+            histogram.setCount(bin, count);
+
+            int from = random.nextInt(counts.length);
+            int to = from + random.nextInt(counts.length - from);
+            long expected = 0;
+            for (int i = from; i <= to; i++) {
+                expected += counts[i];
+            }
+            assertEquals(expected, histogram.sum(from, to));
+        }
+    }
+
+    @Test
+    public void maxCountFollowsDecreases() {
+        FenwickHistogram histogram = new FenwickHistogram(new long[]{4, 9, 9, 1});
+        histogram.add(1, -5);
+        assertEquals(9, histogram.getMaxCount());
+        histogram.setCount(2, 3);
+        assertEquals(4, histogram.getMaxCount());
+        histogram.add(3, 6);
+        assertEquals(7, histogram.getMaxCount());
+        assertEquals(18, histogram.getTotal());
+    }
+
+    @Test
+    public void singleBin() {
+        FenwickHistogram histogram = new FenwickHistogram(new int[]{3});
+        histogram.add(0, 2);
+        assertEquals(5, histogram.sum(0, 0));
+        assertEquals(5, histogram.getTotal());
+    }
+}
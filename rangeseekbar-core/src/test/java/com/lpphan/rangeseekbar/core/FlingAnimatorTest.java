@@ -0,0 +1,112 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlingAnimatorTest {
+
+    private FakeFrameClock clock;
+    private RangeModel model;
+    private FlingAnimator fling;
+    private AnimationScheduler scheduler;
+    private int changeCount;
+
+    @Before
+    public void setUp() {
+        clock = new FakeFrameClock(0);
+        model = new RangeModel(101);
+        model.getGeometry().setBounds(0, 1000);
+        model.layout();
+        model.setOnRangeChangeListener(new RangeModel.OnRangeChangeListener() {
+            @Override
+            public void onRangeChange(RangeModel model, int[] indices) {
+                changeCount++;
+            }
+        });
+        fling = new FlingAnimator(model);
+        fling.setDeceleration(10000);
+        scheduler = new AnimationScheduler(clock, new AnimationScheduler.Host() {
+            @Override
+            public void onAnimationFrame(long frameTimeNanos) {
+            }
+        });
+    }
+
+    @Test
+    public void comesToRestOnTick() {
+        model.press(RangeModel.LEFT);
+        model.drag(103);
+        // braking distance 2000^2 / (2 * 10000) = 200 px, rounded to the tick at 300
+        assertTrue(fling.start(2000));
+        assertEquals(300f, fling.getTargetX(), 1e-3f);
+
+        scheduler.start(fling);
+        int frames = clock.runUntilIdle(1000);
+        assertFalse(fling.isRunning());
+        assertEquals(RangeModel.NO_THUMB, model.getPressedThumb());
+        assertEquals(30, model.getLeftIndex());
+        assertEquals(300f, model.getThumbX(RangeModel.LEFT), 1e-3f);
+        // index changes are coalesced to one per frame at most
+        assertTrue(changeCount <= frames + 1);
+    }
+
+    @Test
+    public void stopsAgainstOtherThumb() {
+        model.setRightIndex(40);
+        model.press(RangeModel.LEFT);
+        model.drag(100);
+        fling.start(5000);
+        scheduler.start(fling);
+        clock.runUntilIdle(1000);
+        assertEquals(40, model.getLeftIndex());
+        assertEquals(40, model.getRightIndex());
+        assertEquals(RangeModel.LEFT, model.getThumbId(0));
+    }
+
+    @Test
+    public void keepsReleaseVelocityOnFirstFrames() {
+        model.press(RangeModel.LEFT);
+        model.drag(100);
+        fling.start(1000);
+        scheduler.start(fling);
+        clock.frame();
+        float x = model.getThumbX(RangeModel.LEFT);
+        clock.frame(1000000L);
+        float velocity = (model.getThumbX(RangeModel.LEFT) - x) * 1000;
+        assertEquals(1000f, velocity, 20f);
+    }
+
+    @Test
+    public void cancelSnapsToCurrentTick() {
+        model.press(RangeModel.LEFT);
+        model.drag(100);
+        fling.start(3000);
+        scheduler.start(fling);
+        clock.frame();
+        clock.frame();
+        clock.frame();
+        fling.cancel();
+        assertEquals(RangeModel.NO_THUMB, model.getPressedThumb());
+        assertEquals(model.getGeometry().indexToPixel(model.getLeftIndex()),
+                model.getThumbX(RangeModel.LEFT), 1e-3f);
+    }
+
+    @Test
+    public void estimatesVelocityOfRecentSamples() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        for (int i = 0; i < 30; i++) {
+            // 8 ms apart, 4 px per sample
+            estimator.addSample(i * 8000000L, 100 + i * 4);
+        }
+        assertEquals(500f, estimator.getVelocity(29 * 8000000L), 1f);
+        assertEquals(0f, estimator.getVelocity(29 * 8000000L + VelocityEstimator.STOPPED_NANOS + 1), 0f);
+
+        estimator.clear();
+        estimator.addSample(0, 10);
+        assertEquals(0f, estimator.getVelocity(0), 0f);
+    }
+}
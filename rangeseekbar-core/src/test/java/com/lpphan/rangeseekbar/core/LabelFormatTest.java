@@ -0,0 +1,78 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LabelFormatTest {
+
+    private final char[] buffer = new char[LabelFormat.MAX_LENGTH];
+
+    private String format(LabelFormat format, int index) {
+        return new String(buffer, 0, format.format(index, buffer));
+    }
+
+    @Test
+    public void formatsIndices() {
+        assertEquals("0", format(LabelFormat.INDEX, 0));
+        assertEquals("7", format(LabelFormat.INDEX, 7));
+        assertEquals("2147483647", format(LabelFormat.INDEX, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void formatsValuesWithAffixesAndGroups() {
+        LabelFormat price = LabelFormat.number("$", 1000, 250, "+", ',');
+        assertEquals("$1,000+", format(price, 0));
+        assertEquals("$999,250+", format(price, 3993));
+        assertEquals("$-250+", format(LabelFormat.number("$", -500, 250, "+", ','), 1));
+    }
+
+    @Test
+    public void affixesGetTheRoomNumbersLeave() {
+        LabelFormat items = LabelFormat.number("~", 0, 5, " items", ',');
+        assertEquals("~1,000 items", format(items, 200));
+        assertEquals("~10,737,418,235 items", format(items, Integer.MAX_VALUE));
+        LabelFormat.number("", 0, 1, "0123456789012345678901", (char) 0);
+        try {
+            LabelFormat.number("", 0, 1, "01234567890123456789012", (char) 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        // values overflowing a long can take the whole width of Long.MIN_VALUE
+        LabelFormat.number("123456", 0, Long.MAX_VALUE / 4, "", ' ');
+        try {
+            LabelFormat.number("1234567", 0, Long.MAX_VALUE / 4, "", ' ');
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void appendsExtremeValues() {
+        int end = LabelFormat.appendLong(Long.MIN_VALUE, ' ', buffer, 0);
+        assertEquals("-9 223 372 036 854 775 808", new String(buffer, 0, end));
+        end = LabelFormat.appendLong(Long.MAX_VALUE, (char) 0, buffer, 0);
+        assertEquals(String.valueOf(Long.MAX_VALUE), new String(buffer, 0, end));
+        end = LabelFormat.appendLong(100, '.', buffer, 0);
+        assertEquals("100", new String(buffer, 0, end));
+    }
+
+    @Test
+    public void formatsWithoutAllocating() {
+        AllocationCounter counter = new AllocationCounter();
+        if (!counter.isSupported()) {
+            return;
+        }
+        final LabelFormat format = LabelFormat.number("\u20ac", 0, 5, " k", '.');
+        long bytes = counter.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    format.format(i * 997, buffer);
+                }
+            }
+        });
+        assertEquals(0, bytes);
+    }
+}
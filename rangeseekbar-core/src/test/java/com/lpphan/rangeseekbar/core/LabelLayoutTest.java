@@ -0,0 +1,41 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LabelLayoutTest {
+
+    private final LabelLayout layout = new LabelLayout();
+    private final float[] lefts = new float[4];
+
+    @Test
+    public void keepsLabelsThatDoNotOverlap() {
+        assertFalse(layout.layout(new float[]{20, 60}, new float[]{20, 20}, 2, 0, 100, 4, lefts));
+        assertArrayEquals(new float[]{10, 50, 0, 0}, lefts, 0);
+    }
+
+    @Test
+    public void spreadsCloseLabelsAroundTheirMean() {
+        // both want to sit around 50, they end up side by side centered on it
+        assertTrue(layout.layout(new float[]{48, 52}, new float[]{20, 20}, 2, 0, 100, 4, lefts));
+        assertArrayEquals(new float[]{28, 52, 0, 0}, lefts, 0);
+    }
+
+    @Test
+    public void mergesClustersLeftwardsAndStaysInBounds() {
+        // the third label pushes the merged pair against the left bound
+        float[] centers = {5, 10, 14, 90};
+        float[] widths = {10, 10, 10, 30};
+        assertTrue(layout.layout(centers, widths, 4, 0, 100, 2, lefts));
+        assertArrayEquals(new float[]{0, 12, 24, 70}, lefts, 0);
+    }
+
+    @Test
+    public void keepsAWideLabelInsideTheBounds() {
+        assertFalse(layout.layout(new float[]{95}, new float[]{30}, 1, 0, 100, 2, lefts));
+        assertArrayEquals(new float[]{70, 0, 0, 0}, lefts, 0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        long[] values = {1, 7, 8, 9, 15, 16, 17, 1000, 16666667, 123456789012L};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long upperBound = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(value + " <= " + upperBound, value <= upperBound);
+            assertTrue(upperBound - value <= value / LatencyHistogram.SUB_BUCKETS);
+            if (bucket > 0) {
+                assertTrue(value > LatencyHistogram.upperBoundOf(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinOneSubBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean());
+        assertWithin(500000, histogram.getPercentile(50));
+        assertWithin(990000, histogram.getPercentile(99));
+        assertEquals(1000000, histogram.getPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " ~ " + actual, actual >= expected
+                && actual <= expected + expected / LatencyHistogram.SUB_BUCKETS);
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(i + offset);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400000, histogram.getCount());
+        assertEquals(99999 + 3, histogram.getMax());
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        AllocationCounter counter = new AllocationCounter();
+        assumeTrue(counter.isSupported());
+        final AggregatingMetrics metrics = new AggregatingMetrics();
+        long bytes = counter.measure(new Runnable() {
+            @Override
+            public void run() {
+                metrics.onTrackingStart(0);
+                for (int i = 1; i <= 100; i++) {
+                    metrics.onTouchEvent(i * 1000);
+                    metrics.onListenerCall(i * 100);
+                    metrics.onInvalidate();
+                    metrics.onAnimationFrame(i * FakeFrameClock.FRAME_NANOS);
+                    metrics.onDraw(i * FakeFrameClock.FRAME_NANOS, 2000000);
+                }
+            }
+        });
+        assertEquals(0, bytes);
+    }
+
+    @Test
+    public void largestFrameGapIsMeasuredWhileTracking() {
+        AggregatingMetrics metrics = new AggregatingMetrics();
+        final AggregatingMetrics.Summary[] summaries = new AggregatingMetrics.Summary[1];
+        metrics.setSummaryListener(new AggregatingMetrics.SummaryListener() {
+            @Override
+            public void onSummary(AggregatingMetrics.Summary summary) {
+                summaries[0] = summary;
+            }
+        });
+        // draws outside of a drag do not count as gaps
+        metrics.onDraw(0, 1000);
+        metrics.onDraw(500000000, 1000);
+
+        metrics.onTrackingStart(1000000000);
+        metrics.onDraw(1010000000, 1000);
+        metrics.onDraw(1026000000, 1000);
+        metrics.onDraw(1076000000, 1000);
+        metrics.onDraw(1092000000, 1000);
+        metrics.onTrackingStop(1100000000);
+
+        AggregatingMetrics.Summary summary = summaries[0];
+        assertEquals(6, summary.draws);
+        assertEquals(1, summary.drags);
+        assertEquals(50000000, summary.maxFrameGap);
+        assertEquals(4, metrics.getFrameGapHistogram().getCount());
+    }
+}
@@ -0,0 +1,105 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class PackedRangeStatesTest {
+
+    private final int[] out = new int[RangeModel.MAX_THUMB_COUNT];
+
+    private int[] get(PackedRangeStates states, int position) {
+        int thumbCount = states.getIndices(position, out);
+        int[] indices = new int[thumbCount];
+        System.arraycopy(out, 0, indices, 0, thumbCount);
+        return indices;
+    }
+
+    @Test
+    public void putAndGet() {
+        PackedRangeStates states = new PackedRangeStates(4);
+        states.put(0, 100, new int[]{10, 20}, 2);
+        states.put(7, 1000, new int[]{1, 2, 3, 4}, 4);
+        assertEquals(8, states.size());
+        assertArrayEquals(new int[]{10, 20}, get(states, 0));
+        assertArrayEquals(new int[]{1, 2, 3, 4}, get(states, 7));
+        assertEquals(1000, states.getTickCount(7));
+        assertFalse(states.contains(3));
+        assertEquals(0, states.getIndices(3, out));
+        assertFalse(states.contains(8));
+
+        states.put(0, 50, new int[]{5, 6}, 2);
+        assertArrayEquals(new int[]{5, 6}, get(states, 0));
+        states.remove(0);
+        assertFalse(states.contains(0));
+    }
+
+    @Test
+    public void insertAndRemoveShiftPositions() {
+        PackedRangeStates states = new PackedRangeStates(2);
+        for (int i = 0; i < 5; i++) {
+            states.put(i, 100, new int[]{i, 50 + i}, 2);
+        }
+        states.insertRange(1, 2);
+        assertEquals(7, states.size());
+        assertFalse(states.contains(1));
+        assertFalse(states.contains(2));
+        assertArrayEquals(new int[]{1, 51}, get(states, 3));
+
+        states.removeRange(0, 3);
+        assertEquals(4, states.size());
+        assertArrayEquals(new int[]{1, 51}, get(states, 0));
+        assertArrayEquals(new int[]{4, 54}, get(states, 3));
+        // positions freed at the end hold no stale state
+        states.put(6, 100, new int[]{0, 1}, 2);
+        assertFalse(states.contains(4));
+        assertFalse(states.contains(5));
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        PackedRangeStates states = new PackedRangeStates(2);
+        states.put(3, 100, new int[]{1, 2}, 2);
+        states.clear();
+        states.put(5, 100, new int[]{1, 2}, 2);
+        assertFalse(states.contains(3));
+        assertTrue(states.contains(5));
+    }
+
+    @Test
+    public void dataRoundTrip() {
+        PackedRangeStates states = new PackedRangeStates(3);
+        states.put(2, 300, new int[]{7, 8, 9}, 3);
+        PackedRangeStates copy = new PackedRangeStates(3, states.getData().clone(), states.size());
+        assertArrayEquals(new int[]{7, 8, 9}, get(copy, 2));
+        assertFalse(copy.contains(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyThumbs() {
+        new PackedRangeStates(2).put(0, 100, new int[]{1, 2, 3}, 3);
+    }
+
+    @Test
+    public void bindAndUnbindDoNotAllocate() {
+        AllocationCounter counter = new AllocationCounter();
+        assumeTrue(counter.isSupported());
+        final PackedRangeStates states = new PackedRangeStates(2);
+        final int[] indices = {10, 20};
+        states.put(999, 100, indices, 2);
+        long bytes = counter.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int position = 0; position < 1000; position++) {
+                    states.put(position, 100, indices, 2);
+                    states.getIndices(position, out);
+                }
+            }
+        });
+        assertEquals(0, bytes);
+    }
+}
@@ -0,0 +1,354 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class RangeControllerTest {
+
+    private static final long MS = 1000000L;
+
+    private FakeFrameClock dispatchClock;
+    private FakeFrameClock animationClock;
+    private RangeController controller;
+    private int rangeChanges;
+    private int startTracking;
+    private int stopTracking;
+    private int animationFrames;
+    private int[] lastIndices;
+
+    @Before
+    public void setUp() {
+        dispatchClock = new FakeFrameClock(0);
+        animationClock = new FakeFrameClock(0);
+        controller = new RangeController(101, 2, dispatchClock, animationClock, new RangeController.Host() {
+            @Override
+            public void dispatchRangeChange(int[] indices) {
+                rangeChanges++;
+                lastIndices = indices.clone();
+            }
+
+            @Override
+            public void dispatchStartTracking() {
+                startTracking++;
+            }
+
+            @Override
+            public void dispatchStopTracking() {
+                stopTracking++;
+            }
+
+            @Override
+            public void onAnimationFrame(long frameTimeNanos) {
+                animationFrames++;
+            }
+        });
+        controller.getModel().getGeometry().setBounds(0, 1000);
+        controller.getModel().layout();
+    }
+
+    @Test
+    public void downHitsThumbWithinTouchRadius() {
+        controller.setTouchRadius(20);
+        assertEquals(RangeModel.NO_THUMB, controller.onDown(0, 25));
+        assertFalse(controller.isPressed());
+        assertEquals(0, startTracking);
+
+        assertEquals(RangeModel.LEFT, controller.onDown(0, 15));
+        assertTrue(controller.isPressed());
+        assertEquals(1, startTracking);
+    }
+
+    @Test
+    public void dragAndRelease() {
+        controller.onDown(0, 0);
+        assertTrue((controller.onMove(8 * MS, 203) & RangeModel.CHANGED_INDEX) != 0);
+        assertEquals(1, rangeChanges);
+        assertEquals(20, lastIndices[0]);
+
+        assertFalse(controller.onUp(16 * MS, false));
+        assertFalse(controller.isPressed());
+        assertEquals(1, stopTracking);
+        assertEquals(200f, controller.getModel().getThumbX(RangeModel.LEFT), 1e-3f);
+        assertEquals(20, controller.getLeftIndex());
+    }
+
+    @Test
+    public void samplePolicy() {
+        controller.onDown(0, 0);
+        controller.beginMove();
+        controller.addMoveSample(4 * MS, 100);
+        controller.addMoveSample(8 * MS, 200);
+        controller.addMoveSample(12 * MS, 300);
+        controller.endMove();
+        assertEquals(3, rangeChanges);
+
+        controller.setTouchSamplePolicy(RangeController.SAMPLES_COLLAPSE);
+        controller.beginMove();
+        controller.addMoveSample(16 * MS, 400);
+        controller.addMoveSample(20 * MS, 500);
+        controller.addMoveSample(24 * MS, 600);
+        assertTrue((controller.endMove() & RangeModel.CHANGED_INDEX) != 0);
+        assertEquals(4, rangeChanges);
+        assertEquals(60, lastIndices[0]);
+    }
+
+    @Test
+    public void perFrameDispatchCoalescesDrag() {
+        controller.getDispatcher().setMode(RangeDispatcher.MODE_PER_FRAME);
+        controller.onDown(0, 0);
+        controller.onMove(4 * MS, 100);
+        controller.onMove(8 * MS, 200);
+        assertEquals(0, rangeChanges);
+
+        dispatchClock.frame();
+        assertEquals(1, rangeChanges);
+        assertEquals(20, lastIndices[0]);
+        controller.onUp(16 * MS, false);
+        assertEquals(1, rangeChanges);
+    }
+
+    @Test
+    public void onReleaseDispatchWaitsForUp() {
+        controller.getDispatcher().setMode(RangeDispatcher.MODE_ON_RELEASE);
+        controller.onDown(0, 0);
+        controller.onMove(4 * MS, 100);
+        controller.onMove(8 * MS, 300);
+        dispatchClock.runUntilIdle(10);
+        assertEquals(0, rangeChanges);
+
+        controller.onUp(16 * MS, true);
+        assertEquals(1, rangeChanges);
+        assertEquals(30, lastIndices[0]);
+        assertEquals(1, stopTracking);
+    }
+
+    @Test
+    public void hostAnimationsRunOnControllerScheduler() {
+        final int[] steps = new int[1];
+        controller.getAnimationScheduler().start(new AnimationScheduler.Animation() {
+            @Override
+            public boolean onFrame(long frameTimeNanos) {
+                return ++steps[0] < 3;
+            }
+        });
+        assertEquals(3, animationClock.runUntilIdle(10));
+        assertEquals(3, steps[0]);
+        assertEquals(3, animationFrames);
+        assertEquals(0, dispatchClock.getFrameCount());
+    }
+
+    @Test
+    public void flingNeedsMinVelocity() {
+        controller.setFlingEnabled(true);
+        controller.setFlingVelocityRange(500, 8000);
+        controller.onDown(0, 0);
+        controller.onMove(8 * MS, 100);
+        assertFalse(controller.release(400));
+        assertEquals(1, stopTracking);
+
+        controller.setFlingVelocityRange(100, 8000);
+        controller.onDown(16 * MS, 100);
+        assertTrue(controller.release(400));
+        assertTrue(controller.isFlinging());
+    }
+
+    @Test
+    public void flingTracksUntilItEnds() {
+        controller.setFlingEnabled(true);
+        controller.setFlingDeceleration(10000);
+        controller.onDown(0, 0);
+        for (int i = 1; i <= 5; i++) {
+            controller.onMove(i * 8 * MS, i * 16);
+        }
+        assertTrue(controller.onUp(48 * MS, false));
+        assertTrue(controller.isFlinging());
+        assertFalse(controller.isPressed());
+        assertEquals(0, stopTracking);
+
+        animationClock.runUntilIdle(1000);
+        assertFalse(controller.isFlinging());
+        assertTrue(animationFrames > 0);
+        assertEquals(1, stopTracking);
+        assertEquals(RangeModel.NO_THUMB, controller.getModel().getPressedThumb());
+        assertTrue(controller.getModel().getLeftIndex() > 8);
+    }
+
+    @Test
+    public void canceledGestureDoesNotFling() {
+        controller.setFlingEnabled(true);
+        controller.onDown(0, 0);
+        for (int i = 1; i <= 5; i++) {
+            controller.onMove(i * 8 * MS, i * 16);
+        }
+        assertFalse(controller.onUp(48 * MS, true));
+        assertEquals(1, stopTracking);
+    }
+
+    @Test
+    public void downStopsFling() {
+        controller.setFlingEnabled(true);
+        controller.onDown(0, 0);
+        controller.onMove(8 * MS, 100);
+        controller.onMove(16 * MS, 200);
+        assertTrue(controller.release(3000));
+
+        assertEquals(RangeModel.RIGHT, controller.onDown(100 * MS, 1000));
+        assertFalse(controller.isFlinging());
+        assertEquals(1, stopTracking);
+        assertEquals(2, startTracking);
+        assertEquals(RangeModel.RIGHT, controller.getModel().getPressedThumb());
+    }
+
+    @Test
+    public void downReleasesThumbWhoseUpWasLost() {
+        controller.setFlingEnabled(true);
+        controller.setTouchPredictor(new TouchPredictor());
+        controller.onDown(0, 0);
+        for (int i = 1; i <= 5; i++) {
+            controller.onMove(i * 8 * MS, i * 40);
+        }
+
+        // no up, the next down misses every thumb
+        assertEquals(RangeModel.NO_THUMB, controller.onDown(100 * MS, 700));
+        assertFalse(controller.isPressed());
+        assertFalse(controller.isFlinging());
+        assertEquals(0, controller.getDrawOffset(), 0);
+        assertEquals(1, stopTracking);
+        assertEquals(20, controller.getLeftIndex());
+        assertEquals(200f, controller.getModel().getThumbX(RangeModel.LEFT), 1e-3f);
+
+        assertEquals(RangeModel.LEFT, controller.onDown(200 * MS, 200));
+        assertEquals(2, startTracking);
+    }
+
+    @Test
+    public void predictionOnlyShiftsTheDrawing() {
+        controller.setTouchPredictor(new TouchPredictor());
+        controller.onDown(0, 0);
+        for (int i = 1; i <= 6; i++) {
+            controller.onMove(i * 8 * MS, i * 20);
+        }
+        assertTrue(controller.getDrawOffset() > 0);
+        assertEquals(120f, controller.getModel().getThumbX(RangeModel.LEFT), 1e-3f);
+        assertEquals(12, lastIndices[0]);
+
+        controller.onUp(56 * MS, true);
+        assertEquals(0, controller.getDrawOffset(), 0);
+    }
+
+    @Test
+    public void queuedUpdatesApplyOnOwner() {
+        assertTrue(controller.setLeftIndex(20));
+        assertFalse(controller.setRightIndex(30));
+        assertEquals(0, controller.getLeftIndex());
+
+        int applied = controller.applyUpdates();
+        assertEquals(RangeUpdateQueue.APPLIED_INDICES, applied);
+        assertEquals(20, controller.getLeftIndex());
+        assertEquals(30, controller.getRightIndex());
+        assertEquals(0, controller.applyUpdates());
+        // programmatic changes are not reported to the listener
+        assertEquals(0, rangeChanges);
+    }
+
+    @Test
+    public void thumbCountUpdateReleasesPressedThumb() {
+        controller.onDown(0, 0);
+        controller.onMove(8 * MS, 100);
+        controller.setThumbCount(3);
+        controller.applyUpdates();
+        assertFalse(controller.isPressed());
+        assertEquals(3, controller.getThumbCount());
+        assertEquals(1, stopTracking);
+        assertNotEquals(RangeModel.NO_THUMB, controller.onDown(16 * MS, 500));
+    }
+
+    @Test
+    public void publisherFollowsQueuedAndDraggedChanges() {
+        final List<String> events = new ArrayList<String>();
+        controller.getRangePublisher().subscribe(new RangePublisher.Subscriber() {
+            @Override
+            public void onSubscribe(RangePublisher.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(long event) {
+                events.add(RangePublisher.leftIndexOf(event) + "-" + RangePublisher.rightIndexOf(event));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        });
+        controller.setLeftIndex(20);
+        controller.setRightIndex(30);
+        controller.applyUpdates();
+        controller.setIndices(new int[]{30, 40}, 2);
+        controller.applyUpdates();
+        // an update keeping the range emits nothing
+        controller.setTickCount(101);
+        controller.applyUpdates();
+        controller.onDown(0, 400);
+        controller.onMove(8 * MS, 500);
+        assertEquals("[0-100, 20-30, 30-40, 30-50]", events.toString());
+    }
+
+    @Test
+    public void rangeStateOverridesQueuedUpdates() {
+        controller.setRange(10, 20);
+        controller.setThumbCount(3);
+        int applied = controller.applyRangeState(51, new int[]{40, 5, 99}, 2);
+        assertEquals(RangeUpdateQueue.APPLIED_THUMB_COUNT | RangeUpdateQueue.APPLIED_TICK_COUNT
+                | RangeUpdateQueue.APPLIED_INDICES, applied);
+        assertFalse(controller.hasPendingUpdates());
+        assertEquals(51, controller.getTickCount());
+        assertEquals(2, controller.getThumbCount());
+        assertEquals(5, controller.getLeftIndex());
+        assertEquals(40, controller.getRightIndex());
+        try {
+            controller.applyRangeState(51, new int[]{5, 51}, 2);
+            throw new AssertionError();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(40, controller.getRightIndex());
+    }
+
+    @Test
+    public void rangeStateDoesNotAllocate() {
+        AllocationCounter counter = new AllocationCounter();
+        assumeTrue(counter.isSupported());
+        controller.getRangePublisher();
+        final int[][] states = {{3, 30, 0, 0}, {70, 80, 0, 0}};
+        long bytes = counter.measure(new Runnable() {
+            private int mRound;
+
+            @Override
+            public void run() {
+                // recycled rows with the same thumb count and different tick counts
+                mRound++;
+                controller.applyRangeState(mRound % 2 == 0 ? 101 : 90, states[mRound % 2], 2);
+            }
+        });
+        assertEquals(0, bytes);
+    }
+}
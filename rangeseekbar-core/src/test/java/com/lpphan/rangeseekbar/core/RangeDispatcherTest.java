@@ -0,0 +1,121 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RangeDispatcherTest {
+
+    private FakeFrameClock clock;
+    private RangeDispatcher dispatcher;
+    private final StringBuilder events = new StringBuilder();
+
+    @Before
+    public void setUp() {
+        clock = new FakeFrameClock(0);
+        dispatcher = new RangeDispatcher(clock, new RangeDispatcher.Target() {
+            @Override
+            public void dispatchRangeChange(int[] indices) {
+                for (int i = 0; i < indices.length; i++) {
+                    events.append(i == 0 ? "" : "-").append(indices[i]);
+                }
+                events.append(' ');
+            }
+
+            @Override
+            public void dispatchStartTracking() {
+                events.append("start ");
+            }
+
+            @Override
+            public void dispatchStopTracking() {
+                events.append("stop ");
+            }
+        });
+    }
+
+    @Test
+    public void immediateDispatchesEveryChange() {
+        change(1, 9);
+        change(2, 9);
+        assertEquals("1-9 2-9 ", events.toString());
+        assertFalse(clock.hasPendingFrame());
+    }
+
+    @Test
+    public void perFrameKeepsLatestChange() {
+        dispatcher.setMode(RangeDispatcher.MODE_PER_FRAME);
+        change(1, 9);
+        change(2, 9);
+        change(3, 8);
+        assertEquals("", events.toString());
+
+        clock.frame();
+        assertEquals("3-8 ", events.toString());
+        assertFalse(clock.hasPendingFrame());
+    }
+
+    @Test
+    public void throttledWaitsForInterval() {
+        dispatcher.setMode(RangeDispatcher.MODE_THROTTLED);
+        dispatcher.setThrottleInterval(100);
+        change(1, 9);
+        clock.advance(10 * 1000000L);
+        change(2, 9);
+        change(3, 9);
+        assertEquals("1-9 ", events.toString());
+
+        // 10 + 5 * 16.7 ms < 100 ms
+        for (int i = 0; i < 5; i++) {
+            clock.frame();
+        }
+        assertEquals("1-9 ", events.toString());
+
+        clock.runUntilIdle(10);
+        assertEquals("1-9 3-9 ", events.toString());
+        assertTrue(clock.nanoTime() >= 100 * 1000000L);
+    }
+
+    @Test
+    public void onReleaseDeliversLatestBeforeStop() {
+        dispatcher.setMode(RangeDispatcher.MODE_ON_RELEASE);
+        dispatcher.startTracking();
+        change(1, 9);
+        change(4, 9);
+        clock.runUntilIdle(10);
+        dispatcher.stopTracking();
+        assertEquals("start 4-9 stop ", events.toString());
+    }
+
+    @Test
+    public void stopTrackingFlushesPendingFrame() {
+        dispatcher.setMode(RangeDispatcher.MODE_PER_FRAME);
+        dispatcher.startTracking();
+        change(5, 6);
+        dispatcher.stopTracking();
+        assertEquals("start 5-6 stop ", events.toString());
+        assertFalse(clock.hasPendingFrame());
+    }
+
+    @Test
+    public void pendingChangeIsCopied() {
+        dispatcher.setMode(RangeDispatcher.MODE_PER_FRAME);
+        int[] indices = {1, 4, 9};
+        dispatcher.onRangeChange(indices);
+        indices[1] = 7;
+        clock.frame();
+        assertEquals("1-4-9 ", events.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownMode() {
+        dispatcher.setMode(7);
+    }
+
+    private void change(int leftIndex, int rightIndex) {
+        dispatcher.onRangeChange(new int[]{leftIndex, rightIndex});
+    }
+}
@@ -0,0 +1,214 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RangeModelTest {
+
+    private RangeModel model;
+    private int changeCount;
+    private int[] reportedIndices;
+
+    @Before
+    public void setUp() {
+        model = new RangeModel(11);
+        model.getGeometry().setBounds(0, 100);
+        model.layout();
+        model.setOnRangeChangeListener(new RangeModel.OnRangeChangeListener() {
+            @Override
+            public void onRangeChange(RangeModel model, int[] indices) {
+                changeCount++;
+                if (reportedIndices != null) {
+                    assertSame(reportedIndices, indices);
+                }
+                reportedIndices = indices;
+            }
+        });
+    }
+
+    @Test
+    public void startsWithFullRange() {
+        assertEquals(0, model.getLeftIndex());
+        assertEquals(10, model.getRightIndex());
+        assertEquals(100f, model.getThumbX(RangeModel.RIGHT), 1e-4f);
+    }
+
+    @Test
+    public void hitTestPrefersThumbThatCanMoveInward() {
+        assertEquals(RangeModel.LEFT, model.hitTest(3, 5));
+        assertEquals(RangeModel.RIGHT, model.hitTest(97, 5));
+        assertEquals(RangeModel.NO_THUMB, model.hitTest(50, 5));
+
+        model.setLeftIndex(10);
+        assertEquals(RangeModel.LEFT, model.hitTest(100, 5));
+    }
+
+    @Test
+    public void dragReportsIndexChangesOnly() {
+        model.press(RangeModel.LEFT);
+        assertEquals(RangeModel.CHANGED_POSITION, model.drag(2));
+        assertEquals(0, changeCount);
+
+        int changes = model.drag(21);
+        assertTrue((changes & RangeModel.CHANGED_INDEX) != 0);
+        assertEquals(2, model.getLeftIndex());
+        assertEquals(1, changeCount);
+    }
+
+    @Test
+    public void dragIgnoresPositionsOutsideOfTrack() {
+        model.press(RangeModel.LEFT);
+        assertEquals(0, model.drag(-1));
+        assertEquals(0f, model.getThumbX(RangeModel.LEFT), 0f);
+    }
+
+    @Test
+    public void crossingSwapsThumbs() {
+        model.setRightIndex(5);
+        model.press(RangeModel.LEFT);
+
+        int changes = model.drag(80);
+        assertTrue((changes & RangeModel.CHANGED_ORDER) != 0);
+        assertEquals(RangeModel.RIGHT, model.getPressedThumb());
+        assertEquals(5, model.getLeftIndex());
+        assertEquals(8, model.getRightIndex());
+    }
+
+    @Test
+    public void releaseSnapsToTick() {
+        model.press(RangeModel.RIGHT);
+        model.drag(73);
+        assertEquals(RangeModel.RIGHT, model.release());
+        assertEquals(RangeModel.NO_THUMB, model.getPressedThumb());
+        assertEquals(70f, model.getThumbX(RangeModel.RIGHT), 1e-4f);
+    }
+
+    @Test
+    public void settersPushPassedThumbs() {
+        model.setRightIndex(3);
+        model.setLeftIndex(6);
+        assertEquals(6, model.getLeftIndex());
+        assertEquals(6, model.getRightIndex());
+        assertEquals(RangeModel.LEFT, model.getThumbId(RangeModel.LEFT));
+    }
+
+    @Test
+    public void leftThenRightPastCurrentRange() {
+        model.setTickCount(100);
+        model.setRange(0, 10);
+        model.setLeftIndex(20);
+        model.setRightIndex(30);
+        assertEquals(20, model.getLeftIndex());
+        assertEquals(30, model.getRightIndex());
+
+        // and back below the current range
+        model.setRightIndex(5);
+        model.setLeftIndex(2);
+        assertEquals(2, model.getLeftIndex());
+        assertEquals(5, model.getRightIndex());
+    }
+
+    @Test
+    public void setRangeClampsMiddleThumbs() {
+        model.setThumbCount(4);
+        model.setRange(4, 6);
+        int[] indices = new int[4];
+        model.getIndices(indices);
+        assertArrayEquals(new int[]{4, 4, 6, 6}, indices);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setRangeRejectsInvertedRange() {
+        model.setRange(6, 3);
+    }
+
+    @Test
+    public void tickCountChangeClampsIndices() {
+        model.setTickCount(5);
+        assertEquals(4, model.getRightIndex());
+        assertEquals(100f, model.getThumbX(RangeModel.RIGHT), 1e-4f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIndexPastTickCount() {
+        model.setRightIndex(11);
+    }
+
+    @Test
+    public void batchReportsFinalIndicesOnce() {
+        model.press(RangeModel.LEFT);
+        model.beginBatch();
+        model.drag(11);
+        model.drag(21);
+        model.drag(31);
+        assertEquals(0, changeCount);
+        assertTrue(model.endBatch());
+        assertEquals(1, changeCount);
+        assertEquals(3, reportedIndices[0]);
+    }
+
+    @Test
+    public void batchEndingOnStartIndicesReportsNothing() {
+        model.press(RangeModel.LEFT);
+        model.beginBatch();
+        model.drag(21);
+        model.drag(1);
+        assertFalse(model.endBatch());
+        assertEquals(0, changeCount);
+    }
+
+    @Test
+    public void thumbsAreSpreadOverTicks() {
+        model.setThumbCount(4);
+        assertEquals(4, model.getThumbCount());
+        int[] indices = new int[4];
+        model.getIndices(indices);
+        assertArrayEquals(new int[]{0, 3, 7, 10}, indices);
+    }
+
+    @Test
+    public void hitTestFindsNearestOfManyThumbs() {
+        model.setThumbCount(4);
+        assertEquals(1, model.hitTest(32, 5));
+        assertEquals(2, model.hitTest(68, 5));
+        assertEquals(RangeModel.NO_THUMB, model.hitTest(50, 5));
+
+        // thumbs 1 and 2 stacked on the left half, the upper one can move toward the middle
+        model.setIndex(2, 3);
+        assertEquals(2, model.hitTest(30, 5));
+    }
+
+    @Test
+    public void crossingSeveralThumbsKeepsIdsAndReusesArray() {
+        model.setThumbCount(4);
+        model.press(0);
+        model.drag(51);
+        int changes = model.drag(81);
+        assertTrue((changes & RangeModel.CHANGED_ORDER) != 0);
+        assertEquals(2, model.getPressedThumb());
+        assertEquals(0, model.getThumbId(2));
+        assertEquals(1, model.getThumbId(0));
+        assertArrayEquals(new int[]{3, 7, 8, 10}, reportedIndices);
+        assertEquals(2, changeCount);
+    }
+
+    @Test
+    public void setIndicesSortsThem() {
+        model.setThumbCount(3);
+        model.setIndices(new int[]{9, 2, 5});
+        assertEquals(2, model.getLeftIndex());
+        assertEquals(5, model.getIndex(1));
+        assertEquals(9, model.getRightIndex());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooManyThumbs() {
+        model.setThumbCount(RangeModel.MAX_THUMB_COUNT + 1);
+    }
+}
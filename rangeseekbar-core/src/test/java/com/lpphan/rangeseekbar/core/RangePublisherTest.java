@@ -0,0 +1,251 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RangePublisherTest {
+
+    private final RangePublisher publisher = new RangePublisher();
+    private final ManualExecutor executor = new ManualExecutor();
+    private final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    @Test
+    public void packsIndices() {
+        long event = RangePublisher.pack(7, Integer.MAX_VALUE);
+        assertTrue(event >= 0);
+        assertEquals(7, RangePublisher.leftIndexOf(event));
+        assertEquals(Integer.MAX_VALUE, RangePublisher.rightIndexOf(event));
+    }
+
+    @Test
+    public void conflatesWhileThereIsNoDemand() {
+        publisher.emit(RangePublisher.pack(0, 9));
+        publisher.subscribe(subscriber, executor);
+        executor.runAll();
+        assertEquals("subscribe ", subscriber.log.toString());
+
+        publisher.emit(RangePublisher.pack(1, 9));
+        publisher.emit(RangePublisher.pack(2, 9));
+        assertEquals(0, executor.tasks.size());
+        subscriber.subscription.request(1);
+        executor.runAll();
+        assertEquals("subscribe 2-9 ", subscriber.log.toString());
+
+        // no demand left, the next ranges wait and collapse
+        publisher.emit(RangePublisher.pack(3, 9));
+        publisher.emit(RangePublisher.pack(4, 8));
+        executor.runAll();
+        assertEquals("subscribe 2-9 ", subscriber.log.toString());
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+        publisher.emit(RangePublisher.pack(5, 8));
+        executor.runAll();
+        assertEquals("subscribe 2-9 4-8 5-8 ", subscriber.log.toString());
+    }
+
+    @Test
+    public void schedulesOnceUntilTheSubscriberCaughtUp() {
+        publisher.subscribe(subscriber, executor);
+        executor.runAll();
+        subscriber.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+        for (int i = 0; i < 100; i++) {
+            publisher.emit(RangePublisher.pack(i, 100));
+            assertTrue(subscriber.subscription.isStale());
+        }
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals("subscribe 99-100 ", subscriber.log.toString());
+        assertFalse(subscriber.subscription.isStale());
+    }
+
+    @Test
+    public void emitsWithoutAllocating() {
+        AllocationCounter counter = new AllocationCounter();
+        if (!counter.isSupported()) {
+            return;
+        }
+        publisher.subscribe(subscriber, executor);
+        executor.runAll();
+        subscriber.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+        publisher.emit(0);
+        // the drain task is queued, emits only replace the pending range
+        long bytes = counter.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    publisher.emit(RangePublisher.pack(i, i + 1));
+                }
+            }
+        });
+        assertEquals(0, bytes);
+    }
+
+    @Test
+    public void cancelStopsDeliveries() {
+        publisher.subscribe(subscriber, executor);
+        executor.runAll();
+        subscriber.subscription.request(5);
+        subscriber.subscription.cancel();
+        assertEquals(0, publisher.getSubscriberCount());
+        publisher.emit(RangePublisher.pack(1, 2));
+        executor.runAll();
+        assertEquals("subscribe ", subscriber.log.toString());
+        assertTrue(subscriber.subscription.isStale());
+    }
+
+    @Test
+    public void invalidRequestSignalsAnError() {
+        publisher.subscribe(subscriber, executor);
+        executor.runAll();
+        subscriber.subscription.request(0);
+        executor.runAll();
+        publisher.emit(RangePublisher.pack(1, 2));
+        executor.runAll();
+        assertEquals("subscribe error ", subscriber.log.toString());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void completesAfterTheLatestRange() {
+        publisher.subscribe(subscriber, executor);
+        executor.runAll();
+        publisher.emit(RangePublisher.pack(1, 2));
+        publisher.complete();
+        publisher.emit(RangePublisher.pack(3, 4));
+        executor.runAll();
+        assertEquals("subscribe ", subscriber.log.toString());
+        subscriber.subscription.request(10);
+        executor.runAll();
+        assertEquals("subscribe 1-2 complete ", subscriber.log.toString());
+    }
+
+    @Test
+    public void deliversInOrderToASlowSubscriber() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        final CountDownLatch last = new CountDownLatch(1);
+        final int count = 200000;
+        final long[] previous = {-1};
+        final boolean[] ordered = {true};
+        publisher.subscribe(new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(RangePublisher.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(long event) {
+                // signals are serialized, plain fields are enough
+                ordered[0] &= event > previous[0];
+                previous[0] = event;
+                if (RangePublisher.rightIndexOf(event) == count - 1) {
+                    last.countDown();
+                }
+            }
+        }, pool);
+        for (int i = 0; i < count; i++) {
+            publisher.emit(RangePublisher.pack(0, i));
+        }
+        assertTrue(last.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertTrue(ordered[0]);
+    }
+
+    @Test
+    public void subscribersRacingEmitsEndOnTheLatestRange() throws InterruptedException {
+        final int count = 100000;
+        Thread emitter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    publisher.emit(RangePublisher.pack(0, i));
+                }
+            }
+        });
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        };
+        LatestSubscriber[] subscribers = new LatestSubscriber[200];
+        emitter.start();
+        for (int i = 0; i < subscribers.length; i++) {
+            subscribers[i] = new LatestSubscriber();
+            publisher.subscribe(subscribers[i], direct);
+        }
+        emitter.join();
+        for (LatestSubscriber latest : subscribers) {
+            assertEquals(RangePublisher.pack(0, count - 1), latest.event.get());
+        }
+    }
+
+    private static class LatestSubscriber extends RecordingSubscriber {
+        final AtomicLong event = new AtomicLong(-1);
+
+        @Override
+        public void onSubscribe(RangePublisher.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(long event) {
+            this.event.set(event);
+        }
+    }
+
+    private static class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    private static class RecordingSubscriber implements RangePublisher.Subscriber {
+        final StringBuilder log = new StringBuilder();
+        RangePublisher.Subscription subscription;
+
+        @Override
+        public void onSubscribe(RangePublisher.Subscription subscription) {
+            this.subscription = subscription;
+            log.append("subscribe ");
+        }
+
+        @Override
+        public void onNext(long event) {
+            log.append(RangePublisher.leftIndexOf(event)).append('-')
+                    .append(RangePublisher.rightIndexOf(event)).append(' ');
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            log.append("error ");
+        }
+
+        @Override
+        public void onComplete() {
+            log.append("complete ");
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RangeUpdateQueueTest {
+
+    private RangeModel model;
+    private AtomicRangeState state;
+    private RangeUpdateQueue queue;
+
+    @Before
+    public void setUp() {
+        model = new RangeModel(100);
+        state = new AtomicRangeState(model);
+        queue = new RangeUpdateQueue(state);
+    }
+
+    private int apply() {
+        int applied = queue.apply(model);
+        state.publish(model);
+        return applied;
+    }
+
+    @Test
+    public void onlyFirstUpdateSchedules() {
+        assertTrue(queue.setLeftIndex(10));
+        assertFalse(queue.setRightIndex(80));
+        assertFalse(queue.setLeftIndex(30));
+        assertEquals(RangeUpdateQueue.APPLIED_INDICES, apply());
+        assertEquals(30, state.getLeftIndex());
+        assertEquals(80, state.getRightIndex());
+        assertEquals(0, apply());
+        assertTrue(queue.setRightIndex(50));
+    }
+
+    @Test
+    public void laterIndicesReplaceEarlierOnes() {
+        queue.setLeftIndex(10);
+        queue.setIndices(new int[]{40, 30});
+        apply();
+        assertEquals(30, state.getLeftIndex());
+        assertEquals(40, state.getRightIndex());
+
+        queue.setIndices(new int[]{40, 30});
+        queue.setRightIndex(90);
+        apply();
+        assertEquals(30, state.getLeftIndex());
+        assertEquals(90, state.getRightIndex());
+    }
+
+    @Test
+    public void indicesAreCheckedAgainstPendingCounts() {
+        queue.setTickCount(1000);
+        queue.setRightIndex(500);
+        queue.setThumbCount(3);
+        queue.setIndices(new int[]{1, 2, 999});
+        assertEquals(RangeUpdateQueue.APPLIED_THUMB_COUNT | RangeUpdateQueue.APPLIED_TICK_COUNT
+                | RangeUpdateQueue.APPLIED_INDICES, apply());
+        int[] indices = new int[RangeModel.MAX_THUMB_COUNT];
+        long counts = state.read(indices);
+        assertEquals(1000, AtomicRangeState.tickCountOf(counts));
+        assertEquals(3, AtomicRangeState.thumbCountOf(counts));
+        assertEquals(999, indices[2]);
+    }
+
+    @Test
+    public void mergedLeftThenRightPastCurrentRange() {
+        model.setRange(0, 10);
+        state.publish(model);
+        queue.setLeftIndex(20);
+        queue.setRightIndex(30);
+        apply();
+        assertEquals(20, state.getLeftIndex());
+        assertEquals(30, state.getRightIndex());
+
+        // right then left below the range, in the order requested
+        queue.setRightIndex(5);
+        queue.setLeftIndex(2);
+        apply();
+        assertEquals(2, state.getLeftIndex());
+        assertEquals(5, state.getRightIndex());
+
+        queue.setRange(60, 70);
+        apply();
+        assertEquals(60, state.getLeftIndex());
+        assertEquals(70, state.getRightIndex());
+    }
+
+    @Test
+    public void leftThenRightAppliedOnSeparateFrames() {
+        // SurfaceRangeBar wakes its render thread on the first request, which may apply the left
+        // index before the right one is queued
+        model.setRange(0, 10);
+        state.publish(model);
+        queue.setLeftIndex(20);
+        apply();
+        assertEquals(20, state.getLeftIndex());
+        assertEquals(20, state.getRightIndex());
+        queue.setRightIndex(30);
+        apply();
+        assertEquals(20, state.getLeftIndex());
+        assertEquals(30, state.getRightIndex());
+
+        queue.setRightIndex(5);
+        apply();
+        queue.setLeftIndex(2);
+        apply();
+        assertEquals(2, state.getLeftIndex());
+        assertEquals(5, state.getRightIndex());
+    }
+
+    @Test
+    public void leftThenRightKeepsMiddleThumbsInside() {
+        model.setThumbCount(4);
+        model.setIndices(new int[]{0, 3, 6, 10});
+        state.publish(model);
+        queue.setLeftIndex(20);
+        queue.setRightIndex(30);
+        apply();
+        int[] indices = new int[4];
+        model.getIndices(indices);
+        assertEquals("[20, 20, 20, 30]", Arrays.toString(indices));
+    }
+
+    @Test
+    public void renderThreadApplyingBetweenLeftAndRight() throws Throwable {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread render = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!done.get()) {
+                        if (queue.hasPending()) {
+                            apply();
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        render.start();
+        Random random = new Random(3);
+        try {
+            for (int round = 0; round < 500 && failure.get() == null; round++) {
+                int left = random.nextInt(100);
+                int right = left + random.nextInt(100 - left);
+                if (random.nextBoolean()) {
+                    queue.setLeftIndex(left);
+                    queue.setRightIndex(right);
+                } else {
+                    queue.setRightIndex(right);
+                    queue.setLeftIndex(left);
+                }
+                // applied in one frame or split over two, the render thread ends on the range
+                waitForPublish(left, right);
+            }
+        } finally {
+            done.set(true);
+            render.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void waitForPublish(int left, int right) throws InterruptedException {
+        long deadline = System.nanoTime() + 1000000000L;
+        while (state.getLeftIndex() != left || state.getRightIndex() != right) {
+            if (System.nanoTime() > deadline) {
+                fail("Expected " + left + "-" + right + ", was " + state.getLeftIndex() + "-" + state.getRightIndex());
+            }
+            Thread.yield();
+        }
+    }
+
+    @Test
+    public void invalidRequestsThrowInCaller() {
+        assertThrows(new Runnable() {
+            @Override
+            public void run() {
+                queue.setRightIndex(100);
+            }
+        });
+        assertThrows(new Runnable() {
+            @Override
+            public void run() {
+                queue.setLeftIndex(-1);
+            }
+        });
+        assertThrows(new Runnable() {
+            @Override
+            public void run() {
+                queue.setIndices(new int[]{1, 2, 3});
+            }
+        });
+        assertThrows(new Runnable() {
+            @Override
+            public void run() {
+                queue.setRange(20, 10);
+            }
+        });
+        assertFalse(queue.hasPending());
+    }
+
+    @Test
+    public void indicesAreClampedWhenTheModelChangedMeanwhile() {
+        queue.setRightIndex(90);
+        model.setTickCount(50);
+        apply();
+        assertEquals(49, state.getRightIndex());
+    }
+
+    @Test
+    public void indicesForAnotherThumbCountAreDropped() {
+        queue.setIndices(new int[]{10, 20});
+        model.setThumbCount(3);
+        assertEquals(RangeUpdateQueue.DROPPED_INDICES, apply());
+        assertEquals(0, state.getLeftIndex());
+        assertEquals(99, state.getRightIndex());
+
+        // single indices requested after them still apply
+        queue.setIndices(new int[]{10, 20, 30});
+        queue.setRightIndex(40);
+        model.setThumbCount(2);
+        assertEquals(RangeUpdateQueue.DROPPED_INDICES | RangeUpdateQueue.APPLIED_INDICES, apply());
+        assertEquals(0, state.getLeftIndex());
+        assertEquals(40, state.getRightIndex());
+    }
+
+    @Test
+    public void tickCountMustMatchValueScale() {
+        TickScale scale = TickScale.values(new double[]{1, 2, 5, 10});
+        model.setTickCount(4);
+        model.getGeometry().setScale(scale);
+        queue.setScale(scale);
+        state.publish(model);
+        assertThrows(new Runnable() {
+            @Override
+            public void run() {
+                queue.setTickCount(10);
+            }
+        });
+        assertFalse(queue.hasPending());
+
+        assertTrue(queue.setTickCount(4));
+        queue.setRange(1, 2);
+        assertEquals(RangeUpdateQueue.APPLIED_INDICES, apply());
+        assertEquals(4, state.getTickCount());
+        assertEquals(2, state.getRightIndex());
+    }
+
+    @Test
+    public void tickCountRejectedByLaterScaleIsDropped() {
+        queue.setTickCount(50);
+        queue.setThumbCount(3);
+        queue.setIndices(new int[]{10, 20, 30});
+        // the owner switches to a value scale before the frame
+        double[] values = new double[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * i + 1;
+        }
+        TickScale scale = TickScale.values(values);
+        model.getGeometry().setScale(scale);
+        queue.setScale(scale);
+
+        assertEquals(RangeUpdateQueue.APPLIED_THUMB_COUNT | RangeUpdateQueue.APPLIED_INDICES
+                | RangeUpdateQueue.DROPPED_TICK_COUNT, apply());
+        assertEquals(100, state.getTickCount());
+        assertEquals(3, state.getThumbCount());
+        assertEquals(10, state.getIndex(0));
+        assertEquals(30, state.getIndex(2));
+        assertFalse(queue.hasPending());
+    }
+
+    private static void assertThrows(Runnable runnable) {
+        try {
+            runnable.run();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void concurrentWritersAndReadersSeeConsistentState() throws Throwable {
+        final int gap = 7;
+        model = new RangeModel(2000);
+        model.setIndices(new int[]{0, gap});
+        state = new AtomicRangeState(model);
+        queue = new RangeUpdateQueue(state);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread owner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    apply();
+                }
+            }
+        });
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            final Random random = new Random(w);
+            writers[w] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 50000; i++) {
+                        if (random.nextInt(10) == 0) {
+                            queue.setTickCount(random.nextBoolean() ? 1000 : 2000);
+                        } else {
+                            int left = random.nextInt(900);
+                            queue.setIndices(random.nextBoolean()
+                                    ? new int[]{left, left + gap} : new int[]{left + gap, left});
+                        }
+                    }
+                }
+            });
+        }
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int[] indices = new int[RangeModel.MAX_THUMB_COUNT];
+                    try {
+                        while (!done.get()) {
+                            long counts = state.read(indices);
+                            int tickCount = AtomicRangeState.tickCountOf(counts);
+                            assertEquals(2, AtomicRangeState.thumbCountOf(counts));
+                            assertTrue("tick count " + tickCount, tickCount == 1000 || tickCount == 2000);
+                            assertEquals(gap, indices[1] - indices[0]);
+                            assertTrue(indices[1] < tickCount);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+
+        owner.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        owner.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        // the last request is never lost
+        queue.setIndices(new int[]{100, 100 + gap});
+        apply();
+        assertNull(failure.get());
+        assertEquals(100, state.getLeftIndex());
+        assertEquals(100 + gap, state.getRightIndex());
+    }
+
+    @Test
+    public void concurrentLeftAndRightWritersKeepRangeOrdered() throws Throwable {
+        model = new RangeModel(2000);
+        state = new AtomicRangeState(model);
+        queue = new RangeUpdateQueue(state);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread owner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    apply();
+                }
+            }
+        });
+        // one thread sets whole ranges left then right, often past the current one
+        final int[] lastRange = new int[2];
+        Thread rangeWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Random random = new Random(1);
+                for (int i = 0; i < 50000; i++) {
+                    int left = random.nextInt(900);
+                    int right = left + random.nextInt(100);
+                    if (random.nextBoolean()) {
+                        queue.setLeftIndex(left);
+                        queue.setRightIndex(right);
+                    } else {
+                        queue.setRightIndex(right);
+                        queue.setLeftIndex(left);
+                    }
+                    lastRange[0] = left;
+                    lastRange[1] = right;
+                }
+            }
+        });
+        Thread tickWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Random random = new Random(2);
+                for (int i = 0; i < 5000; i++) {
+                    queue.setTickCount(random.nextBoolean() ? 1000 : 2000);
+                }
+            }
+        });
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int[] indices = new int[RangeModel.MAX_THUMB_COUNT];
+                    try {
+                        while (!done.get()) {
+                            long counts = state.read(indices);
+                            int tickCount = AtomicRangeState.tickCountOf(counts);
+                            assertTrue(indices[0] + " > " + indices[1], indices[0] <= indices[1]);
+                            assertTrue(indices[1] < tickCount);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+
+        owner.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        tickWriter.start();
+        rangeWriter.start();
+        tickWriter.join();
+        rangeWriter.join();
+        done.set(true);
+        owner.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        // both halves of the last range arrive, whatever was applied in between
+        apply();
+        assertEquals(lastRange[0], state.getLeftIndex());
+        assertEquals(lastRange[1], state.getRightIndex());
+    }
+}
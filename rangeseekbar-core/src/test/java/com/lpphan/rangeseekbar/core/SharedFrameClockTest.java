@@ -0,0 +1,82 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedFrameClockTest {
+
+    private int frameRequests;
+    private final StringBuilder events = new StringBuilder();
+
+    private final SharedFrameClock clock = new SharedFrameClock(new SharedFrameClock.Host() {
+        @Override
+        public void requestFrame() {
+            frameRequests++;
+        }
+
+        @Override
+        public long nanoTime() {
+            return 0;
+        }
+    });
+
+    private FrameClock.Callback callback(final String name, final FrameClock client, final int repeats) {
+        return new FrameClock.Callback() {
+            int left = repeats;
+
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                events.append(name).append(frameTimeNanos).append(' ');
+                if (--left > 0) {
+                    client.postFrameCallback(this);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void clientsShareOneFrameRequest() {
+        FrameClock a = clock.newClient();
+        FrameClock b = clock.newClient();
+        a.postFrameCallback(callback("a", a, 2));
+        b.postFrameCallback(callback("b", b, 1));
+        assertEquals(1, frameRequests);
+
+        clock.doFrame(1);
+        assertEquals("a1 b1 ", events.toString());
+        // a posted again from inside the frame
+        assertEquals(2, frameRequests);
+        clock.doFrame(2);
+        assertEquals("a1 b1 a2 ", events.toString());
+        assertFalse(clock.hasPendingCallbacks());
+    }
+
+    @Test
+    public void postingAgainReplacesTheCallback() {
+        FrameClock a = clock.newClient();
+        a.postFrameCallback(callback("x", a, 1));
+        a.postFrameCallback(callback("y", a, 1));
+        FrameClock.Callback z = callback("z", a, 1);
+        FrameClock b = clock.newClient();
+        b.postFrameCallback(z);
+        b.removeFrameCallback(z);
+        assertTrue(clock.hasPendingCallbacks());
+        clock.doFrame(5);
+        assertEquals("y5 ", events.toString());
+    }
+
+    @Test
+    public void manyClientsGrowThePendingList() {
+        FrameClock[] clients = new FrameClock[20];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = clock.newClient();
+            clients[i].postFrameCallback(callback("c", clients[i], 2));
+        }
+        clock.doFrame(1);
+        clock.doFrame(2);
+        assertEquals(40, events.toString().split(" ").length);
+    }
+}
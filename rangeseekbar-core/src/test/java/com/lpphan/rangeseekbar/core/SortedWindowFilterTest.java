@@ -0,0 +1,120 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SortedWindowFilterTest {
+
+    private static final int ITEM_COUNT = 10000;
+    private static final int TICK_COUNT = 500;
+
+    private long[] keys;
+    private SortedWindowFilter filter;
+    private final BitSet selected = new BitSet();
+    private int reportedItems;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(3);
+        keys = new long[ITEM_COUNT];
+        int[] ids = new int[ITEM_COUNT];
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            keys[i] = random.nextInt(TICK_COUNT);
+            ids[i] = i;
+        }
+        filter = new SortedWindowFilter(keys, ids);
+        filter.setOnSelectionChangeListener(new SortedWindowFilter.OnSelectionChangeListener() {
+            @Override
+            public void onEnter(int[] ids, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    assertEquals(false, selected.get(ids[i]));
+                    selected.set(ids[i]);
+                }
+                reportedItems += to - from;
+            }
+
+            @Override
+            public void onExit(int[] ids, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    assertEquals(true, selected.get(ids[i]));
+                    selected.clear(ids[i]);
+                }
+                reportedItems += to - from;
+            }
+        });
+    }
+
+    @Test
+    public void firstRangeReportsWholeSelection() {
+        filter.setRange(0, TICK_COUNT - 1);
+        assertEquals(ITEM_COUNT, filter.getSelectedCount());
+        assertEquals(ITEM_COUNT, selected.cardinality());
+    }
+
+    @Test
+    public void movingOneBoundReportsOnlyCrossedItems() {
+        filter.setRange(100, 300);
+        reportedItems = 0;
+
+        filter.setRange(101, 300);
+        assertEquals(count(100, 100), reportedItems);
+
+        reportedItems = 0;
+        filter.setRange(101, 305);
+        assertEquals(count(301, 305), reportedItems);
+        assertSelection(101, 305);
+    }
+
+    @Test
+    public void tracksRandomDrags() {
+        Random random = new Random(11);
+        int left = 0, right = TICK_COUNT - 1;
+        for (int step = 0; step < 2000; step++) {
+            if (random.nextBoolean()) {
+                left = Math.max(0, Math.min(right, left + random.nextInt(21) - 10));
+            } else {
+                right = Math.min(TICK_COUNT - 1, Math.max(left, right + random.nextInt(21) - 10));
+            }
+            filter.setRange(left, right);
+            assertSelection(left, right);
+        }
+    }
+
+    @Test
+    public void disjointJumpSwapsSelection() {
+        filter.setRange(0, 10);
+        filter.setRange(400, 499);
+        assertSelection(400, 499);
+    }
+
+    @Test
+    public void emptyRangeClearsSelection() {
+        filter.setRange(10, 20);
+        filter.setRange(20, 10);
+        assertEquals(0, filter.getSelectedCount());
+        assertEquals(0, selected.cardinality());
+    }
+
+    private int count(long min, long max) {
+        int count = 0;
+        for (long key : keys) {
+            if (key >= min && key <= max) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void assertSelection(long min, long max) {
+        assertEquals(count(min, max), filter.getSelectedCount());
+        assertEquals(filter.getSelectedCount(), selected.cardinality());
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            assertEquals(keys[i] >= min && keys[i] <= max, selected.get(i));
+        }
+    }
+}
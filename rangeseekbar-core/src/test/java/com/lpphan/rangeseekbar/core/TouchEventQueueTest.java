@@ -0,0 +1,62 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TouchEventQueueTest {
+
+    @Test
+    public void keepsOrderAndRefusesWhenFull() {
+        TouchEventQueue queue = new TouchEventQueue(3);
+        assertEquals(4, queue.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(TouchTrace.ACTION_MOVE, i, i * 10, 5));
+        }
+        assertFalse(queue.offer(TouchTrace.ACTION_UP, 4, 40, 5));
+        assertEquals(1, queue.getDroppedCount());
+
+        assertTrue(queue.poll());
+        assertEquals(0, queue.getTime());
+        assertTrue(queue.offer(TouchTrace.ACTION_UP, 4, 40, 5));
+        for (int i = 1; i < 5; i++) {
+            assertTrue(queue.poll());
+            assertEquals(i, queue.getTime());
+            assertEquals(i * 10, queue.getX(), 0);
+        }
+        assertEquals(TouchTrace.ACTION_UP, queue.getAction());
+        assertFalse(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void handsSamplesOverBetweenThreads() throws InterruptedException {
+        final TouchEventQueue queue = new TouchEventQueue(64);
+        final int count = 1000000;
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    while (!queue.offer(TouchTrace.ACTION_MOVE, i, i, -i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        producer.start();
+        long expected = 0;
+        while (expected < count) {
+            if (queue.poll()) {
+                // every field of a sample comes from the same offer
+                assertEquals(expected, queue.getTime());
+                assertEquals((float) expected, queue.getX(), 0);
+                assertEquals((float) -expected, queue.getY(), 0);
+                expected++;
+            }
+        }
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,223 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the prediction error on the recorded traces: after every sample the position predicted
+ * one horizon ahead is compared with the finger position the trace has at that time, and with the
+ * error of drawing the latest sample as it is. Written to touch-prediction.csv when the
+ * trace.reportDir system property is set.
+ */
+public class TouchPredictorTest {
+
+    private static final List<String> sReports = new ArrayList<String>();
+
+    /**
+     * @return mean absolute error of the predictor and of the latest sample, in pixels
+     */
+    private static double[] measure(String name, TouchPredictor predictor) throws IOException {
+        TouchTrace trace = TouchTrace.load(name);
+        long horizon = predictor.getHorizon();
+        double predictedError = 0;
+        double lagError = 0;
+        int count = 0;
+        int gestureStart = 0;
+        for (int i = 0; i < trace.getEventCount(); i++) {
+            int action = trace.getAction(i);
+            if (action == TouchTrace.ACTION_DOWN) {
+                predictor.clear();
+                gestureStart = i;
+            } else if (action != TouchTrace.ACTION_MOVE) {
+                continue;
+            }
+            long time = trace.getTimeNanos(i);
+            predictor.addSample(time, trace.getX(i));
+            if (i - gestureStart + 1 < TouchPredictor.MIN_SAMPLES) {
+                continue;
+            }
+            float actual = positionAt(trace, i, time + horizon);
+            if (Float.isNaN(actual)) {
+                continue;
+            }
+            predictedError += Math.abs(predictor.predict() - actual);
+            lagError += Math.abs(trace.getX(i) - actual);
+            count++;
+        }
+        assertTrue(count > 0);
+        double[] errors = {predictedError / count, lagError / count};
+        String report = String.format("%s,%d,%d,%.2f,%.2f", name, horizon / 1000000, count, errors[0], errors[1]);
+        System.out.println(report);
+        synchronized (sReports) {
+            sReports.add(report);
+        }
+        return errors;
+    }
+
+    /**
+     * Finger position at a time after the event, interpolated between the samples of the gesture
+     *
+     * @return NaN if the gesture ends before
+     */
+    private static float positionAt(TouchTrace trace, int event, long time) {
+        for (int i = event + 1; i < trace.getEventCount(); i++) {
+            if (trace.getAction(i) == TouchTrace.ACTION_DOWN || trace.getAction(i) == TouchTrace.ACTION_CANCEL) {
+                return Float.NaN;
+            }
+            long end = trace.getTimeNanos(i);
+            if (end >= time) {
+                long start = trace.getTimeNanos(i - 1);
+                float fraction = end == start ? 1 : (float) (time - start) / (end - start);
+                return trace.getX(i - 1) + (trace.getX(i) - trace.getX(i - 1)) * fraction;
+            }
+            if (trace.getAction(i) == TouchTrace.ACTION_UP) {
+                return Float.NaN;
+            }
+        }
+        return Float.NaN;
+    }
+
+    @Test
+    public void slowDragIsCloserThanLatestSample() throws IOException {
+        double[] errors = measure("slow_drag.csv", new TouchPredictor());
+        assertTrue(errors[0] < errors[1]);
+    }
+
+    @Test
+    public void flickIsCloserThanLatestSample() throws IOException {
+        double[] errors = measure("flick_fling.csv", new TouchPredictor());
+        assertTrue(errors[0] < errors[1]);
+    }
+
+    @Test
+    public void sweepIsCloserThanLatestSample() throws IOException {
+        double[] errors = measure("sweep_many_thumbs.csv", new TouchPredictor());
+        assertTrue(errors[0] < errors[1]);
+    }
+
+    @Test
+    public void scrubIsCloserThanLatestSample() throws IOException {
+        double[] errors = measure("scrub_large_domain.csv", new TouchPredictor());
+        assertTrue(errors[0] < errors[1]);
+    }
+
+    @Test
+    public void longerHorizonOnSlowerDisplay() throws IOException {
+        TouchPredictor predictor = new TouchPredictor();
+        predictor.setHorizon(33 * 1000000L);
+        predictor.setMaxDistance(96);
+        double[] errors = measure("slow_drag.csv", predictor);
+        assertTrue(errors[0] < errors[1]);
+    }
+
+    @Test
+    public void zeroHorizonTracksSamples() throws IOException {
+        TouchPredictor predictor = new TouchPredictor();
+        predictor.setHorizon(0);
+        predictor.setNoise(TouchPredictor.DEFAULT_ACCELERATION_NOISE, 0.01f);
+        double[] errors = measure("slow_drag.csv", predictor);
+        assertTrue(errors[0] < 0.5);
+    }
+
+    @Test
+    public void tooFewSamplesPredictLatest() {
+        TouchPredictor predictor = new TouchPredictor();
+        predictor.addSample(0, 10);
+        predictor.addSample(8000000L, 20);
+        assertEquals(20, predictor.predict(), 0);
+        predictor.addSample(16000000L, 30);
+        assertTrue(predictor.predict() > 30);
+        // a pause starts over
+        predictor.addSample(200000000L, 30);
+        assertEquals(30, predictor.predict(), 0);
+        assertEquals(0, predictor.getVelocity(), 0);
+    }
+
+    @Test
+    public void predictionIsCapped() {
+        TouchPredictor predictor = new TouchPredictor();
+        predictor.setMaxDistance(5);
+        for (int i = 0; i < 10; i++) {
+            predictor.addSample(i * 8000000L, i * 40);
+        }
+        assertEquals(360 + 5, predictor.predict(), 0.001);
+        // never predicts before the latest sample
+        assertEquals(360, predictor.predict(0), 1);
+    }
+
+    @Test
+    public void invalidTuning() {
+        TouchPredictor predictor = new TouchPredictor();
+        try {
+            predictor.setHorizon(-1);
+            throw new AssertionError();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            predictor.setNoise(0, 1);
+            throw new AssertionError();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            predictor.setMaxDistance(Float.NaN);
+            throw new AssertionError();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void predictionDoesNotAllocate() {
+        AllocationCounter counter = new AllocationCounter();
+        assumeTrue(counter.isSupported());
+        final TouchPredictor predictor = new TouchPredictor();
+        long bytes = counter.measure(new Runnable() {
+            private long mTime;
+            private float mSum;
+
+            @Override
+            public void run() {
+                predictor.clear();
+                for (int i = 0; i < 100; i++) {
+                    mTime += 8000000L;
+                    predictor.addSample(mTime, i * 7);
+                    mSum += predictor.predict();
+                }
+            }
+        });
+        assertEquals(0, bytes);
+    }
+
+    @AfterClass
+    public static void writeReports() throws IOException {
+        String reportDir = System.getProperty("trace.reportDir");
+        if (reportDir == null) {
+            return;
+        }
+        File dir = new File(reportDir);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(dir, "touch-prediction.csv")), "UTF-8");
+        try {
+            writer.write("trace,horizon_ms,samples,predicted_error_px,latest_sample_error_px\n");
+            for (String report : sReports) {
+                writer.write(report);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.lpphan.rangeseekbar.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A recorded gesture: the setup of the bar and the touch events, loaded from a CSV resource.
+ * <p>
+ * Lines starting with # hold key=value settings, separated by commas, the other lines are events
+ * as time_ms,action,x,y with action one of down, move, up or cancel. Times are relative to the
+ * first event and may be fractional.
+ */
+public class TouchTrace {
+
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+
+    private final String mName;
+    private final Map<String, String> mSettings;
+    private final long[] mTimeNanos;
+    private final int[] mActions;
+    private final float[] mX;
+
+    private TouchTrace(String name, Map<String, String> settings, long[] timeNanos, int[] actions, float[] x) {
+        mName = name;
+        mSettings = settings;
+        mTimeNanos = timeNanos;
+        mActions = actions;
+        mX = x;
+    }
+
+    /**
+     * @param name File name in the traces resource folder
+     */
+    public static TouchTrace load(String name) throws IOException {
+        InputStream in = TouchTrace.class.getResourceAsStream("/traces/" + name);
+        if (in == null) {
+            throw new IOException("No trace " + name);
+        }
+        Map<String, String> settings = new HashMap<String, String>();
+        int count = 0;
+        long[] timeNanos = new long[64];
+        int[] actions = new int[64];
+        float[] x = new float[64];
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.startsWith("#")) {
+                    for (String setting : line.substring(1).split(",")) {
+                        int equals = setting.indexOf('=');
+                        if (equals > 0) {
+                            settings.put(setting.substring(0, equals).trim(), setting.substring(equals + 1).trim());
+                        }
+                    }
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length < 3) {
+                    throw new IOException(name + ":" + lineNumber + ": expected time_ms,action,x,y");
+                }
+                if (count == timeNanos.length) {
+                    timeNanos = grow(timeNanos);
+                    actions = grow(actions);
+                    x = grow(x);
+                }
+                timeNanos[count] = Math.round(Double.parseDouble(fields[0].trim()) * 1000000);
+                actions[count] = parseAction(fields[1].trim(), name, lineNumber);
+                x[count] = Float.parseFloat(fields[2].trim());
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return new TouchTrace(name, settings, trim(timeNanos, count), trim(actions, count), trim(x, count));
+    }
+
+    private static int parseAction(String action, String name, int lineNumber) throws IOException {
+        if ("down".equals(action)) {
+            return ACTION_DOWN;
+        } else if ("move".equals(action)) {
+            return ACTION_MOVE;
+        } else if ("up".equals(action)) {
+            return ACTION_UP;
+        } else if ("cancel".equals(action)) {
+            return ACTION_CANCEL;
+        }
+        throw new IOException(name + ":" + lineNumber + ": unknown action " + action);
+    }
+
+    private static long[] grow(long[] array) {
+        long[] grown = new long[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static float[] grow(float[] array) {
+        float[] grown = new float[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static long[] trim(long[] array, int length) {
+        long[] trimmed = new long[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    private static int[] trim(int[] array, int length) {
+        int[] trimmed = new int[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    private static float[] trim(float[] array, int length) {
+        float[] trimmed = new float[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public String getSetting(String key, String defaultValue) {
+        String value = mSettings.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public int getEventCount() {
+        return mTimeNanos.length;
+    }
+
+    public long getTimeNanos(int event) {
+        return mTimeNanos[event];
+    }
+
+    public int getAction(int event) {
+        return mActions[event];
+    }
+
+    public float getX(int event) {
+        return mX[event];
+    }
+}
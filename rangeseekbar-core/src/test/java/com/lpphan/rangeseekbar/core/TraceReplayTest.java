@@ -0,0 +1,100 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays the recorded traces of src/test/resources/traces and reports their cost. The reports
+ * are printed and, when the trace.reportDir system property is set, written to trace-replay.csv
+ * there so they can be compared between builds.
+ */
+public class TraceReplayTest {
+
+    private static final List<TraceReplayer.Report> sReports = new ArrayList<TraceReplayer.Report>();
+
+    private static TraceReplayer.Report replay(String name) throws IOException {
+        TraceReplayer.Report report = new TraceReplayer(TouchTrace.load(name)).replay();
+        // a second replayer must report the same indices, the engine has no hidden state
+        TraceReplayer.Report again = new TraceReplayer(TouchTrace.load(name)).replay();
+        assertEquals(report.checksum, again.checksum);
+        assertEquals(report.listenerCalls, again.listenerCalls);
+
+        if (report.allocatedBytes >= 0) {
+            assertEquals("Bytes allocated replaying " + name, 0, report.allocatedBytes);
+        }
+        System.out.println(report);
+        synchronized (sReports) {
+            sReports.add(report);
+        }
+        return report;
+    }
+
+    @Test
+    public void slowDrag() throws IOException {
+        TraceReplayer.Report report = replay("slow_drag.csv");
+        assertTrue(report.listenerCalls > 0);
+    }
+
+    @Test
+    public void scrubLargeDomain() throws IOException {
+        TraceReplayer.Report report = replay("scrub_large_domain.csv");
+        // per-frame dispatch, at most one call per vsync and the flush on release
+        assertTrue(report.listenerCalls > 0);
+        assertTrue(report.listenerCalls <= report.frames + 1);
+    }
+
+    @Test
+    public void sweepManyThumbs() throws IOException {
+        TraceReplayer.Report report = replay("sweep_many_thumbs.csv");
+        assertTrue(report.listenerCalls > 0);
+    }
+
+    @Test
+    public void sweepBatchedCollapse() throws IOException {
+        TraceReplayer.Report report = replay("sweep_batched_collapse.csv");
+        // two samples per vsync delivered as one event, the listener hears about each event once
+        assertTrue(report.listenerCalls > 0);
+        assertTrue(report.events < TouchTrace.load("sweep_batched_collapse.csv").getEventCount());
+        assertTrue(report.listenerCalls <= report.events);
+    }
+
+    @Test
+    public void flickFling() throws IOException {
+        TraceReplayer.Report report = replay("flick_fling.csv");
+        assertTrue(report.listenerCalls > 0);
+    }
+
+    @AfterClass
+    public static void writeReports() throws IOException {
+        String reportDir = System.getProperty("trace.reportDir");
+        if (reportDir == null) {
+            return;
+        }
+        File dir = new File(reportDir);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(dir, "trace-replay.csv")), "UTF-8");
+        try {
+            writer.write(TraceReplayer.Report.csvHeader());
+            writer.write('\n');
+            for (TraceReplayer.Report report : sReports) {
+                writer.write(report.toCsv());
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.lpphan.rangeseekbar.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Replays a {@link TouchTrace} through the {@link RangeController} behind RangeSeekBar: hit test,
+ * drag, sample batching, prediction, dispatcher and fling, with vsync frames run in between the
+ * events like on a device.
+ * <p>
+ * The trace is replayed {@link #WARM_UP_ROUNDS} times so the JIT settles, then once more while the
+ * processing time of every event and the bytes allocated by the whole run are measured.
+ * <p>
+ * Trace settings: width (px), tick_count, thumb_count, dispatch (immediate, per_frame, throttled
+ * or on_release), throttle_ms, fling (true or false), density, touch_radius (dp, default 12),
+ * batch_moves (true delivers the moves at the next vsync in one event, like the input batching of
+ * Android), sample_policy (report_all or collapse) and prediction (true or false).
+ */
+public class TraceReplayer {
+
+    public static final int WARM_UP_ROUNDS = 200;
+
+    private static final float TRACK_INSET = 26;
+    private static final float MIN_FLING_VELOCITY_DP = 50;
+    private static final float MAX_FLING_VELOCITY_DP = 8000;
+    private static final float FLING_DECELERATION_DP = 8000;
+    private static final float PREDICTION_MAX_DISTANCE_DP = 18;
+
+    private final TouchTrace mTrace;
+    private final RangeController mController;
+    private final RangeModel mModel;
+    private final FakeFrameClock mDispatchClock = new FakeFrameClock(0);
+    private final FakeFrameClock mAnimationClock = new FakeFrameClock(0);
+    private final int[] mStartIndices;
+    private final boolean mBatchMoves;
+    private final long[] mEventNanos;
+    private final long[] mBatchTimes;
+    private final float[] mBatchX;
+    private int mBatchSize;
+    private int mEvents;
+    private long mNextVsync;
+    private int mListenerCalls;
+    private int mFrames;
+    private long mChecksum;
+
+    public TraceReplayer(TouchTrace trace) {
+        mTrace = trace;
+        int tickCount = Integer.parseInt(trace.getSetting("tick_count", "100"));
+        int thumbCount = Integer.parseInt(trace.getSetting("thumb_count", "2"));
+        float width = Float.parseFloat(trace.getSetting("width", "1080"));
+        float density = Float.parseFloat(trace.getSetting("density", "1"));
+        mBatchMoves = Boolean.parseBoolean(trace.getSetting("batch_moves", "false"));
+
+        mController = new RangeController(tickCount, thumbCount, mDispatchClock, mAnimationClock,
+                new RangeController.Host() {
+                    @Override
+                    public void dispatchRangeChange(int[] indices) {
+                        mListenerCalls++;
+                        for (int index : indices) {
+                            mChecksum = 31 * mChecksum + index;
+                        }
+                    }
+
+                    @Override
+                    public void dispatchStartTracking() {
+                    }
+
+                    @Override
+                    public void dispatchStopTracking() {
+                    }
+
+                    @Override
+                    public void onAnimationFrame(long frameTimeNanos) {
+                    }
+                });
+        mModel = mController.getModel();
+        mModel.getGeometry().setBounds(TRACK_INSET, width - TRACK_INSET);
+        mModel.layout();
+        mStartIndices = new int[thumbCount];
+        mModel.getIndices(mStartIndices);
+
+        RangeDispatcher dispatcher = mController.getDispatcher();
+        dispatcher.setMode(parseMode(trace.getSetting("dispatch", "immediate")));
+        dispatcher.setThrottleInterval(Long.parseLong(trace.getSetting("throttle_ms", "0")));
+        mController.setTouchRadius(Float.parseFloat(trace.getSetting("touch_radius", "12")) * density);
+        mController.setTouchSamplePolicy("collapse".equals(trace.getSetting("sample_policy", "report_all"))
+                ? RangeController.SAMPLES_COLLAPSE : RangeController.SAMPLES_REPORT_ALL);
+        mController.setFlingEnabled(Boolean.parseBoolean(trace.getSetting("fling", "false")));
+        mController.setFlingVelocityRange(MIN_FLING_VELOCITY_DP * density, MAX_FLING_VELOCITY_DP * density);
+        mController.setFlingDeceleration(FLING_DECELERATION_DP * density);
+        if (Boolean.parseBoolean(trace.getSetting("prediction", "false"))) {
+            TouchPredictor predictor = new TouchPredictor();
+            predictor.setMaxDistance(PREDICTION_MAX_DISTANCE_DP * density);
+            mController.setTouchPredictor(predictor);
+        }
+        mEventNanos = new long[trace.getEventCount()];
+        mBatchTimes = new long[trace.getEventCount()];
+        mBatchX = new float[trace.getEventCount()];
+    }
+
+    private static int parseMode(String mode) {
+        if ("per_frame".equals(mode)) {
+            return RangeDispatcher.MODE_PER_FRAME;
+        } else if ("throttled".equals(mode)) {
+            return RangeDispatcher.MODE_THROTTLED;
+        } else if ("on_release".equals(mode)) {
+            return RangeDispatcher.MODE_ON_RELEASE;
+        }
+        return RangeDispatcher.MODE_IMMEDIATE;
+    }
+
+    public Report replay() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocationBean = null;
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            allocationBean = (com.sun.management.ThreadMXBean) bean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(threadId);
+        run();
+        long bytes = allocationBean == null ? -1 : allocationBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new Report(mTrace.getName(), Arrays.copyOf(mEventNanos, mEvents), mListenerCalls, mFrames,
+                bytes, mChecksum);
+    }
+
+    /**
+     * Replay the trace once from the start indices
+     */
+    private void run() {
+        mModel.setIndices(mStartIndices);
+        mListenerCalls = 0;
+        mFrames = 0;
+        mChecksum = 0;
+        mEvents = 0;
+        mBatchSize = 0;
+        // the trace starts on a vsync, one frame after the previous run went idle
+        long start = mAnimationClock.nanoTime() + FakeFrameClock.FRAME_NANOS;
+        mNextVsync = start;
+        for (int i = 0; i < mTrace.getEventCount(); i++) {
+            long eventTime = start + mTrace.getTimeNanos(i);
+            runFramesUntil(eventTime);
+            mDispatchClock.advance(eventTime - mDispatchClock.nanoTime());
+            mAnimationClock.advance(eventTime - mAnimationClock.nanoTime());
+
+            int action = mTrace.getAction(i);
+            if (mBatchMoves && action == TouchTrace.ACTION_MOVE) {
+                mBatchTimes[mBatchSize] = eventTime;
+                mBatchX[mBatchSize] = mTrace.getX(i);
+                mBatchSize++;
+                continue;
+            }
+            // moves still batched are delivered before the gesture ends
+            deliverMoves();
+            long begin = System.nanoTime();
+            onEvent(action, eventTime, mTrace.getX(i));
+            mEventNanos[mEvents++] = System.nanoTime() - begin;
+        }
+        deliverMoves();
+        while (mDispatchClock.hasPendingFrame() || mAnimationClock.hasPendingFrame()) {
+            runFramesUntil(mNextVsync);
+        }
+    }
+
+    private void runFramesUntil(long timeNanos) {
+        while (mNextVsync <= timeNanos) {
+            // input is handled first on a vsync, then the animations
+            deliverMoves();
+            if (mDispatchClock.hasPendingFrame() || mAnimationClock.hasPendingFrame()) {
+                mFrames++;
+            }
+            mDispatchClock.frame(mNextVsync - mDispatchClock.nanoTime());
+            mAnimationClock.frame(mNextVsync - mAnimationClock.nanoTime());
+            mNextVsync += FakeFrameClock.FRAME_NANOS;
+        }
+    }
+
+    /**
+     * Deliver the batched moves as one event with history, as RangeSeekBar.onActionMove does
+     */
+    private void deliverMoves() {
+        if (mBatchSize == 0) {
+            return;
+        }
+        long begin = System.nanoTime();
+        mController.beginMove();
+        for (int i = 0; i < mBatchSize; i++) {
+            mController.addMoveSample(mBatchTimes[i], mBatchX[i]);
+        }
+        mController.endMove();
+        mEventNanos[mEvents++] = System.nanoTime() - begin;
+        mBatchSize = 0;
+    }
+
+    /**
+     * Same calls as RangeSeekBar.onTouchEvent
+     */
+    private void onEvent(int action, long timeNanos, float x) {
+        switch (action) {
+            case TouchTrace.ACTION_DOWN:
+                mController.onDown(timeNanos, x);
+                break;
+            case TouchTrace.ACTION_MOVE:
+                mController.onMove(timeNanos, x);
+                break;
+            case TouchTrace.ACTION_UP:
+            case TouchTrace.ACTION_CANCEL:
+                mController.onUp(timeNanos, action == TouchTrace.ACTION_CANCEL);
+                break;
+        }
+    }
+
+    public RangeModel getModel() {
+        return mModel;
+    }
+
+    /**
+     * Numbers of one measured replay
+     */
+    public static class Report {
+        public final String trace;
+        public final int events;
+        public final long p50Nanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+        public final int listenerCalls;
+        public final int frames;
+        /**
+         * -1 when the JVM cannot count allocations
+         */
+        public final long allocatedBytes;
+        /**
+         * Hash of every index reported, equal between runs of a deterministic engine
+         */
+        public final long checksum;
+
+        Report(String trace, long[] eventNanos, int listenerCalls, int frames, long allocatedBytes, long checksum) {
+            this.trace = trace;
+            this.events = eventNanos.length;
+            Arrays.sort(eventNanos);
+            this.p50Nanos = percentile(eventNanos, 50);
+            this.p99Nanos = percentile(eventNanos, 99);
+            this.maxNanos = eventNanos.length == 0 ? 0 : eventNanos[eventNanos.length - 1];
+            this.listenerCalls = listenerCalls;
+            this.frames = frames;
+            this.allocatedBytes = allocatedBytes;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Nearest-rank percentile of sorted values
+         */
+        static long percentile(long[] sorted, int percent) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        public static String csvHeader() {
+            return "trace,events,p50_ns,p99_ns,max_ns,listener_calls,frames,allocated_bytes";
+        }
+
+        public String toCsv() {
+            return trace + "," + events + "," + p50Nanos + "," + p99Nanos + "," + maxNanos + ","
+                    + listenerCalls + "," + frames + "," + allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-24s %5d events  p50 %7.2f us  p99 %7.2f us  max %8.2f us  %5d listener calls  %4d frames  %d bytes",
+                    trace, events, p50Nanos / 1000.0, p99Nanos / 1000.0, maxNanos / 1000.0,
+                    listenerCalls, frames, allocatedBytes);
+        }
+    }
+}
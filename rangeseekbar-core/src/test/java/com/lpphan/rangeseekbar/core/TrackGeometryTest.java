@@ -0,0 +1,204 @@
+package com.lpphan.rangeseekbar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TrackGeometryTest {
+
+    private TrackGeometry geometry;
+
+    @Before
+    public void setUp() {
+        geometry = new TrackGeometry(11);
+        geometry.setBounds(100, 200);
+    }
+
+    @Test
+    public void mapsPixelToNearestTick() {
+        assertEquals(0, geometry.pixelToIndex(100));
+        assertEquals(0, geometry.pixelToIndex(104.9f));
+        assertEquals(1, geometry.pixelToIndex(105.1f));
+        assertEquals(10, geometry.pixelToIndex(200));
+    }
+
+    @Test
+    public void clampsPixelOutsideOfTrack() {
+        assertEquals(0, geometry.pixelToIndex(0));
+        assertEquals(10, geometry.pixelToIndex(1000));
+        assertEquals(100f, geometry.clampPixel(50), 0f);
+        assertFalse(geometry.contains(201));
+        assertTrue(geometry.contains(150));
+    }
+
+    @Test
+    public void mapsIndexToPixel() {
+        assertEquals(100f, geometry.indexToPixel(0), 0f);
+        assertEquals(150f, geometry.indexToPixel(5), 1e-4f);
+        assertEquals(200f, geometry.indexToPixel(10), 1e-4f);
+    }
+
+    @Test
+    public void roundTripsEveryTick() {
+        geometry.setTickCount(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, geometry.pixelToIndex(geometry.indexToPixel(i)));
+        }
+    }
+
+    @Test
+    public void layoutsInsidePadding() {
+        geometry.setFrame(300, 70, 10, 0, 30, 0, 20);
+        assertEquals(30f, geometry.getLeftX(), 0f);
+        assertEquals(250f, geometry.getRightX(), 0f);
+        assertEquals(35f, geometry.getCenterY(), 0f);
+    }
+
+    @Test
+    public void zoomKeepsFocusedTickInPlace() {
+        geometry.setTickCount(1001);
+        geometry.zoom(10, 150);
+        assertEquals(500, geometry.pixelToIndex(150));
+        assertEquals(100.1, geometry.getWindowSpan(), 1e-9);
+        assertTrue(geometry.isZoomed());
+    }
+
+    @Test
+    public void zoomedWindowLandsOnExactTicksOfHugeDomain() {
+        geometry.setTickCount(10000000);
+        geometry.setWindow(9876500, 101);
+        for (int i = 9876500; i <= 9876600; i++) {
+            float x = geometry.indexToPixel(i);
+            assertEquals(i, geometry.pixelToIndex(x));
+            assertEquals(i, geometry.pixelToIndex(x + 0.4f));
+        }
+        assertEquals(9876500, geometry.getFirstVisibleIndex());
+        assertEquals(9876600, geometry.getLastVisibleIndex());
+    }
+
+    @Test
+    public void windowStaysInsideDomain() {
+        geometry.setTickCount(1000);
+        geometry.setWindow(950, 100);
+        assertEquals(900, geometry.getWindowStart(), 0);
+
+        geometry.pan(10000);
+        assertEquals(0, geometry.getWindowStart(), 0);
+
+        geometry.zoom(0.001f, 150);
+        assertFalse(geometry.isZoomed());
+
+        geometry.zoom(1000000, 150);
+        assertEquals(TrackGeometry.MIN_WINDOW_SPAN, geometry.getWindowSpan(), 0);
+    }
+
+    @Test
+    public void ticksOutsideOfWindowMapOutsideOfTrack() {
+        geometry.setTickCount(1000);
+        geometry.setWindow(100, 101);
+        assertTrue(geometry.indexToPixel(50) < geometry.getLeftX());
+        assertTrue(geometry.indexToPixel(500) > geometry.getRightX());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSingleTick() {
+        geometry.setTickCount(1);
+    }
+
+    @Test
+    public void logScaleGivesRoomToSmallValues() {
+        // $1 to $100,000 in $1 steps
+        geometry.setTickCount(100000);
+        geometry.setBounds(0, 1000);
+        geometry.setScale(TickScale.log(1, 100000));
+        assertEquals(0f, geometry.indexToPixel(0), 0f);
+        assertEquals(200f, geometry.indexToPixel(9), 1e-3f);
+        assertEquals(1000f, geometry.indexToPixel(99999), 1e-3f);
+        assertEquals(9, geometry.pixelToIndex(200));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, geometry.pixelToIndex(geometry.indexToPixel(i)));
+        }
+    }
+
+    @Test
+    public void pixelToIndexFindsNearestTick() {
+        geometry.setTickCount(5000);
+        geometry.setBounds(0, 1000);
+        double[] values = new double[5000];
+        Random random = new Random(3);
+        for (int i = 1; i < values.length; i++) {
+            // crowded and sparse stretches
+            values[i] = values[i - 1] + (random.nextInt(10) == 0 ? 50 : 0.01) + random.nextDouble();
+        }
+        TickScale[] scales = {TickScale.values(values), TickScale.log(1, 5000),
+                TickScale.piecewise(new double[]{0, 0.9, 1}, new double[]{0, 0.1, 1})};
+        for (TickScale scale : scales) {
+            geometry.setScale(scale);
+            for (float x = -10; x <= 1010; x += 0.37f) {
+                int nearest = 0;
+                for (int i = 1; i < 5000; i++) {
+                    if (Math.abs(geometry.indexToPixel(i) - x) < Math.abs(geometry.indexToPixel(nearest) - x)) {
+                        nearest = i;
+                    }
+                }
+                int index = geometry.pixelToIndex(x);
+                assertEquals(Math.abs(geometry.indexToPixel(nearest) - x), Math.abs(geometry.indexToPixel(index) - x), 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void piecewiseScalePassesThroughBreakpoints() {
+        geometry.setScale(TickScale.piecewise(new double[]{0, 0.5, 1}, new double[]{0, 0.8, 1}));
+        assertEquals(180f, geometry.indexToPixel(5), 1e-4f);
+        assertEquals(5, geometry.pixelToIndex(180));
+        assertEquals(2.5, geometry.pixelToPosition(140), 1e-6);
+    }
+
+    @Test
+    public void zoomAndPanKeepNonLinearTicksInPlace() {
+        geometry.setTickCount(1000);
+        geometry.setBounds(0, 1000);
+        geometry.setScale(TickScale.log(1, 1000));
+        float before = geometry.indexToPixel(100);
+        geometry.zoom(4, before);
+        assertTrue(geometry.isZoomed());
+        assertEquals(before, geometry.indexToPixel(100), 0.5f);
+        assertEquals(100, geometry.pixelToIndex(before));
+
+        float x = geometry.indexToPixel(120);
+        geometry.pan(-30);
+        assertEquals(x - 30, geometry.indexToPixel(120), 0.5f);
+        geometry.pan(100000);
+        assertEquals(0, geometry.getWindowStart(), 1e-9);
+    }
+
+    @Test
+    public void valueScaleMustMatchTickCount() {
+        TickScale scale = TickScale.values(new double[]{1, 2, 5});
+        try {
+            geometry.setScale(scale);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        // the geometry is unchanged
+        assertEquals(TickScale.LINEAR, geometry.getScale());
+        assertEquals(150f, geometry.indexToPixel(5), 1e-4f);
+
+        geometry.setTickCount(3);
+        geometry.setScale(scale);
+        assertEquals(125f, geometry.indexToPixel(1), 1e-4f);
+        try {
+            geometry.setTickCount(4);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(3, geometry.getTickCount());
+    }
+}
@@ -0,0 +1,106 @@
+package com.lpphan.rangeseekbar;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.lpphan.rangeseekbar.core.FrameClock;
+
+/**
+ * {@link FrameClock} driven by the vsync timestamps of {@link Choreographer}.
+ * Before Jelly Bean, where Choreographer is not public, frames are approximated with a Handler.
+ * <p>
+ * Frames are delivered on the thread posting the callback, which must have a Looper, or on the
+ * fallback looper before Jelly Bean: the main thread unless another one is given.
+ */
+class ChoreographerFrameClock implements FrameClock {
+
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    private final Handler mHandler;
+    private final Choreographer.FrameCallback mFrameCallback;
+    private final Runnable mFallbackRunnable;
+    private Callback mCallback;
+
+    ChoreographerFrameClock() {
+        this(Looper.getMainLooper());
+    }
+
+    ChoreographerFrameClock(Looper fallbackLooper) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mHandler = null;
+            mFallbackRunnable = null;
+            mFrameCallback = createFrameCallback();
+        } else {
+            mHandler = new Handler(fallbackLooper);
+            mFrameCallback = null;
+            mFallbackRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    dispatchFrame(System.nanoTime());
+                }
+            };
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Choreographer.FrameCallback createFrameCallback() {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                dispatchFrame(frameTimeNanos);
+            }
+        };
+    }
+
+    @Override
+    public void postFrameCallback(Callback callback) {
+        mCallback = callback;
+        if (mFrameCallback != null) {
+            postChoreographerFrame();
+        } else {
+            mHandler.removeCallbacks(mFallbackRunnable);
+            mHandler.postDelayed(mFallbackRunnable, FALLBACK_FRAME_DELAY);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postChoreographerFrame() {
+        Choreographer choreographer = Choreographer.getInstance();
+        choreographer.removeFrameCallback(mFrameCallback);
+        choreographer.postFrameCallback(mFrameCallback);
+    }
+
+    @Override
+    public void removeFrameCallback(Callback callback) {
+        if (mCallback != callback) {
+            return;
+        }
+        mCallback = null;
+        if (mFrameCallback != null) {
+            removeChoreographerFrame();
+        } else {
+            mHandler.removeCallbacks(mFallbackRunnable);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeChoreographerFrame() {
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private void dispatchFrame(long frameTimeNanos) {
+        Callback callback = mCallback;
+        mCallback = null;
+        if (callback != null) {
+            callback.doFrame(frameTimeNanos);
+        }
+    }
+}
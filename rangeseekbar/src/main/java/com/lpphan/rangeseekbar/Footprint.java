@@ -0,0 +1,26 @@
+package com.lpphan.rangeseekbar;
+
+/**
+ * Rough object sizes on ART, to estimate the memory held by a RangeSeekBar.
+ */
+final class Footprint {
+
+    static final int OBJECT = 8;
+    static final int REFERENCE = 4;
+    static final int ARRAY = 12;
+    /**
+     * Java object plus the native paint it wraps
+     */
+    static final int PAINT = 400;
+
+    private Footprint() {
+    }
+
+    static int array(int length, int elementSize) {
+        return ARRAY + length * elementSize;
+    }
+
+    static int object(int fieldBytes) {
+        return OBJECT + fieldBytes;
+    }
+}
@@ -0,0 +1,164 @@
+package com.lpphan.rangeseekbar;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import com.lpphan.rangeseekbar.core.FenwickHistogram;
+import com.lpphan.rangeseekbar.core.TrackGeometry;
+
+/**
+ * Distribution drawn behind the bar, one column per few pixels of the visible window.
+ * Column heights are range sums of a {@link FenwickHistogram}, O(log n) each, so drawing costs
+ * O(width * log(tick count)).
+ */
+public class Histogram {
+
+    private static final float MIN_COLUMN_WIDTH = 3;
+    private static final float COLUMN_GAP = 1;
+
+    FenwickHistogram counts;
+    Paint paint;
+    Paint selectedPaint;
+    private long[] columnSums = new long[0];
+    private int columnCount;
+    private float columnWidth;
+    private long maxSum;
+
+    public Histogram(FenwickHistogram counts, RangeSeekBarStyle style) {
+        this.counts = counts;
+        setStyle(style);
+    }
+
+    public void setStyle(RangeSeekBarStyle style) {
+        paint = style.histogramPaint;
+        selectedPaint = style.histogramSelectedPaint;
+    }
+
+    /**
+     * Rough number of bytes held by the counts, their sum tree and the column scratch array
+     */
+    int getMemoryFootprint() {
+        int bins = counts.getBinCount();
+        return Footprint.array(bins, 8) + Footprint.array(bins + 1, 8)
+                + Footprint.array(columnSums.length, 8);
+    }
+
+    /**
+     * Sum the counts of every column of the visible window
+     *
+     * @return false when there is nothing to draw
+     */
+    boolean layout(TrackGeometry geometry) {
+        float leftX = geometry.getLeftX();
+        float rightX = geometry.getRightX();
+        columnWidth = Math.max(MIN_COLUMN_WIDTH, geometry.getTickDistance());
+        columnCount = Math.max(0, (int) Math.ceil((rightX - leftX) / columnWidth) + 1);
+        if (columnSums.length < columnCount) {
+            columnSums = new long[columnCount];
+        }
+
+        // a column holds the ticks centered inside it
+        long max = 0;
+        int lastTick = counts.getBinCount() - 1;
+        for (int column = 0; column < columnCount; column++) {
+            float columnLeft = leftX + (column - 0.5f) * columnWidth;
+            int first = firstTickFrom(geometry, columnLeft);
+            int last = Math.min(firstTickFrom(geometry, columnLeft + columnWidth) - 1, lastTick);
+            long sum = counts.sum(Math.max(first, 0), last);
+            columnSums[column] = sum;
+            max = Math.max(max, sum);
+        }
+        maxSum = max;
+        return max > 0;
+    }
+
+    /**
+     * Draw the columns laid out by {@link #layout(TrackGeometry)} with one paint
+     *
+     * @param top    Top of the tallest column
+     * @param bottom Baseline of the columns
+     */
+    void drawColumns(Canvas canvas, TrackGeometry geometry, float top, float bottom, Paint columnPaint) {
+        if (maxSum == 0 || bottom <= top) {
+            return;
+        }
+        float height = bottom - top;
+        for (int column = 0; column < columnCount; column++) {
+            long sum = columnSums[column];
+            if (sum != 0) {
+                drawColumn(canvas, geometry, column, bottom - height * sum / maxSum, bottom, columnPaint);
+            }
+        }
+    }
+
+    private void drawColumn(Canvas canvas, TrackGeometry geometry, int column, float top, float bottom, Paint columnPaint) {
+        float centerX = geometry.getLeftX() + column * columnWidth;
+        float columnLeft = Math.max(geometry.getLeftX(), centerX - columnWidth / 2);
+        float columnRight = Math.min(geometry.getRightX(), centerX + columnWidth / 2 - COLUMN_GAP);
+        if (columnRight > columnLeft) {
+            canvas.drawRect(columnLeft, top, columnRight, bottom, columnPaint);
+        }
+    }
+
+    /**
+     * Horizontal bounds of the highlighted columns, the ones whose center tick is in the range.
+     * Columns do not overlap, so clipping to these bounds separates both colors exactly.
+     *
+     * @param out Left and right bound
+     * @return false when no column is highlighted
+     */
+    boolean getSelectedBounds(TrackGeometry geometry, int leftIndex, int rightIndex, float[] out) {
+        int first = firstColumnWithTick(geometry, leftIndex);
+        int last = firstColumnWithTick(geometry, rightIndex + 1) - 1;
+        if (first > last) {
+            return false;
+        }
+        float leftX = geometry.getLeftX();
+        out[0] = leftX + (first - 0.5f) * columnWidth;
+        out[1] = leftX + (last + 0.5f) * columnWidth;
+        return true;
+    }
+
+    /**
+     * First column whose center tick is >= tick, columnCount if none
+     */
+    private int firstColumnWithTick(TrackGeometry geometry, int tick) {
+        int low = 0, high = columnCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (geometry.pixelToIndex(geometry.getLeftX() + mid * columnWidth) < tick) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Lay out and draw every column, highlighting the selected ones
+     *
+     * @param top    Top of the tallest column
+     * @param bottom Baseline of the columns
+     */
+    public void draw(Canvas canvas, TrackGeometry geometry, int leftIndex, int rightIndex, float top, float bottom) {
+        if (!layout(geometry) || bottom <= top) {
+            return;
+        }
+        float height = bottom - top;
+        for (int column = 0; column < columnCount; column++) {
+            long sum = columnSums[column];
+            if (sum == 0) {
+                continue;
+            }
+            int centerTick = geometry.pixelToIndex(geometry.getLeftX() + column * columnWidth);
+            Paint columnPaint = centerTick >= leftIndex && centerTick <= rightIndex ? selectedPaint : paint;
+            drawColumn(canvas, geometry, column, bottom - height * sum / maxSum, bottom, columnPaint);
+        }
+    }
+
+    private static int firstTickFrom(TrackGeometry geometry, float x) {
+        double position = Math.ceil(geometry.pixelToPosition(x));
+        return (int) Math.max(Math.min(position, Integer.MAX_VALUE), Integer.MIN_VALUE);
+    }
+}
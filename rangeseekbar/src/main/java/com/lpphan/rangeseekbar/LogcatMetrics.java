@@ -0,0 +1,26 @@
+package com.lpphan.rangeseekbar;
+
+import android.util.Log;
+
+import com.lpphan.rangeseekbar.core.AggregatingMetrics;
+
+/**
+ * Metrics logging a summary of everything measured so far each time a drag ends
+ * <pre>
+ * seekBar.setMetrics(new LogcatMetrics("RangeSeekBar"));
+ * </pre>
+ */
+public class LogcatMetrics extends AggregatingMetrics implements AggregatingMetrics.SummaryListener {
+
+    private final String mTag;
+
+    public LogcatMetrics(String tag) {
+        mTag = tag;
+        setSummaryListener(this);
+    }
+
+    @Override
+    public void onSummary(Summary summary) {
+        Log.i(mTag, summary.toString());
+    }
+}
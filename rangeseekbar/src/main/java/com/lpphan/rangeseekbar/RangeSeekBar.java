@@ -6,36 +6,130 @@ import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.lpphan.rangeseekbar.core.AnimationScheduler;
+import com.lpphan.rangeseekbar.core.AtomicRangeState;
+import com.lpphan.rangeseekbar.core.DirtyRegion;
+import com.lpphan.rangeseekbar.core.FenwickHistogram;
+import com.lpphan.rangeseekbar.core.LabelFormat;
+import com.lpphan.rangeseekbar.core.RangeController;
+import com.lpphan.rangeseekbar.core.RangeDispatcher;
+import com.lpphan.rangeseekbar.core.RangeModel;
+import com.lpphan.rangeseekbar.core.RangePublisher;
+import com.lpphan.rangeseekbar.core.RangeSeekBarMetrics;
+import com.lpphan.rangeseekbar.core.RangeUpdateQueue;
+import com.lpphan.rangeseekbar.core.SortedWindowFilter;
+import com.lpphan.rangeseekbar.core.ThumbAnimator;
+import com.lpphan.rangeseekbar.core.TickScale;
+import com.lpphan.rangeseekbar.core.TouchPredictor;
 
 /**
  * RangeSeekBar
+ * <p>
+ * The index and count setters can be called from any thread. Off the UI thread they are queued and
+ * applied together on the next animation frame; the getters return the state last applied.
  */
 @SuppressWarnings("unused")
-public class RangeSeekBar extends View {
+public class RangeSeekBar extends View
+        implements RangeController.Host, ViewportGestures.Callback {
+
+    /**
+     * The listener is called on every index change, from inside the touch event
+     */
+    public static final int DISPATCH_IMMEDIATE = RangeDispatcher.MODE_IMMEDIATE;
+    /**
+     * The listener is called at most once per frame with the latest indices
+     */
+    public static final int DISPATCH_PER_FRAME = RangeDispatcher.MODE_PER_FRAME;
+    /**
+     * The listener is called at most once per throttle interval with the latest indices
+     */
+    public static final int DISPATCH_THROTTLED = RangeDispatcher.MODE_THROTTLED;
+    /**
+     * The listener is called once, when the thumb is released
+     */
+    public static final int DISPATCH_ON_RELEASE = RangeDispatcher.MODE_ON_RELEASE;
+
+    /**
+     * Every touch sample of a move event is applied, the listener gets each index the finger passed
+     */
+    public static final int SAMPLES_REPORT_ALL = RangeController.SAMPLES_REPORT_ALL;
+    /**
+     * Every touch sample of a move event is applied, the listener only gets the final indices
+     */
+    public static final int SAMPLES_COLLAPSE = RangeController.SAMPLES_COLLAPSE;
+
+    /**
+     * No value labels
+     */
+    public static final int LABELS_NONE = 0;
+    /**
+     * A label above every thumb, pushed apart when the thumbs are close
+     */
+    public static final int LABELS_THUMBS = ValueLabels.MODE_THUMBS;
+    /**
+     * One label from the left to the right index, centered over the selection
+     */
+    public static final int LABELS_RANGE = ValueLabels.MODE_RANGE;
+    /**
+     * Thumb labels, merged into one range label when they would overlap
+     */
+    public static final int LABELS_AUTO = ValueLabels.MODE_AUTO;
+
 
     private static final int DEFAULT_HEIGHT = 70;
     private static final int DEFAULT_WIDTH = 300;
     private static final int DEFAULT_TICK_COUNT = 100;
+    private static final int TRACK_INSET = 20;
+    private static final float FLING_DECELERATION = 8000;
+    private static final float PREDICTION_MAX_DISTANCE = 18;
+    private static final int LABEL_MARGIN = 4;
 
-    private Thumb leftThumb, rightThumb;
+    private Thumb[] mThumbs;
     private Thumb pressedThumb = null;
     private Bar bar;
-    private Paint thumbPaint;
+    private Histogram mHistogram;
+    private ValueLabels mLabels;
+    private LabelFormat mLabelFormat = LabelFormat.INDEX;
+    private final TrackLayer mTrackLayer = new TrackLayer();
+    private RangeSeekBarStyle mStyle;
+    private RangeController mController;
+    private RangeModel mModel;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean mAttached;
+    private final Runnable mApplyUpdates = new Runnable() {
+        @Override
+        public void run() {
+            applyUpdates();
+        }
+    };
+    private AnimationScheduler mAnimationScheduler;
+    private RangeDispatcher mDispatcher;
+    private final DirtyRegion mThumbRegion = new DirtyRegion();
+    private final DirtyRegion mDirtyRegion = new DirtyRegion();
+    private final DirtyRegion mDrawnDirtyRegion = new DirtyRegion();
+    private Paint mDirtyRegionPaint;
+    private boolean mShowDirtyRegions;
+    private boolean mSpriteCacheEnabled;
+    private ViewportGestures mViewportGestures;
+    private Thumb mFlingThumb;
 
     private OnRangeSeekBarChangerListener mListener;
+    private OnRangeSeekBarTrackingListener mTrackingListener;
+    private OnThumbIndicesChangeListener mIndicesListener;
+    private SortedWindowFilter mFilter;
+    private RangeSeekBarMetrics mMetrics;
 
-    private int mTickCount;
-    private int mLeftIndex = 0;
-    private int mRightIndex;
-    private int mThumbColor;
-    private int mThumbNormalRadius;
-    private int mThumbPressedRadius;
 
     public RangeSeekBar(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
@@ -49,6 +143,7 @@ public class RangeSeekBar extends View {
 
     public RangeSeekBar(Context context) {
         super(context);
+        init(context, null);
     }
 
     @SuppressWarnings("deprecation")
@@ -58,21 +153,60 @@ public class RangeSeekBar extends View {
         TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.RangeSeekBar);
 
         try {
-            mTickCount = typedArray.getInteger(R.styleable.RangeSeekBar_tick_count, DEFAULT_TICK_COUNT);
-            mRightIndex = mTickCount - 1;
-
-            mThumbColor = typedArray.getColor(R.styleable.RangeSeekBar_thumb_color, getResources().getColor(R.color.thumb_default));
-            mThumbNormalRadius = typedArray.getDimensionPixelSize(R.styleable.RangeSeekBar_thumb_normal_radius, 12);
-            mThumbPressedRadius = typedArray.getDimensionPixelSize(R.styleable.RangeSeekBar_thumb_pressed_radius, 16);
-            mLeftIndex = typedArray.getInteger(R.styleable.RangeSeekBar_left_index, 0);
-            mRightIndex = typedArray.getInteger(R.styleable.RangeSeekBar_right_index, mRightIndex);
+            int tickCount = typedArray.getInteger(R.styleable.RangeSeekBar_tick_count, DEFAULT_TICK_COUNT);
+            int thumbCount = typedArray.getInteger(R.styleable.RangeSeekBar_thumb_count, RangeModel.MIN_THUMB_COUNT);
+            mController = new RangeController(tickCount, thumbCount, new ChoreographerFrameClock(),
+                    new ChoreographerFrameClock(), this);
+            mModel = mController.getModel();
+            mDispatcher = mController.getDispatcher();
+            mDispatcher.setMode(typedArray.getInt(R.styleable.RangeSeekBar_dispatch_mode, DISPATCH_IMMEDIATE));
+            mDispatcher.setThrottleInterval(typedArray.getInteger(R.styleable.RangeSeekBar_dispatch_throttle, 0));
+
+            RangeSeekBarStyle.Builder style = new RangeSeekBarStyle.Builder(context)
+                    .setThumbColor(typedArray.getColor(R.styleable.RangeSeekBar_thumb_color,
+                            resources.getColor(R.color.thumb_default)))
+                    .setThumbNormalRadius(typedArray.getDimensionPixelSize(R.styleable.RangeSeekBar_thumb_normal_radius, 12))
+                    .setThumbPressedRadius(typedArray.getDimensionPixelSize(R.styleable.RangeSeekBar_thumb_pressed_radius, 16))
+                    .setHistogramColor(typedArray.getColor(R.styleable.RangeSeekBar_histogram_color,
+                            resources.getColor(R.color.histogram_default)));
+            if (typedArray.hasValue(R.styleable.RangeSeekBar_histogram_selected_color)) {
+                style.setHistogramSelectedColor(typedArray.getColor(R.styleable.RangeSeekBar_histogram_selected_color, 0));
+            }
+            if (typedArray.hasValue(R.styleable.RangeSeekBar_label_color)) {
+                style.setLabelColor(typedArray.getColor(R.styleable.RangeSeekBar_label_color, 0));
+            }
+            if (typedArray.hasValue(R.styleable.RangeSeekBar_label_text_size)) {
+                style.setLabelTextSize(typedArray.getDimensionPixelSize(R.styleable.RangeSeekBar_label_text_size, 0));
+            }
+            int labelMode = typedArray.getInt(R.styleable.RangeSeekBar_label_mode, LABELS_NONE);
+            if (labelMode != LABELS_NONE) {
+                mLabels = new ValueLabels(labelMode);
+            }
+            mStyle = style.build();
+            mController.setTouchRadius(mStyle.getThumbNormalRadius());
+            mSpriteCacheEnabled = typedArray.getBoolean(R.styleable.RangeSeekBar_use_sprite_cache, false);
+            mController.setFlingEnabled(typedArray.getBoolean(R.styleable.RangeSeekBar_fling_enabled, false));
+            if (typedArray.getBoolean(R.styleable.RangeSeekBar_touch_prediction_enabled, false)) {
+                TouchPredictor predictor = new TouchPredictor();
+                predictor.setMaxDistance(PREDICTION_MAX_DISTANCE * getResources().getDisplayMetrics().density);
+                mController.setTouchPredictor(predictor);
+            }
+            setTouchSamplePolicy(typedArray.getInt(R.styleable.RangeSeekBar_touch_sample_policy, SAMPLES_REPORT_ALL));
+            if (typedArray.getBoolean(R.styleable.RangeSeekBar_viewport_enabled, false)) {
+                mViewportGestures = new ViewportGestures(context, mModel.getGeometry(), this);
+            }
+            int leftIndex = typedArray.getInteger(R.styleable.RangeSeekBar_left_index, 0);
+            int rightIndex = typedArray.getInteger(R.styleable.RangeSeekBar_right_index, tickCount - 1);
 
-            if (mLeftIndex < 0)
+            if (leftIndex < 0)
                 throw new IllegalArgumentException("Left index must be >= 0");
 
-            if (mRightIndex > mTickCount)
-                throw new IllegalArgumentException("Right index must be <= tick count");
+            if (rightIndex >= tickCount)
+                throw new IllegalArgumentException("Right index must be < tick count");
 
+            mModel.setLeftIndex(leftIndex);
+            mModel.setRightIndex(rightIndex);
+            mController.getRangeState().publish(mModel);
         } finally {
             typedArray.recycle();
         }
@@ -80,33 +214,281 @@ public class RangeSeekBar extends View {
     }
 
     private void setUp() {
-        thumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        thumbPaint.setStyle(Paint.Style.FILL);
-        thumbPaint.setColor(mThumbColor);
+        bar = new Bar(mModel.getGeometry(), mStyle);
 
-        leftThumb = new Thumb(0, 0, thumbPaint, mThumbNormalRadius, mThumbPressedRadius);
-        rightThumb = new Thumb(0, 0, thumbPaint, mThumbNormalRadius, mThumbPressedRadius);
+        mAnimationScheduler = mController.getAnimationScheduler();
+        createThumbs();
 
-        bar = new Bar(0, 0, 0, Color.BLACK, 1, mThumbColor, 3);
-        bar.setTickNumb(mTickCount);
+        ViewConfiguration configuration = ViewConfiguration.get(getContext());
+        mController.setFlingVelocityRange(configuration.getScaledMinimumFlingVelocity(),
+                configuration.getScaledMaximumFlingVelocity());
+        mController.setFlingDeceleration(FLING_DECELERATION * getResources().getDisplayMetrics().density);
+    }
+
+    private void createThumbs() {
+        mAnimationScheduler.cancelAll();
+        mThumbs = new Thumb[mModel.getThumbCount()];
+        for (int i = 0; i < mThumbs.length; i++) {
+            mThumbs[i] = new Thumb(0, mModel.getGeometry().getCenterY(), mStyle);
+            mThumbs[i].setSpriteCacheEnabled(mSpriteCacheEnabled);
+        }
+        syncThumbs();
+    }
 
+    /**
+     * Thumb in a slot, slots are ordered from left to right
+     */
+    private Thumb thumbAt(int slot) {
+        return mThumbs[mModel.getThumbId(slot)];
     }
 
     public void setOnRangeBarChangeListener(OnRangeSeekBarChangerListener onRangeBarChangeListener) {
         mListener = onRangeBarChangeListener;
     }
 
+    /**
+     * Listen to the indices of all thumbs, for a bar with more than two thumbs
+     */
+    public void setOnThumbIndicesChangeListener(OnThumbIndicesChangeListener onThumbIndicesChangeListener) {
+        mIndicesListener = onThumbIndicesChangeListener;
+    }
+
+    public void setOnRangeBarTrackingListener(OnRangeSeekBarTrackingListener onRangeBarTrackingListener) {
+        mTrackingListener = onRangeBarTrackingListener;
+    }
+
+    /**
+     * Set when index changes reach the {@link OnRangeSeekBarChangerListener} during a drag
+     *
+     * @param dispatchMode One of the DISPATCH_ constants, default is {@link #DISPATCH_IMMEDIATE}
+     */
+    public void setDispatchMode(int dispatchMode) {
+        mDispatcher.setMode(dispatchMode);
+    }
+
+    public int getDispatchMode() {
+        return mDispatcher.getMode();
+    }
+
+    /**
+     * Set the minimum time between two listener calls in {@link #DISPATCH_THROTTLED} mode
+     *
+     * @param throttleMillis Default is 0
+     */
+    public void setDispatchThrottle(long throttleMillis) {
+        mDispatcher.setThrottleInterval(throttleMillis);
+    }
+
+    /**
+     * Touch panels faster than the display batch several samples in one move event, they are all
+     * applied. Choose whether the listener hears about each of them.
+     *
+     * @param samplePolicy {@link #SAMPLES_REPORT_ALL} (default) or {@link #SAMPLES_COLLAPSE}
+     */
+    public void setTouchSamplePolicy(int samplePolicy) {
+        mController.setTouchSamplePolicy(samplePolicy);
+    }
+
+    public int getTouchSamplePolicy() {
+        return mController.getTouchSamplePolicy();
+    }
+
     /**
      * Set number of ticks
      *
      * @param tickCount Default is 100
      */
     public void setTickCount(int tickCount) {
-        mTickCount = tickCount;
-        bar.setTickNumb(mTickCount);
+        scheduleUpdates(mController.setTickCount(tickCount));
+    }
+
+
+    /**
+     * Set number of thumbs, they are spread evenly over the ticks. More than two thumbs split
+     * the track into several ranges, see {@link OnThumbIndicesChangeListener}.
+     *
+     * @param thumbCount From 2 to 16, default is 2
+     */
+    public void setThumbCount(int thumbCount) {
+        scheduleUpdates(mController.setThumbCount(thumbCount));
+    }
+
+    public int getThumbCount() {
+        return mController.getThumbCount();
+    }
+
+    /**
+     * Set the index of every thumb
+     *
+     * @param indices One index per thumb, in any order
+     */
+    public void setIndices(int... indices) {
+        scheduleUpdates(mController.setIndices(indices, indices.length));
+    }
+
+    /**
+     * Set tick count, thumb count and indices in one update. On the UI thread it is applied right
+     * away without allocating, unless the thumb count changes.
+     *
+     * @param indices Only the first thumbCount are read
+     */
+    void setRangeState(int tickCount, int[] indices, int thumbCount) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            stopFling();
+            if (pressedThumb != null
+                    && (thumbCount != mModel.getThumbCount() || mController.hasPendingThumbCount())) {
+                onActionUp(mController.release(0));
+            }
+            onUpdatesApplied(mController.applyRangeState(tickCount, indices, thumbCount));
+            return;
+        }
+        boolean first = mController.setTickCount(tickCount);
+        if (thumbCount != mController.getThumbCount() || mController.hasPendingThumbCount()) {
+            first |= mController.setThumbCount(thumbCount);
+        }
+        first |= mController.setIndices(indices, thumbCount);
+        scheduleUpdates(first);
+    }
+
+    /**
+     * Read a consistent copy of the range
+     *
+     * @param indices At least {@link RangeModel#MAX_THUMB_COUNT} long
+     * @return packed counts, see {@link AtomicRangeState#read(int[])}
+     */
+    long readRangeState(int[] indices) {
+        return mController.getRangeState().read(indices);
+    }
+
+    /**
+     * Get the index of a thumb
+     *
+     * @param thumb Position of the thumb from the left, starting at 0
+     * @return the index, -1 if there is no such thumb
+     */
+    public int getIndex(int thumb) {
+        return mController.getRangeState().getIndex(thumb);
+    }
+
+    /**
+     * Apply queued updates now on the UI thread, or on the next animation frame from another thread
+     *
+     * @param first Whether the update just queued is the first one pending
+     */
+    private void scheduleUpdates(boolean first) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            applyUpdates();
+        } else if (first) {
+            if (mAttached && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                postOnAnimation(mApplyUpdates);
+            } else {
+                // the run queue of a detached view is not safe to post to from another thread
+                mMainHandler.post(mApplyUpdates);
+            }
+        }
+    }
+
+    private void applyUpdates() {
+        if (!mController.hasPendingUpdates()) {
+            return;
+        }
+        stopFling();
+        if (pressedThumb != null && mController.hasPendingThumbCount()) {
+            onActionUp(mController.release(0));
+        }
+        onUpdatesApplied(mController.applyUpdates());
+    }
+
+    /**
+     * @param applied APPLIED_* flags of {@link RangeUpdateQueue}
+     */
+    private void onUpdatesApplied(int applied) {
+        if (applied == 0) {
+            return;
+        }
+        if ((applied & RangeUpdateQueue.APPLIED_TICK_COUNT) != 0) {
+            if (mHistogram != null && mHistogram.counts.getBinCount() != mModel.getTickCount()) {
+                mHistogram = null;
+            }
+            mTrackLayer.invalidate();
+        }
+        if ((applied & RangeUpdateQueue.APPLIED_THUMB_COUNT) != 0) {
+            createThumbs();
+        } else {
+            syncThumbs();
+        }
+        updateFilter();
+        invalidate();
+    }
+
+    /**
+     * Keep a released thumb moving with the speed of the finger, until it slows down to a tick
+     * or hits the next thumb. The listener gets the indices it passes, at most once per frame.
+     *
+     * @param flingEnabled Default is false
+     */
+    public void setFlingEnabled(boolean flingEnabled) {
+        if (!flingEnabled) {
+            stopFling();
+        }
+        mController.setFlingEnabled(flingEnabled);
+    }
+
+    public boolean isFlingEnabled() {
+        return mController.isFlingEnabled();
+    }
+
+    /**
+     * Draw the dragged thumb where the predictor expects the finger one frame later, to hide the
+     * touch latency. Indices and listeners still follow the real touch samples.
+     *
+     * @param predictor Tuned for the device, null to draw the thumb under the latest sample
+     */
+    public void setTouchPredictor(TouchPredictor predictor) {
+        mController.setTouchPredictor(predictor);
+        if (predictor == null && pressedThumb != null && pressedThumb.drawOffset != 0) {
+            float fromX = pressedThumb.getDrawX();
+            pressedThumb.drawOffset = 0;
+            invalidateThumb(pressedThumb, fromX);
+        }
+    }
+
+    public TouchPredictor getTouchPredictor() {
+        return mController.getTouchPredictor();
+    }
+
+    /**
+     * Set colors and sizes at once. Bars with equal styles share the same instance and paints,
+     * prefer this to the single setters when many bars look the same.
+     */
+    public void setStyle(RangeSeekBarStyle style) {
+        if (style == null) {
+            throw new IllegalArgumentException("Style must not be null");
+        }
+        boolean normalRadiusChanged = style.getThumbNormalRadius() != mStyle.getThumbNormalRadius();
+        boolean labelSizeChanged = mLabels != null && style.getLabelTextSize() != mStyle.getLabelTextSize();
+        mStyle = style;
+        mController.setTouchRadius(style.getThumbNormalRadius());
+        bar.setStyle(style);
+        if (mHistogram != null) {
+            mHistogram.setStyle(style);
+        }
+        for (Thumb thumb : mThumbs) {
+            thumb.setStyle(style);
+        }
+        mTrackLayer.invalidate();
+        if ((normalRadiusChanged || labelSizeChanged) && getWidth() > 0) {
+            layoutTrack(getWidth(), getHeight());
+        }
+        if (labelSizeChanged) {
+            requestLayout();
+        }
         invalidate();
     }
 
+    public RangeSeekBarStyle getStyle() {
+        return mStyle;
+    }
 
     /**
      * Set thumb's color
@@ -114,9 +496,7 @@ public class RangeSeekBar extends View {
      * @param thumbColor Default is orange
      */
     public void setThumbColor(int thumbColor) {
-        mThumbColor = thumbColor;
-        thumbPaint.setColor(mThumbColor);
-        invalidate();
+        setStyle(mStyle.buildUpon().setThumbColor(thumbColor).build());
     }
 
     /**
@@ -125,10 +505,8 @@ public class RangeSeekBar extends View {
      * @param thumbRadius Default is 6dp
      */
     public void setThumbNormalRadius(float thumbRadius) {
-        mThumbNormalRadius = (int) (thumbRadius*getResources().getDisplayMetrics().density);
-        leftThumb.radius = mThumbNormalRadius;
-        rightThumb.radius = mThumbNormalRadius;
-        invalidate();
+        int radius = (int) (thumbRadius * getResources().getDisplayMetrics().density);
+        setStyle(mStyle.buildUpon().setThumbNormalRadius(radius).build());
     }
 
     /**
@@ -137,47 +515,324 @@ public class RangeSeekBar extends View {
      * @param thumbPressedRadius Default is 8dp
      */
     public void setThumbPressedRadius(float thumbPressedRadius) {
-        mThumbPressedRadius = (int) (thumbPressedRadius*getResources().getDisplayMetrics().density);
-        leftThumb.pressedRadius = mThumbPressedRadius;
-        rightThumb.pressedRadius = mThumbPressedRadius;
+        int radius = (int) (thumbPressedRadius * getResources().getDisplayMetrics().density);
+        setStyle(mStyle.buildUpon().setThumbPressedRadius(radius).build());
+    }
+
+    /**
+     * Rough number of bytes held by this bar on top of the View itself. The style, the sprite
+     * cache and a filter set with {@link #setFilter(SortedWindowFilter)} are shared and not counted,
+     * see {@link RangeSeekBarStyle#getMemoryFootprint()}.
+     */
+    public int getMemoryFootprint() {
+        int thumbCount = mModel.getThumbCount();
+        // model arrays, geometry, model, dispatcher and its pending indices
+        int bytes = 4 * Footprint.array(thumbCount, 4) + Footprint.object(48) + Footprint.object(32)
+                + Footprint.object(48) + Footprint.array(thumbCount, 4);
+        // thumbs, scheduler, dirty regions, bar, fling and velocity estimator
+        bytes += Footprint.array(thumbCount, Footprint.REFERENCE);
+        for (Thumb thumb : mThumbs) {
+            bytes += thumb.getMemoryFootprint();
+        }
+        bytes += Footprint.object(16) + Footprint.array(4, Footprint.REFERENCE);
+        bytes += 3 * Footprint.object(16) + Footprint.object(12);
+        bytes += Footprint.object(48) + Footprint.object(16) + Footprint.array(20, 8) + Footprint.array(20, 4);
+        if (mHistogram != null) {
+            bytes += Footprint.object(16) + mHistogram.getMemoryFootprint();
+        }
+        if (mLabels != null) {
+            bytes += mLabels.getMemoryFootprint();
+        }
+        if (mDirtyRegionPaint != null) {
+            bytes += Footprint.PAINT;
+        }
+        return bytes;
+    }
+
+    /**
+     * Draw thumbs and ripples from pre-rendered bitmaps shared by every RangeSeekBar with the same
+     * style, instead of rendering anti-aliased circles on each frame.
+     *
+     * @param enabled Default is false
+     */
+    public void setSpriteCacheEnabled(boolean enabled) {
+        mSpriteCacheEnabled = enabled;
+        for (Thumb thumb : mThumbs) {
+            thumb.setSpriteCacheEnabled(enabled);
+        }
         invalidate();
     }
 
     /**
-     * Set index for the Left Thumb
+     * Draw value labels above the thumbs. Labels are formatted into a reused buffer and measured
+     * from a glyph table cached by the style, a drag does not allocate.
      *
-     * @param leftIndex Default is 0
+     * @param labelMode One of {@link #LABELS_NONE}, {@link #LABELS_THUMBS}, {@link #LABELS_RANGE},
+     *                  {@link #LABELS_AUTO}. Default is {@link #LABELS_NONE}.
      */
-    public void setLeftIndex(int leftIndex) {
-        if (leftIndex < 0) {
-            throw new IllegalArgumentException("Left index must be >= 0");
+    public void setLabelMode(int labelMode) {
+        if (labelMode < LABELS_NONE || labelMode > LABELS_AUTO) {
+            throw new IllegalArgumentException("Unknown label mode " + labelMode);
+        }
+        if (labelMode == getLabelMode()) {
+            return;
+        }
+        boolean relayout = (labelMode == LABELS_NONE) != (mLabels == null);
+        if (labelMode == LABELS_NONE) {
+            mLabels = null;
+        } else if (mLabels == null) {
+            mLabels = new ValueLabels(labelMode);
+            mLabels.setFormat(mLabelFormat);
+        } else {
+            mLabels.setMode(labelMode);
+        }
+        if (relayout) {
+            if (getWidth() > 0) {
+                layoutTrack(getWidth(), getHeight());
+            }
+            requestLayout();
         }
-        mLeftIndex = leftIndex;
-        leftThumb.setIndex(bar, mLeftIndex);
         invalidate();
     }
 
+    public int getLabelMode() {
+        return mLabels == null ? LABELS_NONE : mLabels.getMode();
+    }
+
+    /**
+     * @param format Text of the labels, default is {@link LabelFormat#INDEX}
+     */
+    public void setLabelFormat(LabelFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format must not be null");
+        }
+        mLabelFormat = format;
+        if (mLabels != null) {
+            mLabels.setFormat(format);
+            invalidate();
+        }
+    }
+
+    public LabelFormat getLabelFormat() {
+        return mLabelFormat;
+    }
+
     /**
-     * Set index for the Right thumb
+     * Height taken by the labels above the track
+     */
+    private int getLabelSpace() {
+        return mLabels == null ? 0 : (int) Math.ceil(mStyle.getLabelHeight()) + LABEL_MARGIN;
+    }
+
+    private float getLabelBaseline() {
+        return mModel.getGeometry().getCenterY() - mStyle.getThumbPressedRadius() - LABEL_MARGIN - mStyle.labelDescent;
+    }
+
+    /**
+     * Draw a distribution behind the bar and count the items inside the selected range in
+     * O(log tickCount), see {@link #getInRangeCount()}.
      *
-     * @param rightIndex Default is 99
+     * @param counts One count per tick, null to remove the histogram
      */
-    public void setRightIndex(int rightIndex) {
-        if (rightIndex > mTickCount) {
-            throw new IllegalArgumentException("Left index must be <= tick count");
+    public void setHistogram(int[] counts) {
+        setHistogram(counts == null ? null : new FenwickHistogram(counts));
+    }
+
+    /**
+     * @param counts One count per tick, null to remove the histogram
+     */
+    public void setHistogram(long[] counts) {
+        setHistogram(counts == null ? null : new FenwickHistogram(counts));
+    }
+
+    private void setHistogram(FenwickHistogram counts) {
+        if (counts != null && counts.getBinCount() != mModel.getTickCount()) {
+            throw new IllegalArgumentException("Histogram needs one count per tick");
+        }
+        mHistogram = counts == null ? null : new Histogram(counts, mStyle);
+        mTrackLayer.invalidate();
+        invalidate();
+    }
+
+    /**
+     * Update the count of a single tick in O(log tickCount), cheaper than setting the whole
+     * histogram again
+     */
+    public void setHistogramCount(int index, long count) {
+        if (mHistogram == null) {
+            throw new IllegalStateException("No histogram set");
+        }
+        mHistogram.counts.setCount(index, count);
+        mTrackLayer.invalidate();
+        invalidate();
+    }
+
+    /**
+     * Sum of the histogram counts from the left index to the right index, computed in O(log tickCount)
+     *
+     * @return 0 when no histogram is set
+     */
+    public long getInRangeCount() {
+        if (mHistogram == null) {
+            return 0;
+        }
+        return mHistogram.counts.sum(mModel.getLeftIndex(), mModel.getRightIndex());
+    }
+
+    /**
+     * Stream of the range changes reaching the listener, for consumers on background executors.
+     * Each subscriber only gets the latest range once it is ready for it, emitting never allocates.
+     * Call on the UI thread.
+     * <pre>
+     * seekBar.getRangePublisher().subscribe(subscriber, queryExecutor);
+     * </pre>
+     */
+    public RangePublisher getRangePublisher() {
+        return mController.getRangePublisher();
+    }
+
+    /**
+     * Keep a filter on the selected range. The filter follows every index change reaching the
+     * listener, and reports only the items entering or leaving the selection.
+     *
+     * @param filter Keys in the tick domain, null to unbind
+     */
+    public void setFilter(SortedWindowFilter filter) {
+        mFilter = filter;
+        updateFilter();
+    }
+
+    public SortedWindowFilter getFilter() {
+        return mFilter;
+    }
+
+    private void updateFilter() {
+        if (mFilter != null) {
+            mFilter.setRange(mModel.getLeftIndex(), mModel.getRightIndex());
+        }
+    }
+
+    /**
+     * Show a zoomable window of the ticks instead of all of them: pinch or double tap to zoom,
+     * drag the track to pan. Useful when there are more ticks than pixels.
+     *
+     * @param enabled Default is false
+     */
+    public void setViewportEnabled(boolean enabled) {
+        if (enabled && mViewportGestures == null) {
+            mViewportGestures = new ViewportGestures(getContext(), mModel.getGeometry(), this);
+        } else if (!enabled && mViewportGestures != null) {
+            mViewportGestures = null;
+            resetZoom();
+        }
+    }
+
+    public boolean isViewportEnabled() {
+        return mViewportGestures != null;
+    }
+
+    /**
+     * Place the ticks along the track, e.g. {@link TickScale#log(double, double)} for a price filter
+     * spanning several orders of magnitude. Call it on the UI thread; a
+     * {@link TickScale#values(double[])} scale needs as many ticks as values, and
+     * {@link #setTickCount(int)} then rejects other counts.
+     *
+     * @param scale Default is {@link TickScale#LINEAR}
+     */
+    public void setScale(TickScale scale) {
+        stopFling();
+        mController.setScale(scale);
+        onViewportChanged();
+    }
+
+    public TickScale getScale() {
+        return mModel.getGeometry().getScale();
+    }
+
+    /**
+     * Zoom the track so it shows the ticks from firstIndex to lastIndex
+     */
+    public void setVisibleRange(int firstIndex, int lastIndex) {
+        if (firstIndex < 0 || lastIndex >= mModel.getTickCount() || firstIndex >= lastIndex) {
+            throw new IllegalArgumentException("Visible range must be inside [0, tick count)");
+        }
+        mModel.getGeometry().setWindow(firstIndex, lastIndex - firstIndex + 1);
+        onViewportChanged();
+    }
+
+    /**
+     * Show all ticks again
+     */
+    public void resetZoom() {
+        mModel.getGeometry().resetWindow();
+        onViewportChanged();
+    }
+
+    public int getFirstVisibleIndex() {
+        return mModel.getGeometry().getFirstVisibleIndex();
+    }
+
+    public int getLastVisibleIndex() {
+        return mModel.getGeometry().getLastVisibleIndex();
+    }
+
+    @Override
+    public void onViewportChanged() {
+        stopFling();
+        mModel.layout();
+        mTrackLayer.invalidate();
+        syncThumbs();
+        invalidate();
+    }
+
+    /**
+     * Outline the area redrawn by the last thumb move or animation frame, for debugging.
+     * Note that hardware accelerated windows may still redraw the whole view.
+     *
+     * @param showDirtyRegions Default is false
+     */
+    public void setShowDirtyRegions(boolean showDirtyRegions) {
+        mShowDirtyRegions = showDirtyRegions;
+        if (showDirtyRegions && mDirtyRegionPaint == null) {
+            mDirtyRegionPaint = new Paint();
+            mDirtyRegionPaint.setStyle(Paint.Style.STROKE);
+            mDirtyRegionPaint.setColor(Color.RED);
         }
-        mRightIndex = rightIndex;
-        leftThumb.setIndex(bar, mRightIndex);
         invalidate();
     }
 
+    /**
+     * Set index for the Left Thumb, thumbs it passes are pushed along
+     *
+     * @param leftIndex Default is 0
+     */
+    public void setLeftIndex(int leftIndex) {
+        scheduleUpdates(mController.setLeftIndex(leftIndex));
+    }
+
+    /**
+     * Set index for the Right thumb, thumbs it passes are pushed along
+     *
+     * @param rightIndex Default is 99
+     */
+    public void setRightIndex(int rightIndex) {
+        scheduleUpdates(mController.setRightIndex(rightIndex));
+    }
+
+    /**
+     * Set the index of the Left and the Right thumb in one update
+     */
+    public void setRange(int leftIndex, int rightIndex) {
+        scheduleUpdates(mController.setRange(leftIndex, rightIndex));
+    }
+
     /**
      * Get left index
      *
      * @return int
      */
     public int getLeftIndex() {
-        return mLeftIndex;
+        return mController.getLeftIndex();
     }
 
     /**
@@ -186,7 +841,7 @@ public class RangeSeekBar extends View {
      * @return int
      */
     public int getRightIndex() {
-        return mRightIndex;
+        return mController.getRightIndex();
     }
 
     /**
@@ -195,21 +850,159 @@ public class RangeSeekBar extends View {
      * @return int
      */
     public int getTickCount() {
-        return mTickCount;
+        return mController.getTickCount();
+    }
+
+    /**
+     * Report draw, touch and listener timings, see {@link com.lpphan.rangeseekbar.core.AggregatingMetrics}
+     * and {@link LogcatMetrics}
+     *
+     * @param metrics null to stop measuring, the default
+     */
+    public void setMetrics(RangeSeekBarMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public RangeSeekBarMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    @Override
+    public void invalidate() {
+        if (mMetrics != null) {
+            mMetrics.onInvalidate();
+        }
+        super.invalidate();
     }
 
     @Override
-    protected synchronized void onDraw(Canvas canvas) {
-        bar.draw(canvas, leftThumb, rightThumb);
-        leftThumb.draw(canvas);
-        rightThumb.draw(canvas);
-        if (pressedThumb != null && pressedThumb.isAnimating) {
+    protected void onDraw(Canvas canvas) {
+        RangeSeekBarMetrics metrics = mMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        mTrackLayer.draw(canvas, getWidth(), getHeight(), mModel.getGeometry(), bar, mHistogram,
+                mModel.getLeftIndex(), mModel.getRightIndex(), getPaddingTop() + getLabelSpace(),
+                mModel.getGeometry().getCenterY());
+        bar.drawConnecting(canvas, thumbAt(0), thumbAt(mThumbs.length - 1));
+        for (Thumb thumb : mThumbs) {
+            drawThumb(canvas, thumb);
+        }
+        if (mLabels != null) {
+            for (int i = 0; i < mThumbs.length; i++) {
+                mLabels.setThumb(i, mModel.getIndex(i), thumbAt(i).getDrawX(), mStyle);
+            }
+            mLabels.draw(canvas, mThumbs.length, getPaddingLeft(), getWidth() - getPaddingRight(), getLabelBaseline());
+        }
+
+        mDrawnDirtyRegion.set(mDirtyRegion);
+        mDirtyRegion.setEmpty();
+        if (mShowDirtyRegions && !mDrawnDirtyRegion.isEmpty()) {
+            canvas.drawRect(mDrawnDirtyRegion.getLeft(), mDrawnDirtyRegion.getTop(),
+                    mDrawnDirtyRegion.getRight() - 1, mDrawnDirtyRegion.getBottom() - 1, mDirtyRegionPaint);
+        }
+        if (metrics != null) {
+            metrics.onDraw(start, System.nanoTime() - start);
+        }
+    }
+
+    private void drawThumb(Canvas canvas, Thumb thumb) {
+        // thumbs outside of the zoomed window are not drawn
+        float drawX = thumb.getDrawX();
+        float extent = mStyle.getThumbPressedRadius() * ThumbAnimator.RIPPLE_SCALE;
+        if (drawX >= mModel.getGeometry().getLeftX() - extent && drawX <= mModel.getGeometry().getRightX() + extent) {
+            thumb.draw(canvas);
+        }
+    }
+
+    @Override
+    public void onAnimationFrame(long frameTimeNanos) {
+        if (mMetrics != null) {
+            mMetrics.onAnimationFrame(frameTimeNanos);
+        }
+        Thumb flingThumb = mFlingThumb;
+        if (flingThumb != null) {
+            syncThumbs();
+            if (!mController.isFlinging()) {
+                mFlingThumb = null;
+            }
+        }
+        for (Thumb thumb : mThumbs) {
+            if (thumb == flingThumb || thumb.animator.isAnimating() || thumb.lastDrawAnimating) {
+                invalidateThumb(thumb, thumb.lastDrawX);
+            }
+        }
+    }
+
+    /**
+     * Stop a running fling, the thumb snaps to its current tick
+     */
+    private void stopFling() {
+        if (mFlingThumb == null) {
+            return;
+        }
+        Thumb thumb = mFlingThumb;
+        mFlingThumb = null;
+        mController.stopFling();
+        syncThumbs();
+        invalidateThumb(thumb, thumb.lastDrawX);
+    }
+
+    /**
+     * Invalidate the area a thumb covered between the last draw and now: the thumb with its
+     * ripple at both positions and the part of the connecting bar in between.
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidateThumb(Thumb thumb, float fromX) {
+        float extent = Math.max(mStyle.getThumbPressedRadius() * ThumbAnimator.RIPPLE_SCALE,
+                bar.connectingPaint.getStrokeWidth() / 2) + 1;
+        mThumbRegion.setEmpty();
+        mThumbRegion.unionThumbMove(fromX, thumb.getDrawX(), thumb.y, extent);
+        if (mHistogram != null) {
+            // columns between both positions change their highlight
+            mThumbRegion.union(Math.min(fromX, thumb.getDrawX()), getPaddingTop() + getLabelSpace(),
+                    Math.max(fromX, thumb.getDrawX()), thumb.y);
+        }
+        if (mLabels != null) {
+            // pushed apart or merged, any label may move with the thumb
+            float baseline = getLabelBaseline();
+            mThumbRegion.union(getPaddingLeft(), baseline + mStyle.labelAscent,
+                    getWidth() - getPaddingRight(), baseline + mStyle.labelDescent + 1);
+        }
+        mDirtyRegion.union(mThumbRegion.getLeft(), mThumbRegion.getTop(),
+                mThumbRegion.getRight(), mThumbRegion.getBottom());
+        if (mShowDirtyRegions) {
+            // the outline of the previous region has to be erased too
             invalidate();
+        } else {
+            if (mMetrics != null) {
+                mMetrics.onInvalidate();
+            }
+            invalidate(mThumbRegion.getLeft(), mThumbRegion.getTop(),
+                    mThumbRegion.getRight(), mThumbRegion.getBottom());
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        for (Thumb thumb : mThumbs) {
+            if (thumb.animator.isAnimating()) {
+                mAnimationScheduler.start(thumb.animator);
+            }
         }
     }
 
     @Override
-    protected synchronized void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    protected void onDetachedFromWindow() {
+        mAttached = false;
+        stopFling();
+        mAnimationScheduler.cancelAll();
+        mDispatcher.flush();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         int height, width;
 
         int heightMode = MeasureSpec.getMode(heightMeasureSpec);
@@ -218,9 +1011,9 @@ public class RangeSeekBar extends View {
         if (heightMode == MeasureSpec.EXACTLY) {
             height = heightSize;
         } else if (heightMode == MeasureSpec.AT_MOST) {
-            height = Math.min(heightSize, DEFAULT_HEIGHT);
+            height = Math.min(heightSize, DEFAULT_HEIGHT + getLabelSpace());
         } else {
-            height = DEFAULT_HEIGHT;
+            height = DEFAULT_HEIGHT + getLabelSpace();
         }
 
         int widthMode = MeasureSpec.getMode(widthMeasureSpec);
@@ -238,95 +1031,175 @@ public class RangeSeekBar extends View {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        RangeSeekBarMetrics metrics = mMetrics;
+        if (metrics == null) {
+            return handleTouchEvent(event);
+        }
+        long start = System.nanoTime();
+        boolean handled = handleTouchEvent(event);
+        metrics.onTouchEvent(System.nanoTime() - start);
+        return handled;
+    }
+
+    private boolean handleTouchEvent(MotionEvent event) {
+        if (mViewportGestures != null) {
+            mViewportGestures.onTouchEvent(event, pressedThumb == null);
+            if (mViewportGestures.isScaling()) {
+                if (pressedThumb != null) {
+                    onActionUp(mController.release(0));
+                }
+                return true;
+            }
+        }
         float eventX = event.getX();
         float eventY = event.getY();
 
-        switch (event.getAction()) {
+        switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
-                pressedThumb = checkThumbPressed(eventX, eventY);
-                if (pressedThumb == null) {
-                    return super.onTouchEvent(event);
+                stopFling();
+                int thumb = mController.onDown(event.getEventTime() * 1000000L, eventX);
+                if (pressedThumb != null) {
+                    // the up of the last gesture was lost, the controller released its thumb
+                    onActionUp(false);
                 }
+                if (thumb == RangeModel.NO_THUMB) {
+                    return mViewportGestures != null || super.onTouchEvent(event);
+                }
+                pressedThumb = thumbAt(thumb);
                 pressedThumb.setPressed(true);
-                invalidate();
+                mAnimationScheduler.start(pressedThumb.animator);
+                invalidateThumb(pressedThumb, pressedThumb.getDrawX());
 
                 setPressed(true);
                 return true;
             case MotionEvent.ACTION_MOVE:
-                onActionMove(eventX);
+                onActionMove(event);
                 return true;
             case MotionEvent.ACTION_CANCEL:
             case MotionEvent.ACTION_UP:
                 if (pressedThumb == null) {
-                    return super.onTouchEvent(event);
+                    return mViewportGestures != null || super.onTouchEvent(event);
                 }
-                onActionUp();
+                boolean canceled = event.getActionMasked() == MotionEvent.ACTION_CANCEL;
+                onActionUp(mController.onUp(event.getEventTime() * 1000000L, canceled));
                 break;
         }
         return super.onTouchEvent(event);
     }
 
-    private void onActionUp() {
-        pressedThumb.onActionUp(bar);
-        invalidate();
+    /**
+     * Update the thumb the controller released
+     *
+     * @param flung Whether it keeps moving, the model keeps it pressed until the fling ends
+     */
+    private void onActionUp(boolean flung) {
+        Thumb thumb = pressedThumb;
+        float fromX = thumb.getDrawX();
+        pressedThumb = null;
+        thumb.drawOffset = 0;
+        if (flung) {
+            thumb.animator.release();
+            mAnimationScheduler.start(thumb.animator);
+            mFlingThumb = thumb;
+            invalidateThumb(thumb, fromX);
+            return;
+        }
+        // snaps back from the predicted position
+        thumb.setPressed(false);
+        mAnimationScheduler.start(thumb.animator);
+        syncThumbs();
+        invalidateThumb(thumb, fromX);
     }
 
-    private void onActionMove(float eventX) {
-        if (eventX >= bar.leftX && eventX <= bar.rightX) {
-            pressedThumb.x = eventX;
-            invalidate();
-
-            if (leftThumb.x > rightThumb.x) {
-                final Thumb temp = leftThumb;
-                leftThumb = rightThumb;
-                rightThumb = temp;
-            }
-
-            int leftIndex = bar.getNearestTick(leftThumb);
-            int rightIndex = bar.getNearestTick(rightThumb);
-
-            if (mLeftIndex != leftIndex || mRightIndex != rightIndex) {
-                mLeftIndex = leftIndex;
-                mRightIndex = rightIndex;
-
-                if (mListener != null) {
-                    mListener.onIndexChange(this, mLeftIndex, mRightIndex);
-                }
-            }
+    /**
+     * Apply the historical samples batched in the event, then the current one
+     */
+    private void onActionMove(MotionEvent event) {
+        int historySize = event.getHistorySize();
+        float fromX = pressedThumb != null ? pressedThumb.getDrawX() : 0;
+        mController.beginMove();
+        for (int i = 0; i < historySize; i++) {
+            mController.addMoveSample(event.getHistoricalEventTime(i) * 1000000L, event.getHistoricalX(i));
+        }
+        mController.addMoveSample(event.getEventTime() * 1000000L, event.getX());
+        int changes = mController.endMove();
+        if (pressedThumb == null) {
+            return;
+        }
+        float drawOffset = mController.getDrawOffset();
+        if (changes == 0 && drawOffset == pressedThumb.drawOffset) {
+            return;
+        }
+        // thumbs keep their id when crossing, only the dragged one moved
+        pressedThumb.x = mModel.getThumbX(mModel.getPressedThumb());
+        pressedThumb.drawOffset = drawOffset;
+        invalidateThumb(pressedThumb, fromX);
+    }
 
+    @Override
+    public void dispatchRangeChange(int[] indices) {
+        RangeSeekBarMetrics metrics = mMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        int leftIndex = indices[0];
+        int rightIndex = indices[indices.length - 1];
+        if (mFilter != null) {
+            mFilter.setRange(leftIndex, rightIndex);
         }
+        if (mListener != null) {
+            mListener.onIndexChange(this, leftIndex, rightIndex);
+        }
+        if (mIndicesListener != null) {
+            mIndicesListener.onIndicesChange(this, indices);
+        }
+        if (metrics != null) {
+            metrics.onListenerCall(System.nanoTime() - start);
+        }
+    }
 
+    @Override
+    public void dispatchStartTracking() {
+        if (mMetrics != null) {
+            mMetrics.onTrackingStart(System.nanoTime());
+        }
+        if (mTrackingListener != null) {
+            mTrackingListener.onStartTracking(this);
+        }
     }
 
-    private Thumb checkThumbPressed(float eventX, float eventY) {
-        Thumb result = null;
-        boolean isLeftThumbPressed = leftThumb.isInTargetZone(eventX, eventY);
-        boolean isRightThumbPressed = rightThumb.isInTargetZone(eventX, eventY);
+    @Override
+    public void dispatchStopTracking() {
+        if (mTrackingListener != null) {
+            mTrackingListener.onStopTracking(this);
+        }
+        if (mMetrics != null) {
+            mMetrics.onTrackingStop(System.nanoTime());
+        }
+    }
 
-        if (isLeftThumbPressed && isRightThumbPressed) {
-            result = (eventX / getWidth() >= 0.5f) ? leftThumb : rightThumb;
-        } else if (isLeftThumbPressed) {
-            result = leftThumb;
-        } else if (isRightThumbPressed) {
-            result = rightThumb;
+    private void syncThumbs() {
+        for (int i = 0; i < mThumbs.length; i++) {
+            thumbAt(i).x = mModel.getThumbX(i);
         }
-        return result;
     }
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        leftThumb.x = (getPaddingLeft() + 20 + leftThumb.normalRadius / 2);
-        leftThumb.y = (h + getPaddingTop() + getPaddingBottom()) / 2;
-        rightThumb.y = leftThumb.y;
-        rightThumb.x = (w - getPaddingRight() - 20 - rightThumb.normalRadius / 2);
+        layoutTrack(w, h);
+    }
 
-        bar.leftX = leftThumb.x;
-        bar.rightX = rightThumb.x;
-        bar.y = leftThumb.y;
+    private void layoutTrack(int w, int h) {
+        // the labels take the top of the view, the track moves down to make room
+        mModel.getGeometry().setFrame(w, h, getPaddingLeft(), getPaddingTop() + getLabelSpace(),
+                getPaddingRight(), getPaddingBottom(),
+                TRACK_INSET + mStyle.getThumbNormalRadius() / 2);
+        mModel.layout();
+        mTrackLayer.invalidate();
 
-        leftThumb.setIndex(bar, mLeftIndex);
-        rightThumb.setIndex(bar, mRightIndex);
+        for (Thumb thumb : mThumbs) {
+            thumb.y = mModel.getGeometry().getCenterY();
+        }
+        syncThumbs();
     }
 
     @Override
@@ -335,12 +1208,12 @@ public class RangeSeekBar extends View {
         Bundle bundle = new Bundle();
         SavedState state = new SavedState(super.onSaveInstanceState());
 
-        state.tickCount = mTickCount;
-        state.leftIndex = mLeftIndex;
-        state.rightIndex = mRightIndex;
-        state.thumbColor = mThumbColor;
-        state.thumbNormalRadius = mThumbNormalRadius;
-        state.thumbPressedRadius = mThumbPressedRadius;
+        state.tickCount = mModel.getTickCount();
+        state.indices = new int[mModel.getThumbCount()];
+        mModel.getIndices(state.indices);
+        state.thumbColor = mStyle.getThumbColor();
+        state.thumbNormalRadius = mStyle.getThumbNormalRadius();
+        state.thumbPressedRadius = mStyle.getThumbPressedRadius();
 
         bundle.putParcelable(SavedState.STATE,state);
         return bundle;
@@ -350,15 +1223,20 @@ public class RangeSeekBar extends View {
     protected void onRestoreInstanceState(Parcelable state) {
         if (state instanceof Bundle) {
             Bundle bundle = (Bundle) state;
-
+            // after process death the bundle is unparceled by the framework class loader
+            bundle.setClassLoader(SavedState.class.getClassLoader());
             SavedState savedState = bundle.getParcelable(SavedState.STATE);
+            if (savedState == null) {
+                super.onRestoreInstanceState(SavedState.EMPTY_STATE);
+                return;
+            }
 
-            mTickCount = savedState.tickCount;
-            mThumbColor = savedState.thumbColor;
-            mThumbNormalRadius = savedState.thumbNormalRadius;
-            mThumbPressedRadius = savedState.thumbPressedRadius;
-            mLeftIndex = savedState.leftIndex;
-            mRightIndex = savedState.rightIndex;
+            setStyle(mStyle.buildUpon()
+                    .setThumbColor(savedState.thumbColor)
+                    .setThumbNormalRadius(savedState.thumbNormalRadius)
+                    .setThumbPressedRadius(savedState.thumbPressedRadius)
+                    .build());
+            setRangeState(savedState.tickCount, savedState.indices, savedState.indices.length);
 
             super.onRestoreInstanceState(savedState.getSuperState());
             return;
@@ -370,12 +1248,30 @@ public class RangeSeekBar extends View {
         void onIndexChange(RangeSeekBar rangeBar, int leftIndex, int rightIndex);
     }
 
+    /**
+     * Called with the index of every thumb, from left to right
+     */
+    public interface OnThumbIndicesChangeListener {
+        /**
+         * @param indices Reused between calls, copy it to keep it
+         */
+        void onIndicesChange(RangeSeekBar rangeBar, int[] indices);
+    }
+
+    /**
+     * Bracket a drag, so heavy work can wait for {@link #onStopTracking(RangeSeekBar)}
+     */
+    public interface OnRangeSeekBarTrackingListener {
+        void onStartTracking(RangeSeekBar rangeBar);
+
+        void onStopTracking(RangeSeekBar rangeBar);
+    }
+
     static class SavedState extends BaseSavedState {
         static final String STATE = "RangeSeekBar.STATE";
 
         int tickCount;
-        int leftIndex;
-        int rightIndex;
+        int[] indices;
         int thumbColor;
         int thumbNormalRadius;
         int thumbPressedRadius;
@@ -386,11 +1282,21 @@ public class RangeSeekBar extends View {
 
         private SavedState(Parcel in) {
             super(in);
+            tickCount = in.readInt();
+            indices = in.createIntArray();
+            thumbColor = in.readInt();
+            thumbNormalRadius = in.readInt();
+            thumbPressedRadius = in.readInt();
         }
 
         @Override
         public void writeToParcel(Parcel out, int flags) {
             super.writeToParcel(out, flags);
+            out.writeInt(tickCount);
+            out.writeIntArray(indices);
+            out.writeInt(thumbColor);
+            out.writeInt(thumbNormalRadius);
+            out.writeInt(thumbPressedRadius);
         }
 
         public static final Parcelable.Creator<SavedState> CREATOR =
@@ -0,0 +1,265 @@
+package com.lpphan.rangeseekbar;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.lpphan.rangeseekbar.core.Crossfilter;
+import com.lpphan.rangeseekbar.core.RangePublisher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Links several RangeSeekBars filtering one dataset, one bar per column: every bar shows the
+ * histogram of the records selected by all the other bars, like a crossfilter dashboard.
+ * <p>
+ * The {@link Crossfilter} lives on a background worker fed by the {@link RangePublisher} of every
+ * bar, which carries the ranges set by code or restored as well as the dragged ones. Ranges
+ * arriving while the worker is busy are conflated, and changed counts are only sent
+ * back to the UI thread when no newer range is waiting, so superseded recomputations are skipped.
+ * The bars then update only the histogram ticks whose count changed.
+ * <p>
+ * Call the methods on the UI thread. The worker thread stops when idle, {@link #release()} stops
+ * following the bars.
+ */
+public class RangeSeekBarCrossfilter {
+
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 5;
+
+    private final Crossfilter mCrossfilter;
+    // one thread at most, started on demand, so tasks run in order
+    private final ThreadPoolExecutor mWorker = new ThreadPoolExecutor(0, 1,
+            WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private int mDimensionCount;
+    private OnSelectedCountChangeListener mListener;
+    private int mSelectedCount;
+    private boolean mReleased;
+
+    // worker only
+    private final ArrayList<Dimension> mWorkerDimensions = new ArrayList<Dimension>();
+    private int mSentSelectedCount = -1;
+
+    /**
+     * @param recordCount Number of rows of the dataset
+     */
+    public RangeSeekBarCrossfilter(int recordCount) {
+        mCrossfilter = new Crossfilter(recordCount);
+        mSelectedCount = recordCount;
+    }
+
+    /**
+     * Filter the dataset by a bar. Its histogram is replaced by the counts of the column.
+     *
+     * @param keys Tick of every record in the bar's domain, in [0, bar.getTickCount())
+     */
+    public void addDimension(RangeSeekBar bar, int[] keys) {
+        if (mReleased) {
+            throw new IllegalStateException("Crossfilter was released");
+        }
+        if (mDimensionCount == Crossfilter.MAX_DIMENSIONS) {
+            throw new IllegalStateException("At most " + Crossfilter.MAX_DIMENSIONS + " dimensions");
+        }
+        if (keys.length != mCrossfilter.getRecordCount()) {
+            throw new IllegalArgumentException("Expected one key per record");
+        }
+        final int tickCount = bar.getTickCount();
+        for (int key : keys) {
+            if (key < 0 || key >= tickCount) {
+                throw new IllegalArgumentException("Keys must be in [0, tickCount)");
+            }
+        }
+        mDimensionCount++;
+        final Dimension dimension = new Dimension(bar, tickCount);
+        final int[] copy = keys.clone();
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                dimension.filter = mCrossfilter.addDimension(copy, tickCount);
+                mWorkerDimensions.add(dimension);
+                sendChanges();
+            }
+        });
+        // subscribed on the worker after the dimension was added
+        bar.getRangePublisher().subscribe(dimension, mWorker);
+    }
+
+    /**
+     * Number of records inside the ranges of all bars, as of the last counts received
+     */
+    public int getSelectedCount() {
+        return mSelectedCount;
+    }
+
+    public void setOnSelectedCountChangeListener(OnSelectedCountChangeListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Stop following the bars, their histograms are left as they are
+     */
+    public void release() {
+        if (mReleased) {
+            return;
+        }
+        mReleased = true;
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Dimension dimension : mWorkerDimensions) {
+                    if (dimension.subscription != null) {
+                        dimension.subscription.cancel();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Worker: hand the changed counts to the UI thread, unless a newer range waits and its own
+     * pass will send the changes of both
+     */
+    private void sendChanges() {
+        int count = mWorkerDimensions.size();
+        for (int i = 0; i < count; i++) {
+            RangePublisher.Subscription subscription = mWorkerDimensions.get(i).subscription;
+            if (subscription != null && subscription.isStale()) {
+                return;
+            }
+        }
+        final Changes changes = new Changes(count, mCrossfilter.getSelectedCount());
+        boolean changed = false;
+        for (int i = 0; i < count; i++) {
+            changed |= mWorkerDimensions.get(i).collect(changes, i);
+        }
+        if (!changed && changes.selectedCount == mSentSelectedCount) {
+            return;
+        }
+        mSentSelectedCount = changes.selectedCount;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mReleased) {
+                    applyChanges(changes);
+                }
+            }
+        });
+    }
+
+    private void applyChanges(Changes changes) {
+        for (int i = 0; i < changes.bars.length; i++) {
+            RangeSeekBar bar = changes.bars[i];
+            if (bar.getTickCount() != changes.tickCounts[i]) {
+                // the bar changed its domain, its histogram no longer matches the column
+                continue;
+            }
+            if (changes.fullCounts[i] != null) {
+                bar.setHistogram(changes.fullCounts[i]);
+            } else if (changes.ticks[i] != null) {
+                int[] ticks = changes.ticks[i];
+                long[] counts = changes.counts[i];
+                for (int j = 0; j < ticks.length; j++) {
+                    bar.setHistogramCount(ticks[j], counts[j]);
+                }
+            }
+        }
+        if (changes.selectedCount != mSelectedCount) {
+            mSelectedCount = changes.selectedCount;
+            if (mListener != null) {
+                mListener.onSelectedCountChange(this, mSelectedCount);
+            }
+        }
+    }
+
+    private class Dimension implements RangePublisher.Subscriber {
+        final RangeSeekBar bar;
+        final int tickCount;
+        // worker only
+        Crossfilter.Dimension filter;
+        RangePublisher.Subscription subscription;
+        private boolean mSent;
+        private final int[] mTicks;
+        private final long[] mCounts;
+
+        Dimension(RangeSeekBar bar, int tickCount) {
+            this.bar = bar;
+            this.tickCount = tickCount;
+            mTicks = new int[tickCount];
+            mCounts = new long[tickCount];
+        }
+
+        /**
+         * Worker: put the counts changed since the last call into the changes
+         *
+         * @return false if no count changed
+         */
+        boolean collect(Changes changes, int position) {
+            changes.bars[position] = bar;
+            changes.tickCounts[position] = tickCount;
+            int changed = filter.getChangedCount();
+            if (!mSent || changed > tickCount / 4) {
+                // first counts, or cheaper to replace than to update tick by tick
+                mSent = true;
+                filter.collectChanges(mTicks, mCounts);
+                changes.fullCounts[position] = new long[tickCount];
+                filter.getCounts(changes.fullCounts[position]);
+                return true;
+            }
+            if (changed == 0) {
+                return false;
+            }
+            filter.collectChanges(mTicks, mCounts);
+            changes.ticks[position] = Arrays.copyOf(mTicks, changed);
+            changes.counts[position] = Arrays.copyOf(mCounts, changed);
+            return true;
+        }
+
+        @Override
+        public void onSubscribe(RangePublisher.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(long range) {
+            filter.filterRange(RangePublisher.leftIndexOf(range), RangePublisher.rightIndexOf(range));
+            sendChanges();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Counts handed from the worker to the UI thread
+     */
+    private static class Changes {
+        final RangeSeekBar[] bars;
+        final int[] tickCounts;
+        final int[][] ticks;
+        final long[][] counts;
+        final long[][] fullCounts;
+        final int selectedCount;
+
+        Changes(int dimensionCount, int selectedCount) {
+            bars = new RangeSeekBar[dimensionCount];
+            tickCounts = new int[dimensionCount];
+            ticks = new int[dimensionCount][];
+            counts = new long[dimensionCount][];
+            fullCounts = new long[dimensionCount][];
+            this.selectedCount = selectedCount;
+        }
+    }
+
+    public interface OnSelectedCountChangeListener {
+        void onSelectedCountChange(RangeSeekBarCrossfilter crossfilter, int selectedCount);
+    }
+}
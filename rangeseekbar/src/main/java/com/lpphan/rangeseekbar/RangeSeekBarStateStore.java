@@ -0,0 +1,139 @@
+package com.lpphan.rangeseekbar;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.lpphan.rangeseekbar.core.AtomicRangeState;
+import com.lpphan.rangeseekbar.core.PackedRangeStates;
+import com.lpphan.rangeseekbar.core.RangeModel;
+
+/**
+ * Ranges of the bars in a list, kept by adapter position while their views are recycled.
+ * <p>
+ * States are packed in one int array, see {@link PackedRangeStates}: saving and restoring a bar
+ * is O(1). On the UI thread, the restored range is written straight into the bar, so no object
+ * is created per item unless the bar's thumb count changes. The store is Parcelable, save it
+ * with the state of the screen to keep all the ranges across process death.
+ * <pre>
+ * public void onBindViewHolder(Holder holder, int position) {
+ *     if (!store.restore(position, holder.seekBar)) {
+ *         holder.seekBar.setIndices(0, 99);
+ *     }
+ * }
+ *
+ * public void onViewRecycled(Holder holder) {
+ *     store.save(holder.getAdapterPosition(), holder.seekBar);
+ * }
+ * </pre>
+ */
+public class RangeSeekBarStateStore implements Parcelable {
+
+    private final PackedRangeStates mStates;
+    private final int[] mIndices = new int[RangeModel.MAX_THUMB_COUNT];
+
+    /**
+     * Store for bars with two thumbs
+     */
+    public RangeSeekBarStateStore() {
+        this(RangeModel.MIN_THUMB_COUNT);
+    }
+
+    /**
+     * @param maxThumbCount Largest thumb count of the bars, from 2 to 16
+     */
+    public RangeSeekBarStateStore(int maxThumbCount) {
+        mStates = new PackedRangeStates(maxThumbCount);
+    }
+
+    private RangeSeekBarStateStore(Parcel in) {
+        int maxThumbCount = in.readInt();
+        int size = in.readInt();
+        mStates = new PackedRangeStates(maxThumbCount, in.createIntArray(), size);
+    }
+
+    /**
+     * Keep the range of a bar, typically when its view is recycled
+     */
+    public void save(int position, RangeSeekBar bar) {
+        long counts = bar.readRangeState(mIndices);
+        int thumbCount = AtomicRangeState.thumbCountOf(counts);
+        if (thumbCount > mStates.getMaxThumbCount()) {
+            throw new IllegalArgumentException("Bar has more than " + mStates.getMaxThumbCount() + " thumbs");
+        }
+        mStates.put(position, AtomicRangeState.tickCountOf(counts), mIndices, thumbCount);
+    }
+
+    /**
+     * Give a bar the range saved for a position
+     *
+     * @return false if nothing was saved for the position, the bar is left unchanged
+     */
+    public boolean restore(int position, RangeSeekBar bar) {
+        int thumbCount = mStates.getIndices(position, mIndices);
+        if (thumbCount == 0) {
+            return false;
+        }
+        bar.setRangeState(mStates.getTickCount(position), mIndices, thumbCount);
+        return true;
+    }
+
+    public boolean contains(int position) {
+        return mStates.contains(position);
+    }
+
+    public void remove(int position) {
+        mStates.remove(position);
+    }
+
+    public void clear() {
+        mStates.clear();
+    }
+
+    /**
+     * Keep the saved states in line with the adapter, call from notifyItemRangeInserted
+     */
+    public void onItemRangeInserted(int position, int count) {
+        mStates.insertRange(position, count);
+    }
+
+    public void onItemRangeRemoved(int position, int count) {
+        mStates.removeRange(position, count);
+    }
+
+    /**
+     * Rough number of bytes held by the store
+     */
+    public int getMemoryFootprint() {
+        return Footprint.object(2 * Footprint.REFERENCE) + Footprint.array(mIndices.length, 4)
+                + Footprint.object(Footprint.REFERENCE + 3 * 4) + Footprint.array(mStates.getData().length, 4);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel out, int flags) {
+        int size = mStates.size();
+        int length = size * (2 + mStates.getMaxThumbCount());
+        out.writeInt(mStates.getMaxThumbCount());
+        out.writeInt(size);
+        out.writeInt(length);
+        int[] data = mStates.getData();
+        for (int i = 0; i < length; i++) {
+            out.writeInt(data[i]);
+        }
+    }
+
+    public static final Parcelable.Creator<RangeSeekBarStateStore> CREATOR =
+            new Parcelable.Creator<RangeSeekBarStateStore>() {
+                public RangeSeekBarStateStore createFromParcel(Parcel in) {
+                    return new RangeSeekBarStateStore(in);
+                }
+
+                public RangeSeekBarStateStore[] newArray(int size) {
+                    return new RangeSeekBarStateStore[size];
+                }
+            };
+}
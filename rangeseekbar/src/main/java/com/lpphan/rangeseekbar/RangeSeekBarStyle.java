@@ -0,0 +1,418 @@
+package com.lpphan.rangeseekbar;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.lpphan.rangeseekbar.core.ThumbAnimator;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Colors and sizes of a {@link RangeSeekBar}, immutable and shareable.
+ * <p>
+ * Styles are interned by value: {@link Builder#build()} returns the existing instance when an equal
+ * style is in use, so any number of bars with the same look share one set of Paint objects.
+ * Equality only looks at what is drawn: a color left to its default equals the same color set
+ * explicitly.
+ * Shared paints are never modified after the style is built, the ripple fades through
+ * {@link #RIPPLE_ALPHA_STEPS} pre-made paints instead of changing the alpha of one.
+ * <p>
+ * The widths of the printable ASCII characters in the label paint are measured once with the
+ * paints, labels made of them are measured by adding up table entries.
+ */
+public final class RangeSeekBarStyle {
+
+    /**
+     * Number of ripple paints, the ripple alpha is quantized to this many steps
+     */
+    public static final int RIPPLE_ALPHA_STEPS = 16;
+
+    private static final char FIRST_CACHED_GLYPH = ' ';
+    private static final char LAST_CACHED_GLYPH = '~';
+
+    private static final WeakHashMap<RangeSeekBarStyle, WeakReference<RangeSeekBarStyle>> sInterned =
+            new WeakHashMap<RangeSeekBarStyle, WeakReference<RangeSeekBarStyle>>();
+
+    private final int mThumbColor;
+    private final int mThumbNormalRadius;
+    private final int mThumbPressedRadius;
+    private final int mRippleColor;
+    private final int mBarColor;
+    private final int mBarStrokeWidth;
+    private final int mConnectingColor;
+    private final int mConnectingStrokeWidth;
+    private final int mHistogramColor;
+    private final int mHistogramSelectedColor;
+    private final int mLabelColor;
+    private final int mLabelTextSize;
+
+    // created once, when the style is interned
+    Paint thumbPaint;
+    Paint barPaint;
+    Paint connectingPaint;
+    Paint histogramPaint;
+    Paint histogramSelectedPaint;
+    Paint spritePaint;
+    Paint labelPaint;
+    float labelAscent;
+    float labelDescent;
+    private Paint[] mRipplePaints;
+    private float[] mGlyphWidths;
+
+    private RangeSeekBarStyle(Builder builder) {
+        mThumbColor = builder.mThumbColor;
+        mThumbNormalRadius = builder.mThumbNormalRadius;
+        mThumbPressedRadius = builder.mThumbPressedRadius;
+        mRippleColor = builder.mRippleColor;
+        mBarColor = builder.mBarColor;
+        mBarStrokeWidth = builder.mBarStrokeWidth;
+        mConnectingStrokeWidth = builder.mConnectingStrokeWidth;
+        mHistogramColor = builder.mHistogramColor;
+        mLabelColor = builder.mLabelColor;
+        mLabelTextSize = builder.mLabelTextSize;
+        mConnectingColor = builder.mConnectingColorSet ? builder.mConnectingColor : mThumbColor;
+        mHistogramSelectedColor = builder.mHistogramSelectedColorSet
+                ? builder.mHistogramSelectedColor : defaultHistogramSelectedColor(mThumbColor);
+    }
+
+    private static int defaultHistogramSelectedColor(int thumbColor) {
+        return (thumbColor & 0x00ffffff) | 0x80000000;
+    }
+
+    private static RangeSeekBarStyle intern(RangeSeekBarStyle style) {
+        synchronized (sInterned) {
+            WeakReference<RangeSeekBarStyle> reference = sInterned.get(style);
+            RangeSeekBarStyle interned = reference == null ? null : reference.get();
+            if (interned != null) {
+                return interned;
+            }
+            style.createPaints();
+            sInterned.put(style, new WeakReference<RangeSeekBarStyle>(style));
+            return style;
+        }
+    }
+
+    /**
+     * @return number of distinct styles in use
+     */
+    public static int getInternedCount() {
+        synchronized (sInterned) {
+            return sInterned.size();
+        }
+    }
+
+    private void createPaints() {
+        thumbPaint = fillPaint(mThumbColor);
+        histogramPaint = fillPaint(mHistogramColor);
+        histogramSelectedPaint = fillPaint(mHistogramSelectedColor);
+        barPaint = strokePaint(mBarColor, mBarStrokeWidth);
+        connectingPaint = strokePaint(mConnectingColor, mConnectingStrokeWidth);
+        spritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        labelPaint = fillPaint(mLabelColor);
+        labelPaint.setTextSize(mLabelTextSize);
+        Paint.FontMetrics fontMetrics = labelPaint.getFontMetrics();
+        labelAscent = fontMetrics.ascent;
+        labelDescent = fontMetrics.descent;
+        char[] glyph = new char[1];
+        mGlyphWidths = new float[LAST_CACHED_GLYPH - FIRST_CACHED_GLYPH + 1];
+        for (int i = 0; i < mGlyphWidths.length; i++) {
+            glyph[0] = (char) (FIRST_CACHED_GLYPH + i);
+            mGlyphWidths[i] = labelPaint.measureText(glyph, 0, 1);
+        }
+        mRipplePaints = new Paint[RIPPLE_ALPHA_STEPS];
+        for (int i = 0; i < RIPPLE_ALPHA_STEPS; i++) {
+            mRipplePaints[i] = fillPaint(mRippleColor);
+            mRipplePaints[i].setAlpha(Math.round(i * ThumbAnimator.RIPPLE_MAX_ALPHA / (float) (RIPPLE_ALPHA_STEPS - 1)));
+        }
+    }
+
+    private static Paint fillPaint(int color) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(color);
+        return paint;
+    }
+
+    private static Paint strokePaint(int color, int strokeWidth) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(strokeWidth);
+        paint.setColor(color);
+        return paint;
+    }
+
+    /**
+     * @param alpha From 0 to {@link ThumbAnimator#RIPPLE_MAX_ALPHA}
+     */
+    Paint getRipplePaint(int alpha) {
+        int step = Math.round(alpha * (RIPPLE_ALPHA_STEPS - 1) / (float) ThumbAnimator.RIPPLE_MAX_ALPHA);
+        return mRipplePaints[Math.max(0, Math.min(step, RIPPLE_ALPHA_STEPS - 1))];
+    }
+
+    /**
+     * Width of a label in the label paint, from the glyph table for printable ASCII characters
+     */
+    float measureLabel(char[] text, int start, int count) {
+        float width = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text[i];
+            if (c >= FIRST_CACHED_GLYPH && c <= LAST_CACHED_GLYPH) {
+                width += mGlyphWidths[c - FIRST_CACHED_GLYPH];
+            } else {
+                width += labelPaint.measureText(text, i, 1);
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Height of a label line in the label paint
+     */
+    float getLabelHeight() {
+        return labelDescent - labelAscent;
+    }
+
+    /**
+     * Rough number of bytes held by this style, shared by every bar using it
+     */
+    public int getMemoryFootprint() {
+        return Footprint.OBJECT + 14 * 4 + (7 + RIPPLE_ALPHA_STEPS) * Footprint.PAINT
+                + Footprint.array(RIPPLE_ALPHA_STEPS, Footprint.REFERENCE)
+                + Footprint.array(LAST_CACHED_GLYPH - FIRST_CACHED_GLYPH + 1, 4);
+    }
+
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    public int getThumbColor() {
+        return mThumbColor;
+    }
+
+    public int getThumbNormalRadius() {
+        return mThumbNormalRadius;
+    }
+
+    public int getThumbPressedRadius() {
+        return mThumbPressedRadius;
+    }
+
+    public int getRippleColor() {
+        return mRippleColor;
+    }
+
+    public int getBarColor() {
+        return mBarColor;
+    }
+
+    public int getBarStrokeWidth() {
+        return mBarStrokeWidth;
+    }
+
+    public int getConnectingColor() {
+        return mConnectingColor;
+    }
+
+    public int getConnectingStrokeWidth() {
+        return mConnectingStrokeWidth;
+    }
+
+    public int getHistogramColor() {
+        return mHistogramColor;
+    }
+
+    public int getHistogramSelectedColor() {
+        return mHistogramSelectedColor;
+    }
+
+    public int getLabelColor() {
+        return mLabelColor;
+    }
+
+    public int getLabelTextSize() {
+        return mLabelTextSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RangeSeekBarStyle)) {
+            return false;
+        }
+        RangeSeekBarStyle style = (RangeSeekBarStyle) o;
+        return mThumbColor == style.mThumbColor
+                && mThumbNormalRadius == style.mThumbNormalRadius
+                && mThumbPressedRadius == style.mThumbPressedRadius
+                && mRippleColor == style.mRippleColor
+                && mBarColor == style.mBarColor
+                && mBarStrokeWidth == style.mBarStrokeWidth
+                && mConnectingColor == style.mConnectingColor
+                && mConnectingStrokeWidth == style.mConnectingStrokeWidth
+                && mHistogramColor == style.mHistogramColor
+                && mHistogramSelectedColor == style.mHistogramSelectedColor
+                && mLabelColor == style.mLabelColor
+                && mLabelTextSize == style.mLabelTextSize;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mThumbColor;
+        result = 31 * result + mThumbNormalRadius;
+        result = 31 * result + mThumbPressedRadius;
+        result = 31 * result + mRippleColor;
+        result = 31 * result + mBarColor;
+        result = 31 * result + mBarStrokeWidth;
+        result = 31 * result + mConnectingColor;
+        result = 31 * result + mConnectingStrokeWidth;
+        result = 31 * result + mHistogramColor;
+        result = 31 * result + mHistogramSelectedColor;
+        result = 31 * result + mLabelColor;
+        result = 31 * result + mLabelTextSize;
+        return result;
+    }
+
+    public static final class Builder {
+        private int mThumbColor;
+        private int mThumbNormalRadius = 12;
+        private int mThumbPressedRadius = 16;
+        private int mRippleColor;
+        private int mBarColor = Color.BLACK;
+        private int mBarStrokeWidth = 1;
+        private int mConnectingColor;
+        private int mConnectingStrokeWidth = 3;
+        private int mHistogramColor;
+        private int mHistogramSelectedColor;
+        private int mLabelColor = 0xff757575;
+        private int mLabelTextSize = 24;
+        private boolean mConnectingColorSet;
+        private boolean mHistogramSelectedColorSet;
+
+        /**
+         * Start from the default colors of the library resources, the ones RangeSeekBar uses
+         */
+        @SuppressWarnings("deprecation")
+        public Builder(Context context) {
+            Resources resources = context.getResources();
+            mThumbColor = resources.getColor(R.color.thumb_default);
+            mRippleColor = resources.getColor(R.color.thumb_ripple_color);
+            mHistogramColor = resources.getColor(R.color.histogram_default);
+        }
+
+        private Builder(RangeSeekBarStyle style) {
+            mThumbColor = style.mThumbColor;
+            mThumbNormalRadius = style.mThumbNormalRadius;
+            mThumbPressedRadius = style.mThumbPressedRadius;
+            mRippleColor = style.mRippleColor;
+            mBarColor = style.mBarColor;
+            mBarStrokeWidth = style.mBarStrokeWidth;
+            mConnectingColor = style.mConnectingColor;
+            mConnectingStrokeWidth = style.mConnectingStrokeWidth;
+            mHistogramColor = style.mHistogramColor;
+            mHistogramSelectedColor = style.mHistogramSelectedColor;
+            mLabelColor = style.mLabelColor;
+            mLabelTextSize = style.mLabelTextSize;
+            // colors equal to their default keep following the thumb color
+            mConnectingColorSet = style.mConnectingColor != style.mThumbColor;
+            mHistogramSelectedColorSet = style.mHistogramSelectedColor
+                    != defaultHistogramSelectedColor(style.mThumbColor);
+        }
+
+        public Builder setThumbColor(int thumbColor) {
+            mThumbColor = thumbColor;
+            return this;
+        }
+
+        /**
+         * @param thumbNormalRadius Pixels
+         */
+        public Builder setThumbNormalRadius(int thumbNormalRadius) {
+            mThumbNormalRadius = thumbNormalRadius;
+            return this;
+        }
+
+        /**
+         * @param thumbPressedRadius Pixels
+         */
+        public Builder setThumbPressedRadius(int thumbPressedRadius) {
+            mThumbPressedRadius = thumbPressedRadius;
+            return this;
+        }
+
+        public Builder setRippleColor(int rippleColor) {
+            mRippleColor = rippleColor;
+            return this;
+        }
+
+        public Builder setBarColor(int barColor) {
+            mBarColor = barColor;
+            return this;
+        }
+
+        public Builder setBarStrokeWidth(int barStrokeWidth) {
+            mBarStrokeWidth = barStrokeWidth;
+            return this;
+        }
+
+        /**
+         * @param connectingColor Color of the bar between the thumbs, the thumb color by default
+         */
+        public Builder setConnectingColor(int connectingColor) {
+            mConnectingColor = connectingColor;
+            mConnectingColorSet = true;
+            return this;
+        }
+
+        public Builder setConnectingStrokeWidth(int connectingStrokeWidth) {
+            mConnectingStrokeWidth = connectingStrokeWidth;
+            return this;
+        }
+
+        public Builder setHistogramColor(int histogramColor) {
+            mHistogramColor = histogramColor;
+            return this;
+        }
+
+        /**
+         * @param histogramSelectedColor Half transparent thumb color by default
+         */
+        public Builder setHistogramSelectedColor(int histogramSelectedColor) {
+            mHistogramSelectedColor = histogramSelectedColor;
+            mHistogramSelectedColorSet = true;
+            return this;
+        }
+
+        public Builder setLabelColor(int labelColor) {
+            mLabelColor = labelColor;
+            return this;
+        }
+
+        /**
+         * @param labelTextSize Pixels
+         */
+        public Builder setLabelTextSize(int labelTextSize) {
+            mLabelTextSize = labelTextSize;
+            return this;
+        }
+
+        /**
+         * @return the shared instance equal to this style
+         */
+        public RangeSeekBarStyle build() {
+            if (mThumbNormalRadius < 0 || mThumbPressedRadius < 0) {
+                throw new IllegalArgumentException("Thumb radii must be >= 0");
+            }
+            if (mBarStrokeWidth < 0 || mConnectingStrokeWidth < 0) {
+                throw new IllegalArgumentException("Stroke widths must be >= 0");
+            }
+            if (mLabelTextSize <= 0) {
+                throw new IllegalArgumentException("Label text size must be > 0");
+            }
+            return intern(new RangeSeekBarStyle(this));
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.lpphan.rangeseekbar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.ViewConfiguration;
+
+import com.lpphan.rangeseekbar.core.FrameClock;
+import com.lpphan.rangeseekbar.core.SharedFrameClock;
+import com.lpphan.rangeseekbar.core.TouchEventQueue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Host drawing any number of {@link SurfaceRangeBar} on one surface from a dedicated render thread.
+ * <p>
+ * The UI thread only copies touch samples into a lock-free {@link TouchEventQueue} and wakes the
+ * render thread at most once per frame; hit testing, dragging, flings, animations, listeners and
+ * drawing all run on the render thread, paced by its own Choreographer. A busy UI thread does not
+ * stall a drag, and dragging costs the UI thread next to nothing.
+ * <p>
+ * A single pointer is tracked, samples arriving while the render thread is stalled for more than
+ * {@link #TOUCH_QUEUE_CAPACITY} samples are dropped.
+ */
+@SuppressWarnings("unused")
+public class RangeSeekBarSurface extends SurfaceView
+        implements SurfaceHolder.Callback, SharedFrameClock.Host {
+
+    public static final int TOUCH_QUEUE_CAPACITY = 256;
+
+    private static final float FLING_DECELERATION = 8000;
+
+    private final SharedFrameClock mClock = new SharedFrameClock(this);
+    private final TouchEventQueue mTouchQueue = new TouchEventQueue(TOUCH_QUEUE_CAPACITY);
+    private final Object mBarsLock = new Object();
+    private volatile SurfaceRangeBar[] mBars = new SurfaceRangeBar[0];
+    private volatile int mBackgroundColor = Color.WHITE;
+    private int mMinFlingVelocity;
+    private int mMaxFlingVelocity;
+    private float mFlingDeceleration;
+
+    private HandlerThread mRenderThread;
+    private volatile Handler mRenderHandler;
+    private final AtomicBoolean mWakePending = new AtomicBoolean();
+    private final Runnable mWake = new Runnable() {
+        @Override
+        public void run() {
+            mWakePending.set(false);
+            requestFrame();
+        }
+    };
+
+    // guards the surface between lockCanvas and unlockCanvasAndPost
+    private final Object mSurfaceLock = new Object();
+    private volatile boolean mSurfaceReady;
+    private volatile boolean mRedrawRequested;
+
+    // render thread only
+    private FrameClock mFrameSource;
+    private final FrameClock.Callback mRenderFrame = new FrameClock.Callback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            renderFrame(frameTimeNanos);
+        }
+    };
+    private SurfaceRangeBar mTouchBar;
+    private boolean mMoving;
+    private boolean mDirty;
+
+    public RangeSeekBarSurface(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context);
+    }
+
+    public RangeSeekBarSurface(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context);
+    }
+
+    public RangeSeekBarSurface(Context context) {
+        super(context);
+        init(context);
+    }
+
+    private void init(Context context) {
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        mFlingDeceleration = FLING_DECELERATION * getResources().getDisplayMetrics().density;
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * Add a bar, place it with {@link SurfaceRangeBar#setBounds(int, int, int, int)}
+     */
+    public SurfaceRangeBar addBar(RangeSeekBarStyle style, int tickCount) {
+        SurfaceRangeBar bar = new SurfaceRangeBar(this, mClock, style, tickCount);
+        synchronized (mBarsLock) {
+            SurfaceRangeBar[] bars = new SurfaceRangeBar[mBars.length + 1];
+            System.arraycopy(mBars, 0, bars, 0, mBars.length);
+            bars[mBars.length] = bar;
+            mBars = bars;
+        }
+        redraw();
+        return bar;
+    }
+
+    public void removeBar(SurfaceRangeBar bar) {
+        synchronized (mBarsLock) {
+            SurfaceRangeBar[] bars = mBars;
+            for (int i = 0; i < bars.length; i++) {
+                if (bars[i] == bar) {
+                    SurfaceRangeBar[] remaining = new SurfaceRangeBar[bars.length - 1];
+                    System.arraycopy(bars, 0, remaining, 0, i);
+                    System.arraycopy(bars, i + 1, remaining, i, remaining.length - i);
+                    mBars = remaining;
+                    break;
+                }
+            }
+        }
+        redraw();
+    }
+
+    public int getBarCount() {
+        return mBars.length;
+    }
+
+    public SurfaceRangeBar getBar(int position) {
+        return mBars[position];
+    }
+
+    /**
+     * @param color Drawn behind the bars, the surface is opaque. Default is white.
+     */
+    public void setSurfaceColor(int color) {
+        mBackgroundColor = color;
+        redraw();
+    }
+
+    public int getSurfaceColor() {
+        return mBackgroundColor;
+    }
+
+    /**
+     * Touch samples refused because the render thread fell behind
+     */
+    public long getDroppedTouchCount() {
+        return mTouchQueue.getDroppedCount();
+    }
+
+    int getMinFlingVelocity() {
+        return mMinFlingVelocity;
+    }
+
+    int getMaxFlingVelocity() {
+        return mMaxFlingVelocity;
+    }
+
+    float getFlingDeceleration() {
+        return mFlingDeceleration;
+    }
+
+    private void redraw() {
+        mRedrawRequested = true;
+        wake();
+    }
+
+    /**
+     * Any thread: run a render frame soon, posting to the render thread at most once per frame
+     */
+    void wake() {
+        Handler handler = mRenderHandler;
+        if (handler != null && mWakePending.compareAndSet(false, true)) {
+            handler.post(mWake);
+        }
+    }
+
+    /**
+     * Render thread: draw on the next frame
+     */
+    void invalidateFrame() {
+        mDirty = true;
+    }
+
+    /**
+     * Render thread, from {@link #wake()} or the shared clock
+     */
+    @Override
+    public void requestFrame() {
+        if (mFrameSource != null) {
+            mFrameSource.postFrameCallback(mRenderFrame);
+        }
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private void renderFrame(long frameTimeNanos) {
+        SurfaceRangeBar[] bars = mBars;
+        TouchEventQueue queue = mTouchQueue;
+        while (queue.poll()) {
+            routeTouch(bars, queue.getAction(), queue.getTime(), queue.getX(), queue.getY());
+        }
+        endMove();
+        for (SurfaceRangeBar bar : bars) {
+            bar.applyPending();
+        }
+        mClock.doFrame(frameTimeNanos);
+        if (mRedrawRequested) {
+            mRedrawRequested = false;
+            mDirty = true;
+        }
+        if (mDirty && draw(bars)) {
+            mDirty = false;
+        }
+    }
+
+    /**
+     * The move samples taken in one frame go to the bar as one move event
+     */
+    private void routeTouch(SurfaceRangeBar[] bars, int action, long timeNanos, float x, float y) {
+        if (action != MotionEvent.ACTION_MOVE) {
+            endMove();
+        }
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                SurfaceRangeBar previous = mTouchBar;
+                mTouchBar = null;
+                for (SurfaceRangeBar bar : bars) {
+                    if (bar.onTouchDown(x, y, timeNanos)) {
+                        mTouchBar = bar;
+                        break;
+                    }
+                }
+                if (previous != null && previous != mTouchBar) {
+                    // the release was dropped, a down on the same bar already released its thumb
+                    previous.onTouchUp(timeNanos, true);
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (mTouchBar != null) {
+                    if (!mMoving) {
+                        mMoving = true;
+                        mTouchBar.beginTouchMove();
+                    }
+                    mTouchBar.onTouchMove(x, timeNanos);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (mTouchBar != null) {
+                    mTouchBar.onTouchUp(timeNanos, action == MotionEvent.ACTION_CANCEL);
+                    mTouchBar = null;
+                }
+                break;
+        }
+    }
+
+    private void endMove() {
+        if (mMoving) {
+            mMoving = false;
+            mTouchBar.endTouchMove();
+        }
+    }
+
+    /**
+     * @return false if the surface could not be drawn
+     */
+    private boolean draw(SurfaceRangeBar[] bars) {
+        synchronized (mSurfaceLock) {
+            if (!mSurfaceReady) {
+                return false;
+            }
+            SurfaceHolder holder = getHolder();
+            Canvas canvas = holder.lockCanvas();
+            if (canvas == null) {
+                return false;
+            }
+            try {
+                canvas.drawColor(mBackgroundColor);
+                for (SurfaceRangeBar bar : bars) {
+                    bar.draw(canvas);
+                }
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN && !hitsBar(event.getX(), event.getY())) {
+            return super.onTouchEvent(event);
+        }
+        if (action != MotionEvent.ACTION_DOWN && action != MotionEvent.ACTION_MOVE
+                && action != MotionEvent.ACTION_UP && action != MotionEvent.ACTION_CANCEL) {
+            return true;
+        }
+        TouchEventQueue queue = mTouchQueue;
+        if (action == MotionEvent.ACTION_MOVE) {
+            int historySize = event.getHistorySize();
+            for (int i = 0; i < historySize; i++) {
+                queue.offer(action, event.getHistoricalEventTime(i) * 1000000L,
+                        event.getHistoricalX(i), event.getHistoricalY(i));
+            }
+        }
+        queue.offer(action, event.getEventTime() * 1000000L, event.getX(), event.getY());
+        wake();
+        return true;
+    }
+
+    private boolean hitsBar(float x, float y) {
+        for (SurfaceRangeBar bar : mBars) {
+            if (bar.boundsContain(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mRenderThread = new HandlerThread("RangeSeekBarSurface");
+        mRenderThread.start();
+        final Looper looper = mRenderThread.getLooper();
+        mRenderHandler = new Handler(looper);
+        mRenderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mFrameSource = new ChoreographerFrameClock(looper);
+            }
+        });
+        redraw();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        Handler handler = mRenderHandler;
+        mRenderHandler = null;
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                mFrameSource.removeFrameCallback(mRenderFrame);
+                mFrameSource = null;
+                mTouchBar = null;
+                for (SurfaceRangeBar bar : mBars) {
+                    bar.detach();
+                }
+                // samples of a gesture interrupted by the detach are stale
+                while (mTouchQueue.poll()) {
+                }
+                Looper.myLooper().quit();
+            }
+        });
+        mRenderThread = null;
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        mSurfaceReady = true;
+        redraw();
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // waits for a frame being drawn, the surface must not be used once this returns
+        synchronized (mSurfaceLock) {
+            mSurfaceReady = false;
+        }
+    }
+}
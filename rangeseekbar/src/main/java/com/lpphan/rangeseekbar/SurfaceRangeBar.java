@@ -0,0 +1,515 @@
+package com.lpphan.rangeseekbar;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import com.lpphan.rangeseekbar.core.RangeController;
+import com.lpphan.rangeseekbar.core.RangeDispatcher;
+import com.lpphan.rangeseekbar.core.RangeModel;
+import com.lpphan.rangeseekbar.core.RangePublisher;
+import com.lpphan.rangeseekbar.core.RangeUpdateQueue;
+import com.lpphan.rangeseekbar.core.SharedFrameClock;
+import com.lpphan.rangeseekbar.core.TouchPredictor;
+
+/**
+ * One seek bar drawn by a {@link RangeSeekBarSurface}, created with
+ * {@link RangeSeekBarSurface#addBar(RangeSeekBarStyle, int)}.
+ * <p>
+ * The setters and getters can be called from any thread. Changes are queued and applied by the
+ * render thread on its next frame, the getters return the state last applied. Listeners are called
+ * on the render thread. The gesture, fling and dispatch are the ones of {@link RangeSeekBar}, run
+ * by a {@link RangeController} on the render thread.
+ */
+@SuppressWarnings("unused")
+public class SurfaceRangeBar implements RangeController.Host {
+
+    private static final int TRACK_INSET = 20;
+
+    private final RangeSeekBarSurface mSurface;
+    private final RangeController mController;
+    private final RangeModel mModel;
+    private final RangePublisher mPublisher;
+    private volatile Rect mBounds = new Rect();
+    private volatile RangeSeekBarStyle mStyle;
+    private volatile int mDispatchMode = RangeDispatcher.MODE_PER_FRAME;
+    private volatile boolean mFlingEnabled;
+    private volatile int mSamplePolicy = RangeController.SAMPLES_REPORT_ALL;
+    private volatile TouchPredictor mTouchPredictor;
+    private volatile OnRangeChangeListener mListener;
+
+    // render thread only
+    private final Bar mBar;
+    private Thumb[] mThumbs;
+    private Thumb mPressedThumb;
+    private Thumb mFlingThumb;
+    private Rect mAppliedBounds;
+    private RangeSeekBarStyle mAppliedStyle;
+    private TouchPredictor mAppliedPredictor;
+
+    SurfaceRangeBar(RangeSeekBarSurface surface, SharedFrameClock clock, RangeSeekBarStyle style, int tickCount) {
+        if (style == null) {
+            throw new IllegalArgumentException("Style must not be null");
+        }
+        mSurface = surface;
+        mStyle = style;
+        mAppliedStyle = style;
+        mController = new RangeController(tickCount, RangeModel.MIN_THUMB_COUNT, clock.newClient(),
+                clock.newClient(), this);
+        mModel = mController.getModel();
+        mModel.setRightIndex(tickCount - 1);
+        mController.getDispatcher().setMode(mDispatchMode);
+        mController.setTouchRadius(style.getThumbNormalRadius());
+        mController.setFlingVelocityRange(surface.getMinFlingVelocity(), surface.getMaxFlingVelocity());
+        mController.setFlingDeceleration(surface.getFlingDeceleration());
+        // created before the bar is shared, so any thread can subscribe
+        mPublisher = mController.getRangePublisher();
+        mBar = new Bar(mModel.getGeometry(), style);
+        createThumbs();
+    }
+
+    /**
+     * Place the bar on the surface
+     *
+     * @param left Pixels from the left edge of the surface, the track is inset from the bounds
+     */
+    public void setBounds(int left, int top, int right, int bottom) {
+        mBounds = new Rect(left, top, right, bottom);
+        mSurface.wake();
+    }
+
+    public Rect getBounds() {
+        return new Rect(mBounds);
+    }
+
+    /**
+     * Called on the input thread to route a touch down to a bar
+     */
+    boolean boundsContain(float x, float y) {
+        return mBounds.contains((int) x, (int) y);
+    }
+
+    public void setStyle(RangeSeekBarStyle style) {
+        if (style == null) {
+            throw new IllegalArgumentException("Style must not be null");
+        }
+        mStyle = style;
+        mSurface.wake();
+    }
+
+    public RangeSeekBarStyle getStyle() {
+        return mStyle;
+    }
+
+    /**
+     * @param dispatchMode One of the RangeSeekBar DISPATCH_ constants, default is
+     *                     {@link RangeSeekBar#DISPATCH_PER_FRAME}
+     */
+    public void setDispatchMode(int dispatchMode) {
+        if (dispatchMode < RangeDispatcher.MODE_IMMEDIATE || dispatchMode > RangeDispatcher.MODE_ON_RELEASE) {
+            throw new IllegalArgumentException("Unknown dispatch mode " + dispatchMode);
+        }
+        mDispatchMode = dispatchMode;
+        mSurface.wake();
+    }
+
+    public int getDispatchMode() {
+        return mDispatchMode;
+    }
+
+    /**
+     * @param flingEnabled Default is false
+     */
+    public void setFlingEnabled(boolean flingEnabled) {
+        mFlingEnabled = flingEnabled;
+    }
+
+    public boolean isFlingEnabled() {
+        return mFlingEnabled;
+    }
+
+    /**
+     * Touch panels faster than the display batch several samples in one move event, and the render
+     * thread takes all the samples of a frame at once. Choose whether the listener hears about
+     * each of them.
+     *
+     * @param samplePolicy {@link RangeSeekBar#SAMPLES_REPORT_ALL} (default) or
+     *                     {@link RangeSeekBar#SAMPLES_COLLAPSE}
+     */
+    public void setTouchSamplePolicy(int samplePolicy) {
+        if (samplePolicy != RangeController.SAMPLES_REPORT_ALL && samplePolicy != RangeController.SAMPLES_COLLAPSE) {
+            throw new IllegalArgumentException("Unknown sample policy " + samplePolicy);
+        }
+        mSamplePolicy = samplePolicy;
+        mSurface.wake();
+    }
+
+    public int getTouchSamplePolicy() {
+        return mSamplePolicy;
+    }
+
+    /**
+     * Draw the dragged thumb where the predictor expects the finger one frame later, see
+     * {@link RangeSeekBar#setTouchPredictor(TouchPredictor)}
+     *
+     * @param predictor Used by the render thread only, null to draw the thumb under the latest sample
+     */
+    public void setTouchPredictor(TouchPredictor predictor) {
+        mTouchPredictor = predictor;
+        mSurface.wake();
+    }
+
+    public TouchPredictor getTouchPredictor() {
+        return mTouchPredictor;
+    }
+
+    /**
+     * Stream of the range changes, for consumers on background executors, see
+     * {@link RangeSeekBar#getRangePublisher()}. Can be called from any thread.
+     */
+    public RangePublisher getRangePublisher() {
+        return mPublisher;
+    }
+
+    /**
+     * @param listener Called on the render thread
+     */
+    public void setOnRangeChangeListener(OnRangeChangeListener listener) {
+        mListener = listener;
+    }
+
+    public void setTickCount(int tickCount) {
+        if (mController.setTickCount(tickCount)) {
+            mSurface.wake();
+        }
+    }
+
+    public int getTickCount() {
+        return mController.getTickCount();
+    }
+
+    public void setThumbCount(int thumbCount) {
+        if (mController.setThumbCount(thumbCount)) {
+            mSurface.wake();
+        }
+    }
+
+    public int getThumbCount() {
+        return mController.getThumbCount();
+    }
+
+    /**
+     * Set the index of the left thumb, thumbs it passes are pushed along. Applied in request order
+     * with {@link #setRightIndex(int)}, so left then right gives exactly that range.
+     */
+    public void setLeftIndex(int leftIndex) {
+        if (mController.setLeftIndex(leftIndex)) {
+            mSurface.wake();
+        }
+    }
+
+    public int getLeftIndex() {
+        return mController.getLeftIndex();
+    }
+
+    /**
+     * Set the index of the right thumb, thumbs it passes are pushed along
+     */
+    public void setRightIndex(int rightIndex) {
+        if (mController.setRightIndex(rightIndex)) {
+            mSurface.wake();
+        }
+    }
+
+    public int getRightIndex() {
+        return mController.getRightIndex();
+    }
+
+    /**
+     * Set the left and the right index in one request, the render thread never sees only one
+     */
+    public void setRange(int leftIndex, int rightIndex) {
+        if (mController.setRange(leftIndex, rightIndex)) {
+            mSurface.wake();
+        }
+    }
+
+    public void setIndices(int... indices) {
+        if (mController.setIndices(indices, indices.length)) {
+            mSurface.wake();
+        }
+    }
+
+    /**
+     * @return index of a thumb from left to right, -1 if there is no such thumb
+     */
+    public int getIndex(int thumb) {
+        return mController.getRangeState().getIndex(thumb);
+    }
+
+    /**
+     * Render thread: apply the bounds, style, settings and updates queued since the last frame
+     */
+    void applyPending() {
+        RangeSeekBarStyle style = mStyle;
+        if (style != mAppliedStyle) {
+            boolean normalRadiusChanged = style.getThumbNormalRadius() != mAppliedStyle.getThumbNormalRadius();
+            mAppliedStyle = style;
+            mBar.setStyle(style);
+            for (Thumb thumb : mThumbs) {
+                thumb.setStyle(style);
+            }
+            if (normalRadiusChanged) {
+                mController.setTouchRadius(style.getThumbNormalRadius());
+                mAppliedBounds = null;
+            }
+            mSurface.invalidateFrame();
+        }
+        Rect bounds = mBounds;
+        if (bounds != mAppliedBounds) {
+            mAppliedBounds = bounds;
+            layoutTrack(bounds);
+            mSurface.invalidateFrame();
+        }
+        applySettings();
+        if (!mController.hasPendingUpdates()) {
+            return;
+        }
+        stopFling();
+        if (mPressedThumb != null && mController.hasPendingThumbCount()) {
+            onRelease(mController.release(0));
+        }
+        int applied = mController.applyUpdates();
+        if (applied == 0) {
+            return;
+        }
+        if ((applied & RangeUpdateQueue.APPLIED_THUMB_COUNT) != 0) {
+            createThumbs();
+        } else {
+            syncThumbs();
+        }
+        mSurface.invalidateFrame();
+    }
+
+    private void applySettings() {
+        if (mController.getDispatcher().getMode() != mDispatchMode) {
+            mController.getDispatcher().setMode(mDispatchMode);
+        }
+        boolean flingEnabled = mFlingEnabled;
+        if (flingEnabled != mController.isFlingEnabled()) {
+            if (!flingEnabled) {
+                stopFling();
+            }
+            mController.setFlingEnabled(flingEnabled);
+        }
+        if (mSamplePolicy != mController.getTouchSamplePolicy()) {
+            mController.setTouchSamplePolicy(mSamplePolicy);
+        }
+        TouchPredictor predictor = mTouchPredictor;
+        if (predictor != mAppliedPredictor) {
+            mAppliedPredictor = predictor;
+            mController.setTouchPredictor(predictor);
+            if (mPressedThumb != null && mPressedThumb.drawOffset != 0) {
+                mPressedThumb.drawOffset = 0;
+                mSurface.invalidateFrame();
+            }
+        }
+    }
+
+    private void layoutTrack(Rect bounds) {
+        // the bounds as a frame at the origin padded by their position, centered vertically
+        mModel.getGeometry().setFrame(bounds.right, 0, bounds.left, bounds.top, 0, bounds.bottom,
+                TRACK_INSET + mAppliedStyle.getThumbNormalRadius() / 2);
+        mModel.layout();
+        for (Thumb thumb : mThumbs) {
+            thumb.y = mModel.getGeometry().getCenterY();
+        }
+        syncThumbs();
+    }
+
+    private void createThumbs() {
+        mController.getAnimationScheduler().cancelAll();
+        mThumbs = new Thumb[mModel.getThumbCount()];
+        for (int i = 0; i < mThumbs.length; i++) {
+            mThumbs[i] = new Thumb(0, mModel.getGeometry().getCenterY(), mAppliedStyle);
+        }
+        syncThumbs();
+    }
+
+    private Thumb thumbAt(int slot) {
+        return mThumbs[mModel.getThumbId(slot)];
+    }
+
+    private void syncThumbs() {
+        for (int i = 0; i < mThumbs.length; i++) {
+            thumbAt(i).x = mModel.getThumbX(i);
+        }
+    }
+
+    /**
+     * Render thread: start a gesture inside the bounds
+     *
+     * @return true if a thumb was hit, the following samples then go to this bar
+     */
+    boolean onTouchDown(float x, float y, long timeNanos) {
+        Rect bounds = mAppliedBounds;
+        if (bounds == null || !bounds.contains((int) x, (int) y)) {
+            return false;
+        }
+        stopFling();
+        int thumb = mController.onDown(timeNanos, x);
+        if (mPressedThumb != null) {
+            // the release of the last gesture was dropped, the controller released its thumb
+            onRelease(false);
+        }
+        if (thumb == RangeModel.NO_THUMB) {
+            return false;
+        }
+        mPressedThumb = thumbAt(thumb);
+        mPressedThumb.setPressed(true);
+        mController.getAnimationScheduler().start(mPressedThumb.animator);
+        mSurface.invalidateFrame();
+        return true;
+    }
+
+    /**
+     * Render thread: start the move samples taken in one frame, followed by
+     * {@link #onTouchMove(float, long)} for each and {@link #endTouchMove()}
+     */
+    void beginTouchMove() {
+        mController.beginMove();
+    }
+
+    void onTouchMove(float x, long timeNanos) {
+        mController.addMoveSample(timeNanos, x);
+    }
+
+    void endTouchMove() {
+        int changes = mController.endMove();
+        if (mPressedThumb == null) {
+            return;
+        }
+        float drawOffset = mController.getDrawOffset();
+        if (changes == 0 && drawOffset == mPressedThumb.drawOffset) {
+            return;
+        }
+        // thumbs keep their id when crossing, only the dragged one moved
+        mPressedThumb.x = mModel.getThumbX(mModel.getPressedThumb());
+        mPressedThumb.drawOffset = drawOffset;
+        mSurface.invalidateFrame();
+    }
+
+    /**
+     * Render thread: end the gesture of this bar, the release may fling the thumb
+     */
+    void onTouchUp(long timeNanos, boolean canceled) {
+        if (mPressedThumb != null) {
+            onRelease(mController.onUp(timeNanos, canceled));
+        }
+    }
+
+    /**
+     * Update the thumb the controller released
+     *
+     * @param flung Whether it keeps moving, the model keeps it pressed until the fling ends
+     */
+    private void onRelease(boolean flung) {
+        Thumb thumb = mPressedThumb;
+        mPressedThumb = null;
+        thumb.drawOffset = 0;
+        mSurface.invalidateFrame();
+        if (flung) {
+            thumb.animator.release();
+            mController.getAnimationScheduler().start(thumb.animator);
+            mFlingThumb = thumb;
+            return;
+        }
+        thumb.setPressed(false);
+        mController.getAnimationScheduler().start(thumb.animator);
+        syncThumbs();
+    }
+
+    private void stopFling() {
+        if (mFlingThumb == null) {
+            return;
+        }
+        mFlingThumb = null;
+        mController.stopFling();
+        syncThumbs();
+        mSurface.invalidateFrame();
+    }
+
+    /**
+     * Render thread: end the gesture and animations when the surface goes away
+     */
+    void detach() {
+        if (mPressedThumb != null) {
+            onRelease(mController.release(0));
+        }
+        stopFling();
+        mController.getAnimationScheduler().cancelAll();
+        mController.getDispatcher().flush();
+    }
+
+    @Override
+    public void onAnimationFrame(long frameTimeNanos) {
+        if (mFlingThumb != null) {
+            syncThumbs();
+            if (!mController.isFlinging()) {
+                mFlingThumb = null;
+            }
+        }
+        mSurface.invalidateFrame();
+    }
+
+    /**
+     * Render thread, under the surface lock
+     */
+    void draw(Canvas canvas) {
+        if (mAppliedBounds == null) {
+            return;
+        }
+        mBar.drawTrack(canvas);
+        mBar.drawConnecting(canvas, thumbAt(0), thumbAt(mThumbs.length - 1));
+        for (Thumb thumb : mThumbs) {
+            thumb.draw(canvas);
+        }
+    }
+
+    @Override
+    public void dispatchRangeChange(int[] indices) {
+        OnRangeChangeListener listener = mListener;
+        if (listener != null) {
+            listener.onIndicesChange(this, indices);
+        }
+    }
+
+    @Override
+    public void dispatchStartTracking() {
+        OnRangeChangeListener listener = mListener;
+        if (listener != null) {
+            listener.onStartTracking(this);
+        }
+    }
+
+    @Override
+    public void dispatchStopTracking() {
+        OnRangeChangeListener listener = mListener;
+        if (listener != null) {
+            listener.onStopTracking(this);
+        }
+    }
+
+    /**
+     * Called on the render thread
+     */
+    public interface OnRangeChangeListener {
+        /**
+         * @param indices Index of every thumb from left to right, only valid during the call
+         */
+        void onIndicesChange(SurfaceRangeBar bar, int[] indices);
+
+        void onStartTracking(SurfaceRangeBar bar);
+
+        void onStopTracking(SurfaceRangeBar bar);
+    }
+}
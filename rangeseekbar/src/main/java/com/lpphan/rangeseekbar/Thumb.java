@@ -1,82 +1,141 @@
 package com.lpphan.rangeseekbar;
 
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.view.animation.DecelerateInterpolator;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.lpphan.rangeseekbar.core.ThumbAnimator;
 
 /**
  * Created by lamphuong.
  */
 public class Thumb {
     float x, y;
+    // drawn ahead of x while a touch predictor leads the finger
+    float drawOffset;
     int radius;
-    Paint paint;
-    boolean isPressed;
-    boolean isAnimating;
+    RangeSeekBarStyle style;
     int normalRadius;
     int pressedRadius;
-    private long startTime;
-    private Paint ripplePaint;
-    private DecelerateInterpolator interpolator;
-    int duration;
+    final ThumbAnimator animator;
+    float lastDrawX;
+    boolean lastDrawAnimating;
+    private ThumbSpriteCache.Atlas sprites;
+    private Rect spriteSrc;
+    private RectF spriteDst;
 
     public Thumb(
             float x,
             float y,
-            Paint thumbPaint,
-            int normalRadius,
-            int pressedRadius
+            RangeSeekBarStyle style
     ) {
         this.x = x;
         this.y = y;
-        paint = thumbPaint;
-        isPressed = false;
-        isAnimating = false;
-        this.normalRadius = normalRadius;
-        this.pressedRadius = pressedRadius;
-        ripplePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        ripplePaint.setStyle(Paint.Style.FILL);
-        ripplePaint.setColor(Color.parseColor("#757575"));
-        duration = 500;
+        this.style = style;
+        normalRadius = style.getThumbNormalRadius();
+        pressedRadius = style.getThumbPressedRadius();
+        radius = normalRadius;
+        animator = new ThumbAnimator(normalRadius, pressedRadius);
     }
 
-    public void setPressed(boolean isPressed) {
-        this.isPressed = isPressed;
-        isAnimating = true;
-        interpolator = new DecelerateInterpolator();
-        startTime = System.currentTimeMillis();
+    /**
+     * Paints and radii come from the shared style, the thumb owns none
+     */
+    public void setStyle(RangeSeekBarStyle style) {
+        this.style = style;
+        normalRadius = style.getThumbNormalRadius();
+        pressedRadius = style.getThumbPressedRadius();
+        animator.setRadii(normalRadius, pressedRadius);
+        refreshSprites();
     }
 
-    public void draw(Canvas canvas) {
-        radius = isPressed ? pressedRadius : normalRadius;
-        canvas.drawCircle(x, y, radius, paint);
-        if (isAnimating) {
-            long time = System.currentTimeMillis();
-            float interpolation = interpolator.getInterpolation((time - startTime) / (float) duration);
-            float size = pressedRadius * (1 - interpolation) + pressedRadius * 2.5f * interpolation;
-            ripplePaint.setAlpha((int) (127 * (1 - interpolation)));
-            canvas.drawCircle(x, y, size, ripplePaint);
-            if (startTime + duration < time)
-                isAnimating = false;
+    /**
+     * Draw with bitmaps from the shared {@link ThumbSpriteCache} instead of rendering circles
+     */
+    public void setSpriteCacheEnabled(boolean enabled) {
+        if (enabled && spriteSrc == null) {
+            spriteSrc = new Rect();
+            spriteDst = new RectF();
         }
+        sprites = enabled ? obtainSprites() : null;
+    }
 
+    /**
+     * Pick the atlas matching the current radii and colors
+     */
+    void refreshSprites() {
+        if (sprites != null) {
+            sprites = obtainSprites();
+        }
+    }
+
+    private ThumbSpriteCache.Atlas obtainSprites() {
+        return ThumbSpriteCache.obtain(normalRadius, pressedRadius, style.getThumbColor(), style.getRippleColor());
+    }
+
+    /**
+     * Start the press or release animations, they are stepped by the view's AnimationScheduler
+     */
+    public void setPressed(boolean isPressed) {
+        if (isPressed) {
+            animator.press();
+        } else {
+            animator.release(getDrawX());
+        }
     }
 
-    public void onActionUp(Bar bar) {
-        isPressed = false;
-        int index = bar.getNearestTick(this);
-        float tickDistance = (bar.rightX - bar.leftX) / (bar.tickNumb - 1);
-        x = bar.leftX + tickDistance * index;
+    public boolean isPressed() {
+        return animator.isPressed();
     }
 
-    public void setIndex(Bar bar, int index) {
-        float tickDistance = (bar.rightX - bar.leftX) / (bar.tickNumb - 1);
-        x = bar.leftX + tickDistance * index;
+    float getDrawX() {
+        return animator.getX(x + drawOffset);
     }
 
-    public boolean isInTargetZone(float eventX, float eventY) {
-        return Math.abs(eventX - x) <= radius;
+    public void draw(Canvas canvas) {
+        float drawX = getDrawX();
+        float drawRadius = animator.getRadius();
+        lastDrawX = drawX;
+        lastDrawAnimating = animator.isAnimating();
+        radius = (int) drawRadius;
+        if (sprites == null) {
+            canvas.drawCircle(drawX, y, drawRadius, style.thumbPaint);
+            if (animator.isRippleVisible()) {
+                canvas.drawCircle(drawX, y, animator.getRippleRadius(), style.getRipplePaint(animator.getRippleAlpha()));
+            }
+            return;
+        }
+
+        if (drawRadius == normalRadius) {
+            drawSprite(canvas, ThumbSpriteCache.SPRITE_NORMAL, drawX);
+        } else if (drawRadius == pressedRadius) {
+            drawSprite(canvas, ThumbSpriteCache.SPRITE_PRESSED, drawX);
+        } else {
+            // radius transitions are short, not worth a sprite per frame
+            canvas.drawCircle(drawX, y, drawRadius, style.thumbPaint);
+        }
+        if (animator.isRippleVisible()) {
+            int step = ThumbSpriteCache.rippleStep(animator.getRippleInterpolation());
+            drawSprite(canvas, ThumbSpriteCache.SPRITE_RIPPLE + step, drawX);
+        }
+    }
+
+    private void drawSprite(Canvas canvas, int sprite, float drawX) {
+        int half = sprites.getSprite(sprite, spriteSrc);
+        spriteDst.set(drawX - half, y - half, drawX + half, y + half);
+        canvas.drawBitmap(sprites.bitmap, spriteSrc, spriteDst, style.spritePaint);
+    }
+
+    /**
+     * Rough number of bytes held by this thumb, its animator and sprite rectangles
+     */
+    int getMemoryFootprint() {
+        // thumb fields, animator fields and its three tracks
+        int bytes = Footprint.object(44) + Footprint.object(28) + 3 * Footprint.object(32);
+        if (spriteSrc != null) {
+            bytes += Footprint.object(16) * 2;
+        }
+        return bytes;
     }
 
 }
@@ -0,0 +1,172 @@
+package com.lpphan.rangeseekbar;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.LruCache;
+
+import com.lpphan.rangeseekbar.core.ThumbAnimator;
+
+/**
+ * Thumbs and ripple frames rasterized once into a bitmap atlas, so drawing a thumb is a blit.
+ * <p>
+ * Atlases are keyed by style and shared by every RangeSeekBar using the same radii and colors.
+ * The cache is bounded in bytes and evicts the least recently used atlas. Main thread only.
+ */
+public final class ThumbSpriteCache {
+
+    static final int SPRITE_NORMAL = 0;
+    static final int SPRITE_PRESSED = 1;
+    static final int SPRITE_RIPPLE = 2;
+
+    /**
+     * Number of pre-rendered ripple frames, the ripple interpolation is quantized to this many steps
+     */
+    static final int RIPPLE_STEPS = 16;
+
+    private static final int SPRITE_COUNT = SPRITE_RIPPLE + RIPPLE_STEPS;
+    private static final int MAX_ATLAS_WIDTH = 1024;
+    private static final int MAX_SIZE = 4 * 1024 * 1024;
+
+    private static final LruCache<Key, Atlas> sCache = new LruCache<Key, Atlas>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(Key key, Atlas atlas) {
+            return atlas.bitmap.getRowBytes() * atlas.bitmap.getHeight();
+        }
+    };
+
+    private ThumbSpriteCache() {
+    }
+
+    static Atlas obtain(int normalRadius, int pressedRadius, int thumbColor, int rippleColor) {
+        Key key = new Key(normalRadius, pressedRadius, thumbColor, rippleColor);
+        Atlas atlas = sCache.get(key);
+        if (atlas == null) {
+            atlas = new Atlas(key);
+            sCache.put(key, atlas);
+        }
+        return atlas;
+    }
+
+    /**
+     * Drop every atlas, for example from {@code onTrimMemory}. Views keep the atlas they use.
+     */
+    public static void clear() {
+        sCache.evictAll();
+    }
+
+    /**
+     * @return bytes used by the cached atlases
+     */
+    public static int size() {
+        return sCache.size();
+    }
+
+    static int rippleStep(float interpolation) {
+        return Math.round(interpolation * (RIPPLE_STEPS - 1));
+    }
+
+    static final class Atlas {
+        final Bitmap bitmap;
+        // left, top and half size of every sprite
+        private final int[] mCells = new int[SPRITE_COUNT * 3];
+
+        Atlas(Key key) {
+            int[] radii = new int[SPRITE_COUNT];
+            radii[SPRITE_NORMAL] = key.normalRadius;
+            radii[SPRITE_PRESSED] = key.pressedRadius;
+            for (int step = 0; step < RIPPLE_STEPS; step++) {
+                radii[SPRITE_RIPPLE + step] = (int) Math.ceil(rippleRadius(key.pressedRadius, step));
+            }
+
+            // shelf packing, ripple frames grow so each row is as tall as its last sprite
+            int x = 0, y = 0, rowHeight = 0, width = 0;
+            for (int sprite = 0; sprite < SPRITE_COUNT; sprite++) {
+                int half = radii[sprite] + 1;
+                int size = half * 2;
+                if (x + size > MAX_ATLAS_WIDTH && x > 0) {
+                    x = 0;
+                    y += rowHeight;
+                    rowHeight = 0;
+                }
+                mCells[sprite * 3] = x;
+                mCells[sprite * 3 + 1] = y;
+                mCells[sprite * 3 + 2] = half;
+                x += size;
+                width = Math.max(width, x);
+                rowHeight = Math.max(rowHeight, size);
+            }
+
+            bitmap = Bitmap.createBitmap(width, y + rowHeight, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(Paint.Style.FILL);
+
+            paint.setColor(key.thumbColor);
+            drawSprite(canvas, SPRITE_NORMAL, key.normalRadius, paint);
+            drawSprite(canvas, SPRITE_PRESSED, key.pressedRadius, paint);
+            for (int step = 0; step < RIPPLE_STEPS; step++) {
+                float interpolation = step / (float) (RIPPLE_STEPS - 1);
+                paint.setColor(key.rippleColor);
+                paint.setAlpha((int) (ThumbAnimator.RIPPLE_MAX_ALPHA * (1 - interpolation)));
+                drawSprite(canvas, SPRITE_RIPPLE + step, rippleRadius(key.pressedRadius, step), paint);
+            }
+        }
+
+        private static float rippleRadius(int pressedRadius, int step) {
+            float interpolation = step / (float) (RIPPLE_STEPS - 1);
+            return pressedRadius * (1 - interpolation) + pressedRadius * ThumbAnimator.RIPPLE_SCALE * interpolation;
+        }
+
+        private void drawSprite(Canvas canvas, int sprite, float radius, Paint paint) {
+            int half = mCells[sprite * 3 + 2];
+            canvas.drawCircle(mCells[sprite * 3] + half, mCells[sprite * 3 + 1] + half, radius, paint);
+        }
+
+        /**
+         * @return half the size of the sprite, the distance from its center to its edges
+         */
+        int getSprite(int sprite, Rect src) {
+            int left = mCells[sprite * 3];
+            int top = mCells[sprite * 3 + 1];
+            int half = mCells[sprite * 3 + 2];
+            src.set(left, top, left + half * 2, top + half * 2);
+            return half;
+        }
+    }
+
+    private static final class Key {
+        final int normalRadius;
+        final int pressedRadius;
+        final int thumbColor;
+        final int rippleColor;
+
+        Key(int normalRadius, int pressedRadius, int thumbColor, int rippleColor) {
+            this.normalRadius = normalRadius;
+            this.pressedRadius = pressedRadius;
+            this.thumbColor = thumbColor;
+            this.rippleColor = rippleColor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return normalRadius == key.normalRadius
+                    && pressedRadius == key.pressedRadius
+                    && thumbColor == key.thumbColor
+                    && rippleColor == key.rippleColor;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = normalRadius;
+            result = 31 * result + pressedRadius;
+            result = 31 * result + thumbColor;
+            result = 31 * result + rippleColor;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.lpphan.rangeseekbar;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Build;
+
+import com.lpphan.rangeseekbar.core.TrackGeometry;
+
+/**
+ * The parts of a RangeSeekBar that do not move with the thumbs: the track line and the histogram
+ * columns. They are recorded into Pictures when the size, the style, the zoom or the counts
+ * change, and replayed on every other frame.
+ * <p>
+ * The histogram is recorded twice, once per color. Replaying each recording clipped to its side of
+ * the selection highlights the columns without recording anything during a drag.
+ * Hardware accelerated canvases only replay Pictures from Marshmallow on, older ones draw live.
+ */
+class TrackLayer {
+
+    private final Picture mTrack = new Picture();
+    private final Picture mColumns = new Picture();
+    private final Picture mSelectedColumns = new Picture();
+    private final float[] mSelectedBounds = new float[2];
+    private boolean mValid;
+    private boolean mHasColumns;
+
+    /**
+     * Record again before the next frame
+     */
+    void invalidate() {
+        mValid = false;
+    }
+
+    private static boolean canReplay(Canvas canvas) {
+        return !canvas.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+    }
+
+    /**
+     * @param histogram       May be null
+     * @param histogramTop    Top of the tallest column
+     * @param histogramBottom Baseline of the columns
+     */
+    void draw(Canvas canvas, int width, int height, TrackGeometry geometry, Bar bar, Histogram histogram,
+              int leftIndex, int rightIndex, float histogramTop, float histogramBottom) {
+        if (!canReplay(canvas)) {
+            if (histogram != null) {
+                histogram.draw(canvas, geometry, leftIndex, rightIndex, histogramTop, histogramBottom);
+            }
+            bar.drawTrack(canvas);
+            return;
+        }
+        if (!mValid) {
+            record(width, height, geometry, bar, histogram, histogramTop, histogramBottom);
+        }
+
+        if (mHasColumns) {
+            if (histogram.getSelectedBounds(geometry, leftIndex, rightIndex, mSelectedBounds)) {
+                float selectedLeft = mSelectedBounds[0];
+                float selectedRight = mSelectedBounds[1];
+                drawClipped(canvas, mColumns, 0, selectedLeft, height);
+                drawClipped(canvas, mSelectedColumns, selectedLeft, selectedRight, height);
+                drawClipped(canvas, mColumns, selectedRight, width, height);
+            } else {
+                canvas.drawPicture(mColumns);
+            }
+        }
+        canvas.drawPicture(mTrack);
+    }
+
+    private static void drawClipped(Canvas canvas, Picture picture, float left, float right, int height) {
+        if (right <= left) {
+            return;
+        }
+        int count = canvas.save();
+        canvas.clipRect(left, 0, right, height);
+        canvas.drawPicture(picture);
+        canvas.restoreToCount(count);
+    }
+
+    private void record(int width, int height, TrackGeometry geometry, Bar bar, Histogram histogram,
+                        float histogramTop, float histogramBottom) {
+        bar.drawTrack(mTrack.beginRecording(width, height));
+        mTrack.endRecording();
+
+        mHasColumns = histogram != null && histogram.layout(geometry);
+        if (mHasColumns) {
+            histogram.drawColumns(mColumns.beginRecording(width, height), geometry,
+                    histogramTop, histogramBottom, histogram.paint);
+            mColumns.endRecording();
+            histogram.drawColumns(mSelectedColumns.beginRecording(width, height), geometry,
+                    histogramTop, histogramBottom, histogram.selectedPaint);
+            mSelectedColumns.endRecording();
+        }
+        mValid = true;
+    }
+}
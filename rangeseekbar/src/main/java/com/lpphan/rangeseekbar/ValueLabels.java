@@ -0,0 +1,138 @@
+package com.lpphan.rangeseekbar;
+
+import android.graphics.Canvas;
+
+import com.lpphan.rangeseekbar.core.LabelFormat;
+import com.lpphan.rangeseekbar.core.LabelLayout;
+import com.lpphan.rangeseekbar.core.RangeModel;
+
+/**
+ * Value labels drawn above the thumbs of a RangeSeekBar.
+ * <p>
+ * The text of each label is formatted into a slice of one char buffer and kept until its index
+ * changes, its width comes from the glyph table of the style: a drag formats and measures only the
+ * label of the dragged thumb, and nothing allocates.
+ */
+class ValueLabels {
+
+    static final int MODE_THUMBS = 1;
+    static final int MODE_RANGE = 2;
+    static final int MODE_AUTO = 3;
+
+    private static final int MAX_LABELS = RangeModel.MAX_THUMB_COUNT;
+    private static final char[] RANGE_SEPARATOR = {' ', '-', ' '};
+    private static final int RANGE_LENGTH = 2 * LabelFormat.MAX_LENGTH + 3;
+    private static final float LABEL_GAP = 8;
+
+    private final char[] mText = new char[MAX_LABELS * LabelFormat.MAX_LENGTH];
+    private final char[] mScratch = new char[LabelFormat.MAX_LENGTH];
+    private final char[] mRangeText = new char[RANGE_LENGTH];
+    private final int[] mIndices = new int[MAX_LABELS];
+    private final int[] mLengths = new int[MAX_LABELS];
+    private final float[] mWidths = new float[MAX_LABELS];
+    private final float[] mCenters = new float[MAX_LABELS];
+    private final float[] mLefts = new float[MAX_LABELS];
+    private final LabelLayout mLayout = new LabelLayout();
+    private int mMode;
+    private LabelFormat mFormat = LabelFormat.INDEX;
+    private RangeSeekBarStyle mStyle;
+
+    ValueLabels(int mode) {
+        mMode = mode;
+        invalidate();
+    }
+
+    void setMode(int mode) {
+        mMode = mode;
+    }
+
+    int getMode() {
+        return mMode;
+    }
+
+    void setFormat(LabelFormat format) {
+        mFormat = format;
+        invalidate();
+    }
+
+    LabelFormat getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * Rough number of bytes held by the text buffers, the label arrays and the layout scratch arrays
+     */
+    int getMemoryFootprint() {
+        return Footprint.object(24) + Footprint.array(mText.length, 2) + Footprint.array(mScratch.length, 2)
+                + Footprint.array(mRangeText.length, 2) + 5 * Footprint.array(MAX_LABELS, 4)
+                + Footprint.object(12) + 3 * Footprint.array(MAX_LABELS, 4);
+    }
+
+    /**
+     * Format and measure every label again
+     */
+    void invalidate() {
+        for (int i = 0; i < MAX_LABELS; i++) {
+            mIndices[i] = -1;
+        }
+    }
+
+    /**
+     * @param slot  Thumb from left to right
+     * @param index Tick of the thumb, the label is formatted again when it changed
+     * @param x     Drawn position of the thumb
+     */
+    void setThumb(int slot, int index, float x, RangeSeekBarStyle style) {
+        if (style != mStyle) {
+            mStyle = style;
+            invalidate();
+        }
+        mCenters[slot] = x;
+        if (mIndices[slot] == index) {
+            return;
+        }
+        int offset = slot * LabelFormat.MAX_LENGTH;
+        int length = mFormat.format(index, mScratch);
+        System.arraycopy(mScratch, 0, mText, offset, length);
+        mIndices[slot] = index;
+        mLengths[slot] = length;
+        mWidths[slot] = style.measureLabel(mText, offset, length);
+    }
+
+    /**
+     * Draw the labels of the thumbs set with {@link #setThumb}, kept between minX and maxX
+     *
+     * @param baseline Baseline of the label text
+     */
+    void draw(Canvas canvas, int thumbCount, float minX, float maxX, float baseline) {
+        boolean range = mMode == MODE_RANGE;
+        if (!range && mLayout.layout(mCenters, mWidths, thumbCount, minX, maxX, LABEL_GAP, mLefts)) {
+            // thumb labels had to be pushed apart
+            range = mMode == MODE_AUTO;
+        }
+        if (range) {
+            drawRange(canvas, thumbCount, minX, maxX, baseline);
+            return;
+        }
+        for (int i = 0; i < thumbCount; i++) {
+            canvas.drawText(mText, i * LabelFormat.MAX_LENGTH, mLengths[i], mLefts[i], baseline, mStyle.labelPaint);
+        }
+    }
+
+    /**
+     * One label from the first to the last index, centered over the selection
+     */
+    private void drawRange(Canvas canvas, int thumbCount, float minX, float maxX, float baseline) {
+        int last = thumbCount - 1;
+        int lastOffset = last * LabelFormat.MAX_LENGTH;
+        int length = mLengths[0];
+        System.arraycopy(mText, 0, mRangeText, 0, length);
+        length = LabelFormat.appendChars(RANGE_SEPARATOR, mRangeText, length);
+        System.arraycopy(mText, lastOffset, mRangeText, length, mLengths[last]);
+        length += mLengths[last];
+        float width = mWidths[0] + mStyle.measureLabel(RANGE_SEPARATOR, 0, RANGE_SEPARATOR.length) + mWidths[last];
+        float left = (mCenters[0] + mCenters[last] - width) / 2;
+        left = Math.max(minX, Math.min(left, maxX - width));
+        canvas.drawText(mRangeText, 0, length, left, baseline, mStyle.labelPaint);
+    }
+}
@@ -0,0 +1,91 @@
+package com.lpphan.rangeseekbar;
+
+import android.content.Context;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+
+import com.lpphan.rangeseekbar.core.TrackGeometry;
+
+/**
+ * Pinch to zoom, double tap to zoom in (or back out when fully zoomed) and drag to pan the
+ * window of a {@link TrackGeometry}.
+ */
+class ViewportGestures extends GestureDetector.SimpleOnGestureListener
+        implements ScaleGestureDetector.OnScaleGestureListener {
+
+    private static final float DOUBLE_TAP_SCALE = 4f;
+
+    private final TrackGeometry mGeometry;
+    private final Callback mCallback;
+    private final ScaleGestureDetector mScaleDetector;
+    private final GestureDetector mGestureDetector;
+
+    ViewportGestures(Context context, TrackGeometry geometry, Callback callback) {
+        mGeometry = geometry;
+        mCallback = callback;
+        mScaleDetector = new ScaleGestureDetector(context, this);
+        mGestureDetector = new GestureDetector(context, this);
+        mGestureDetector.setIsLongpressEnabled(false);
+    }
+
+    /**
+     * @param canPan false while a thumb is dragged, so only a pinch is recognized
+     */
+    void onTouchEvent(MotionEvent event, boolean canPan) {
+        mScaleDetector.onTouchEvent(event);
+        if (canPan || event.getActionMasked() != MotionEvent.ACTION_MOVE) {
+            mGestureDetector.onTouchEvent(event);
+        }
+    }
+
+    boolean isScaling() {
+        return mScaleDetector.isInProgress();
+    }
+
+    @Override
+    public boolean onScaleBegin(ScaleGestureDetector detector) {
+        return true;
+    }
+
+    @Override
+    public boolean onScale(ScaleGestureDetector detector) {
+        mGeometry.zoom(detector.getScaleFactor(), detector.getFocusX());
+        mCallback.onViewportChanged();
+        return true;
+    }
+
+    @Override
+    public void onScaleEnd(ScaleGestureDetector detector) {
+    }
+
+    @Override
+    public boolean onDown(MotionEvent e) {
+        return true;
+    }
+
+    @Override
+    public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+        if (mScaleDetector.isInProgress() || !mGeometry.isZoomed()) {
+            return false;
+        }
+        mGeometry.pan(-distanceX);
+        mCallback.onViewportChanged();
+        return true;
+    }
+
+    @Override
+    public boolean onDoubleTap(MotionEvent e) {
+        if (mGeometry.getWindowSpan() <= TrackGeometry.MIN_WINDOW_SPAN) {
+            mGeometry.resetWindow();
+        } else {
+            mGeometry.zoom(DOUBLE_TAP_SCALE, e.getX());
+        }
+        mCallback.onViewportChanged();
+        return true;
+    }
+
+    interface Callback {
+        void onViewportChanged();
+    }
+}